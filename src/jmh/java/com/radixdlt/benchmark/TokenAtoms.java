@@ -0,0 +1,181 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+
+package com.radixdlt.benchmark;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.radixdlt.atommodel.tokens.FixedSupplyTokenDefinitionParticle;
+import com.radixdlt.atommodel.tokens.TokensConstraintScrypt;
+import com.radixdlt.atommodel.tokens.TransferrableTokensParticle;
+import com.radixdlt.atomos.CMAtomOS;
+import com.radixdlt.atomos.RRI;
+import com.radixdlt.atomos.RRIParticle;
+import com.radixdlt.atomos.RadixAddress;
+import com.radixdlt.common.Atom;
+import com.radixdlt.constraintmachine.ConstraintMachine;
+import com.radixdlt.crypto.CryptoException;
+import com.radixdlt.crypto.ECKeyPair;
+import com.radixdlt.middleware.ParticleGroup;
+import com.radixdlt.middleware.SpunParticle;
+import com.radixdlt.utils.UInt256;
+import java.security.Security;
+import java.util.ArrayList;
+import java.util.List;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+
+/**
+ * Builds validly signed token atoms for benchmarks.
+ * <p>
+ * The token definition atom creates a fixed supply token owned by a single
+ * key, and each transfer atom in the chain spends the change output of the
+ * previous one, paying a single token to each of the recipients and the
+ * remainder back to the owner. The size of each atom can be increased by
+ * padding its metadata.
+ */
+public final class TokenAtoms {
+	private static final byte MAGIC = (byte) 0;
+	private static final String SYMBOL = "BENCH";
+	private static final String PADDING_KEY = "padding";
+	private static final UInt256 SUPPLY = UInt256.from(Long.MAX_VALUE);
+
+	private final CMAtomOS cmAtomOS;
+	private final ECKeyPair owner;
+	private final RadixAddress ownerAddress;
+	private final RRI tokenRef;
+	private final List<RadixAddress> recipients;
+	private final int paddingBytes;
+	private final Atom tokenAtom;
+	private final List<Atom> transferAtoms;
+
+	/**
+	 * Creates a token definition atom and a chain of transfer atoms.
+	 *
+	 * @param outputs The number of output particles in each transfer atom, including the change output
+	 * @param paddingBytes The number of bytes of metadata padding in each atom
+	 * @param chainLength The number of transfer atoms in the chain
+	 * @throws CryptoException if an atom could not be signed
+	 */
+	public TokenAtoms(int outputs, int paddingBytes, int chainLength) throws CryptoException {
+		if (outputs < 1) {
+			throw new IllegalArgumentException("Must have at least one output: " + outputs);
+		}
+		installBouncyCastleProvider();
+
+		this.cmAtomOS = new CMAtomOS();
+		this.cmAtomOS.load(new TokensConstraintScrypt());
+		this.owner = new ECKeyPair();
+		this.ownerAddress = new RadixAddress(MAGIC, this.owner.getPublicKey());
+		this.tokenRef = RRI.of(this.ownerAddress, SYMBOL);
+		this.paddingBytes = paddingBytes;
+
+		// Each recipient has its own address, so that no two outputs are equal
+		ImmutableList.Builder<RadixAddress> recipientsBuilder = ImmutableList.builder();
+		for (int i = 1; i < outputs; ++i) {
+			recipientsBuilder.add(new RadixAddress(MAGIC, new ECKeyPair().getPublicKey()));
+		}
+		this.recipients = recipientsBuilder.build();
+
+		TransferrableTokensParticle balance = tokens(this.ownerAddress, SUPPLY);
+		this.tokenAtom = signedAtom(ParticleGroup.of(
+			SpunParticle.down(new RRIParticle(this.tokenRef)),
+			SpunParticle.up(new FixedSupplyTokenDefinitionParticle(this.tokenRef, "Benchmark", "Benchmark token",
+				SUPPLY, UInt256.ONE, null)),
+			SpunParticle.up(balance)
+		));
+
+		List<Atom> transfers = new ArrayList<>(chainLength);
+		for (int i = 0; i < chainLength; ++i) {
+			UInt256 change = balance.getAmount().subtract(UInt256.from(this.recipients.size()));
+			TransferrableTokensParticle changeParticle = tokens(this.ownerAddress, change);
+			List<SpunParticle> particles = new ArrayList<>(outputs + 1);
+			particles.add(SpunParticle.down(balance));
+			for (RadixAddress recipient : this.recipients) {
+				particles.add(SpunParticle.up(tokens(recipient, UInt256.ONE)));
+			}
+			particles.add(SpunParticle.up(changeParticle));
+			transfers.add(signedAtom(ParticleGroup.of(particles)));
+			balance = changeParticle;
+		}
+		this.transferAtoms = ImmutableList.copyOf(transfers);
+	}
+
+	/**
+	 * Returns the atom OS with the token scrypt loaded.
+	 */
+	public CMAtomOS getCMAtomOS() {
+		return this.cmAtomOS;
+	}
+
+	/**
+	 * Builds a new constraint machine for the token scrypt.
+	 */
+	public ConstraintMachine buildConstraintMachine() {
+		return new ConstraintMachine.Builder()
+			.setParticleStaticCheck(this.cmAtomOS.buildParticleStaticCheck())
+			.setParticleTransitionProcedures(this.cmAtomOS.buildTransitionProcedures())
+			.setParticleSigners(this.cmAtomOS.buildParticleSigners())
+			.build();
+	}
+
+	/**
+	 * Returns the key which owns the token and signs every atom.
+	 */
+	public ECKeyPair getOwner() {
+		return this.owner;
+	}
+
+	/**
+	 * Returns the atom which creates the token.
+	 */
+	public Atom getTokenAtom() {
+		return this.tokenAtom;
+	}
+
+	/**
+	 * Returns the first transfer atom in the chain.
+	 */
+	public Atom getTransferAtom() {
+		return this.transferAtoms.get(0);
+	}
+
+	/**
+	 * Returns the chain of transfer atoms, in the order they must be stored.
+	 */
+	public List<Atom> getTransferAtoms() {
+		return this.transferAtoms;
+	}
+
+	private TransferrableTokensParticle tokens(RadixAddress address, UInt256 amount) {
+		return new TransferrableTokensParticle(address, amount, UInt256.ONE, this.tokenRef, 0L, ImmutableMap.of());
+	}
+
+	private Atom signedAtom(ParticleGroup particleGroup) throws CryptoException {
+		Atom atom = new Atom(System.currentTimeMillis(), ImmutableMap.of(PADDING_KEY, Strings.repeat("x", this.paddingBytes)));
+		atom.addParticleGroup(particleGroup);
+		atom.sign(this.owner);
+		return atom;
+	}
+
+	private static void installBouncyCastleProvider() {
+		if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
+			Security.addProvider(new BouncyCastleProvider());
+		}
+	}
+}
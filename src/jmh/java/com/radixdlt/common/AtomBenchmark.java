@@ -0,0 +1,71 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+
+package com.radixdlt.common;
+
+import com.radixdlt.benchmark.TokenAtoms;
+import com.radixdlt.crypto.CryptoException;
+import com.radixdlt.crypto.Hash;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures computing the hash of a token transfer atom.
+ * <p>
+ * As the hash is memoized, each invocation hashes a fresh copy of the atom.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AtomBenchmark {
+	@Param({"2", "16", "128"})
+	private int particles;
+
+	@Param({"0", "16384"})
+	private int paddingBytes;
+
+	private Atom atom;
+
+	@Setup
+	public void setup() throws CryptoException {
+		this.atom = new TokenAtoms(particles, paddingBytes, 1).getTransferAtom();
+	}
+
+	@Benchmark
+	public Hash getHash() {
+		return new Atom(atom.getParticleGroups(), atom.getSignatures(), atom.getMetaData()).getHash();
+	}
+
+	@Benchmark
+	public AID getAID() {
+		return new Atom(atom.getParticleGroups(), atom.getSignatures(), atom.getMetaData()).getAID();
+	}
+}
@@ -0,0 +1,99 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.crypto;
+
+import java.nio.ByteBuffer;
+import java.security.Security;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares hashing throughput between security providers.
+ * <p>
+ * Note that whether the SUN provider uses the SHA intrinsics depends on the
+ * CPU and on -XX:+UseSHA, so results should be compared on the target hardware.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HashBenchmark {
+	@Param({"SUN", "BC"})
+	private String provider;
+
+	@Param({"32", "1024", "65536"})
+	private int size;
+
+	private SHAHashHandler hashHandler;
+	private byte[] data;
+	private byte[] half0;
+	private byte[] half1;
+	private ByteBuffer buffer;
+
+	@Setup
+	public void setup() {
+		if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
+			Security.addProvider(new BouncyCastleProvider());
+		}
+		this.hashHandler = new SHAHashHandler(provider);
+		Random random = new Random(size);
+		this.data = new byte[size];
+		random.nextBytes(this.data);
+		this.half0 = new byte[size / 2];
+		this.half1 = new byte[size - this.half0.length];
+		System.arraycopy(this.data, 0, this.half0, 0, this.half0.length);
+		System.arraycopy(this.data, this.half0.length, this.half1, 0, this.half1.length);
+		this.buffer = ByteBuffer.allocateDirect(size);
+		this.buffer.put(this.data).flip();
+	}
+
+	@Benchmark
+	public byte[] hash256() {
+		return hashHandler.hash256(data, 0, data.length);
+	}
+
+	@Benchmark
+	public byte[] hash256TwoArrays() {
+		return hashHandler.hash256(half0, half1);
+	}
+
+	@Benchmark
+	public byte[] hash256DirectBuffer() {
+		buffer.rewind();
+		return hashHandler.hash256(buffer);
+	}
+
+	@Benchmark
+	public byte[] hash512() {
+		return hashHandler.hash512(data, 0, data.length);
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+
+package com.radixdlt.crypto;
+
+import java.security.Security;
+import java.util.concurrent.TimeUnit;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures signing and verification.
+ * <p>
+ * {@link #verify()} goes through the process-wide verification cache, and
+ * so measures a cache hit, while {@link #verifyUncached()} measures the
+ * underlying verification.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SignatureBenchmark {
+	private ECKeyPair keyPair;
+	private ECPublicKey publicKey;
+	private byte[] hash;
+	private ECSignature signature;
+
+	@Setup
+	public void setup() throws CryptoException {
+		if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
+			Security.addProvider(new BouncyCastleProvider());
+		}
+		this.keyPair = new ECKeyPair();
+		this.publicKey = this.keyPair.getPublicKey();
+		this.hash = Hash.random().toByteArray();
+		this.signature = this.keyPair.sign(this.hash);
+	}
+
+	@Benchmark
+	public ECSignature sign() throws CryptoException {
+		return keyPair.sign(hash);
+	}
+
+	@Benchmark
+	public boolean verify() {
+		return publicKey.verify(hash, signature);
+	}
+
+	@Benchmark
+	public boolean verifyUncached() throws CryptoException {
+		return ECKeyUtils.keyHandler.verify(hash, signature, publicKey.getPublicPoint());
+	}
+}
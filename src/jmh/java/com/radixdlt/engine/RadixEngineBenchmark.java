@@ -0,0 +1,146 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+
+package com.radixdlt.engine;
+
+import com.radixdlt.benchmark.TokenAtoms;
+import com.radixdlt.common.AID;
+import com.radixdlt.common.Atom;
+import com.radixdlt.constraintmachine.CMError;
+import com.radixdlt.constraintmachine.DataPointer;
+import com.radixdlt.constraintmachine.Particle;
+import com.radixdlt.crypto.CryptoException;
+import com.radixdlt.store.InMemoryEngineStore;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures storing a chain of token transfer atoms end to end, from
+ * {@link RadixEngine#store(Atom, AtomEventListener)} until the last atom in
+ * the chain has been stored by the engine thread.
+ * <p>
+ * Each invocation stores the chain into a new engine with an empty store.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RadixEngineBenchmark {
+	private static final int CHAIN_LENGTH = 64;
+
+	@Param({"2", "16", "128"})
+	private int particles;
+
+	@Param({"0", "16384"})
+	private int paddingBytes;
+
+	private TokenAtoms atoms;
+	private RadixEngine engine;
+
+	@Setup
+	public void setupAtoms() throws CryptoException {
+		this.atoms = new TokenAtoms(particles, paddingBytes, CHAIN_LENGTH);
+	}
+
+	@Setup(Level.Invocation)
+	public void setupEngine() throws InterruptedException {
+		this.engine = new RadixEngine(
+			atoms.buildConstraintMachine(),
+			atoms.getCMAtomOS().buildVirtualLayer(),
+			new InMemoryEngineStore()
+		);
+		this.engine.start();
+		storeAndWait(this.engine, Collections.singletonList(atoms.getTokenAtom()));
+	}
+
+	@TearDown(Level.Invocation)
+	public void tearDownEngine() {
+		this.engine.stop();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(CHAIN_LENGTH)
+	public void store() throws InterruptedException {
+		storeAndWait(engine, atoms.getTransferAtoms());
+	}
+
+	private static void storeAndWait(RadixEngine engine, List<Atom> chain) throws InterruptedException {
+		CountDownLatch stored = new CountDownLatch(chain.size());
+		AtomicReference<String> failure = new AtomicReference<>();
+		AtomEventListener listener = new AtomEventListener() {
+			@Override
+			public void onStateStore(Atom atom) {
+				stored.countDown();
+			}
+
+			@Override
+			public void onCMError(Atom atom, CMError error) {
+				fail("CM error: " + error);
+			}
+
+			@Override
+			public void onVirtualStateConflict(Atom atom, DataPointer issueParticle) {
+				fail("Virtual state conflict: " + issueParticle);
+			}
+
+			@Override
+			public void onStateConflict(Atom atom, DataPointer issueParticle, Atom conflictingAtom) {
+				fail("State conflict: " + issueParticle);
+			}
+
+			@Override
+			public void onStateMissingDependency(AID atomId, Particle particle) {
+				fail("Missing dependency: " + particle);
+			}
+
+			private void fail(String message) {
+				failure.compareAndSet(null, message);
+				while (stored.getCount() > 0) {
+					stored.countDown();
+				}
+			}
+		};
+
+		for (Atom atom : chain) {
+			engine.store(atom, listener);
+		}
+		stored.await();
+		if (failure.get() != null) {
+			throw new IllegalStateException(failure.get());
+		}
+	}
+}
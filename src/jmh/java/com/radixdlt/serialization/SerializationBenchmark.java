@@ -0,0 +1,79 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+
+package com.radixdlt.serialization;
+
+import com.radixdlt.benchmark.TokenAtoms;
+import com.radixdlt.common.Atom;
+import com.radixdlt.crypto.CryptoException;
+import com.radixdlt.serialization.DsonOutput.Output;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures DSON encoding and decoding of a token transfer atom for each output mode.
+ * <p>
+ * The {@code HASH} output omits type information and cannot be decoded, so
+ * {@link #fromDson()} decodes the {@code WIRE} encoding in that case.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+	@Param({"HASH", "API", "WIRE", "PERSIST"})
+	private Output output;
+
+	@Param({"2", "16", "128"})
+	private int particles;
+
+	@Param({"0", "16384"})
+	private int paddingBytes;
+
+	private final Serialization serialization = Serialization.getDefault();
+	private Atom atom;
+	private byte[] encoded;
+
+	@Setup
+	public void setup() throws CryptoException, SerializationException {
+		this.atom = new TokenAtoms(particles, paddingBytes, 1).getTransferAtom();
+		this.encoded = serialization.toDson(atom, output == Output.HASH ? Output.WIRE : output);
+	}
+
+	@Benchmark
+	public byte[] toDson() throws SerializationException {
+		return serialization.toDson(atom, output);
+	}
+
+	@Benchmark
+	public Atom fromDson() throws SerializationException {
+		return serialization.fromDson(encoded, Atom.class);
+	}
+}
@@ -0,0 +1,94 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+
+package com.radixdlt.utils;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the {@link UInt256} arithmetic used by fungible transitions.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UInt256Benchmark {
+	private UInt256 large;
+	private UInt256 small;
+	private MutableUInt256 accumulator;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(256);
+		byte[] bytes = new byte[UInt256.BYTES];
+		random.nextBytes(bytes);
+		// Leave headroom so that additions do not overflow
+		bytes[0] = 0;
+		this.large = UInt256.from(bytes);
+		this.small = UInt256.from(random.nextLong() >>> 1);
+		this.accumulator = MutableUInt256.from(UInt256.ZERO);
+	}
+
+	@Benchmark
+	public UInt256 add() {
+		return large.add(small);
+	}
+
+	@Benchmark
+	public UInt256 subtract() {
+		return large.subtract(small);
+	}
+
+	@Benchmark
+	public UInt256 multiply() {
+		return large.multiply(small);
+	}
+
+	@Benchmark
+	public UInt256 divide() {
+		return large.divide(small);
+	}
+
+	@Benchmark
+	public UInt256 remainder() {
+		return large.remainder(small);
+	}
+
+	@Benchmark
+	public int compareTo() {
+		return large.compareTo(small);
+	}
+
+	@Benchmark
+	public MutableUInt256 accumulate() {
+		return accumulator.set(large).add(small).subtract(small);
+	}
+}
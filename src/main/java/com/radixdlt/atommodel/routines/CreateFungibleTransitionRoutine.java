@@ -29,8 +29,8 @@ import com.radixdlt.constraintmachine.UsedData;
 import com.radixdlt.constraintmachine.VoidUsedData;
 import com.radixdlt.constraintmachine.WitnessValidator;
 import com.radixdlt.constraintmachine.WitnessValidator.WitnessValidatorResult;
+import com.radixdlt.utils.MutableUInt256;
 import com.radixdlt.utils.UInt256;
-import com.radixdlt.utils.UIntUtils;
 
 import java.util.Objects;
 import java.util.Optional;
@@ -144,10 +144,10 @@ public final class CreateFungibleTransitionRoutine<I extends Particle, O extends
 		public UsedCompute<I, N, O, U> inputUsedCompute() {
 			return (inputParticle, inputUsed, outputParticle, outputUsed) -> {
 				final UInt256 inputUsedAmount = inputUsedMapper.apply(inputUsed);
-				final UInt256 inputAmount =
-					UIntUtils.subtractWithUnderflow(inputAmountMapper.apply(inputParticle), inputUsedAmount);
-				final UInt256 outputAmount =
-					UIntUtils.subtractWithUnderflow(outputAmountMapper.apply(outputParticle), outputUsedMapper.apply(outputUsed));
+				final MutableUInt256 inputAmount =
+					MutableUInt256.from(inputAmountMapper.apply(inputParticle)).subtractWithUnderflow(inputUsedAmount);
+				final MutableUInt256 outputAmount =
+					MutableUInt256.from(outputAmountMapper.apply(outputParticle)).subtractWithUnderflow(outputUsedMapper.apply(outputUsed));
 				// Note that overflow is not possible in the addition below.
 				// Given
 				//   inputAmount > outputAmount                                  (comparison in java code below)
@@ -168,7 +168,7 @@ public final class CreateFungibleTransitionRoutine<I extends Particle, O extends
 				//   inputUsed + outputParticle - outputUsed <= MAX_VALUE
 				int compare = inputAmount.compareTo(outputAmount);
 				return compare > 0
-					? Optional.of(new UsedAmount(inputUsedAmount.add(outputAmount)))
+					? Optional.of(new UsedAmount(outputAmount.add(inputUsedAmount).toUInt256()))
 					: Optional.empty();
 			};
 		}
@@ -177,10 +177,10 @@ public final class CreateFungibleTransitionRoutine<I extends Particle, O extends
 		public UsedCompute<I, N, O, U> outputUsedCompute() {
 			return (inputParticle, inputUsed, outputParticle, outputUsed) -> {
 				final UInt256 outputUsedAmount = outputUsedMapper.apply(outputUsed);
-				final UInt256 inputAmount =
-					UIntUtils.subtractWithUnderflow(inputAmountMapper.apply(inputParticle), inputUsedMapper.apply(inputUsed));
-				final UInt256 outputAmount =
-					UIntUtils.subtractWithUnderflow(outputAmountMapper.apply(outputParticle), outputUsedAmount);
+				final MutableUInt256 inputAmount =
+					MutableUInt256.from(inputAmountMapper.apply(inputParticle)).subtractWithUnderflow(inputUsedMapper.apply(inputUsed));
+				final MutableUInt256 outputAmount =
+					MutableUInt256.from(outputAmountMapper.apply(outputParticle)).subtractWithUnderflow(outputUsedAmount);
 				// Note that overflow is not possible in the addition below.
 				// Given
 				//   inputAmount < outputAmount                                  (comparison in java code below)
@@ -201,7 +201,7 @@ public final class CreateFungibleTransitionRoutine<I extends Particle, O extends
 				//   outputUsed + inputParticle - inputUsed <= MAX_VALUE
 				int compare = inputAmount.compareTo(outputAmount);
 				return compare < 0
-					? Optional.of(new UsedAmount(UIntUtils.addWithOverflow(outputUsedAmount, inputAmount)))
+					? Optional.of(new UsedAmount(inputAmount.addWithOverflow(outputUsedAmount).toUInt256()))
 					: Optional.empty();
 			};
 		}
@@ -24,6 +24,8 @@ import com.radixdlt.constraintmachine.VoidParticle;
 import com.radixdlt.constraintmachine.TransitionProcedure;
 import com.radixdlt.store.CMStore;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Function;
@@ -32,8 +34,8 @@ import com.radixdlt.constraintmachine.Particle;
 import com.radixdlt.constraintmachine.Spin;
 import com.radixdlt.store.CMStores;
 import com.radixdlt.common.EUID;
+import com.radixdlt.crypto.ECPublicKey;
 
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
@@ -105,17 +107,83 @@ public final class CMAtomOS {
 			}
 
 			final Function<Particle, Stream<RadixAddress>> mapper = particleDefinition.getAddressMapper();
-			final Set<EUID> destinations = mapper.apply(p).map(RadixAddress::getUID).collect(Collectors.toSet());
+			return checkDestinations(p.getDestinations(), mapper.apply(p).iterator());
+		};
+	}
+
+	/**
+	 * Checks that the specified addresses map to exactly the specified destinations.
+	 * Called for every particle, so matches are tracked in a bit mask rather than
+	 * by collecting the addresses into a set.
+	 */
+	static Result checkDestinations(Set<EUID> destinations, Iterator<RadixAddress> addresses) {
+		final int destinationCount = destinations.size();
+		if (destinationCount > Long.SIZE) {
+			return checkDestinationsWithSet(destinations, addresses);
+		}
+
+		long matched = 0L;
+		boolean unknownAddress = false;
+		while (addresses.hasNext()) {
+			final int index = indexOf(destinations, addresses.next().getUID());
+			if (index < 0) {
+				unknownAddress = true;
+			} else {
+				matched |= 1L << index;
+			}
+		}
+
+		if (Long.bitCount(matched) != destinationCount) {
+			return Result.error("Address destinations does not contain all destinations");
+		}
+
+		if (unknownAddress) {
+			return Result.error("Destinations does not contain all Address destinations");
+		}
+
+		return Result.success();
+	}
+
+	private static Result checkDestinationsWithSet(Set<EUID> destinations, Iterator<RadixAddress> addresses) {
+		final Set<EUID> addressDestinations = new HashSet<>();
+		addresses.forEachRemaining(address -> addressDestinations.add(address.getUID()));
 
-			if (!destinations.containsAll(p.getDestinations())) {
-				return Result.error("Address destinations does not contain all destinations");
+		if (!addressDestinations.containsAll(destinations)) {
+			return Result.error("Address destinations does not contain all destinations");
+		}
+
+		if (!destinations.containsAll(addressDestinations)) {
+			return Result.error("Destinations does not contain all Address destinations");
+		}
+
+		return Result.success();
+	}
+
+	private static int indexOf(Set<EUID> destinations, EUID uid) {
+		int index = 0;
+		for (EUID destination : destinations) {
+			if (destination.equals(uid)) {
+				return index;
 			}
+			index += 1;
+		}
+		return -1;
+	}
 
-			if (!p.getDestinations().containsAll(destinations)) {
-				return Result.error("Destinations does not contain all Address destinations");
+	/**
+	 * Builds the mapping from a particle to the keys of the addresses it refers to,
+	 * for use in signature pre-verification.
+	 */
+	public Function<Particle, Stream<ECPublicKey>> buildParticleSigners() {
+		final ImmutableMap<Class<? extends Particle>, ParticleDefinition<Particle>> particleDefinitions
+			= ImmutableMap.copyOf(this.particleDefinitions);
+		return p -> {
+			final ParticleDefinition<Particle> particleDefinition = particleDefinitions.get(p.getClass());
+			if (particleDefinition == null || p instanceof VoidParticle) {
+				return Stream.empty();
 			}
 
-			return Result.success();
+			return particleDefinition.getAddressMapper().apply(p).map(RadixAddress::getKey);
 		};
 	}
 
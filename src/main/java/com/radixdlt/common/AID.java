@@ -129,16 +129,32 @@ public final class AID implements Comparable<AID> {
 	 * @return The AID
 	 */
 	public static AID from(Hash hash, Set<Long> shards) {
-		Objects.requireNonNull(hash, "hash is required");
 		Objects.requireNonNull(shards, "shards is required");
-		if (shards.isEmpty()) {
+		long[] shardArray = new long[shards.size()];
+		int i = 0;
+		for (long shard : shards) {
+			shardArray[i++] = shard;
+		}
+		return from(hash, Longs.toSortedUnsignedSet(shardArray, shardArray.length));
+	}
+
+	/**
+	 * Create an AID from a hash and an array of shards
+	 * The AID will contain 192 first bits of shard + 64 bits of selected shard
+	 * @param hash The hash
+	 * @param sortedShards The distinct shards, in ascending unsigned order
+	 * @return The AID
+	 */
+	public static AID from(Hash hash, long[] sortedShards) {
+		Objects.requireNonNull(hash, "hash is required");
+		Objects.requireNonNull(sortedShards, "sortedShards is required");
+		if (sortedShards.length == 0) {
 			throw new IllegalArgumentException("Shards cannot be empty");
 		}
 
 		// select the shard indexed by the first hash byte
-		int selectedShardIndex = (hash.getFirstByte() & 0xff) % shards.size();
-		long selectedShard = shards.stream().sorted(Long::compareUnsigned).skip(selectedShardIndex).findFirst()
-			.orElseThrow(() -> new IllegalStateException("Missing"));
+		int selectedShardIndex = (hash.getFirstByte() & 0xff) % sortedShards.length;
+		long selectedShard = sortedShards[selectedShardIndex];
 		byte[] bytes = new byte[BYTES];
 		hash.copyTo(bytes, 0, HASH_BYTES);
 		Longs.copyTo(selectedShard, bytes, HASH_BYTES);
@@ -37,8 +37,10 @@ import com.radixdlt.serialization.Serialization;
 import com.radixdlt.serialization.SerializerConstants;
 import com.radixdlt.serialization.SerializerDummy;
 import com.radixdlt.serialization.SerializerId2;
+import com.radixdlt.utils.Longs;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -84,7 +86,10 @@ public class Atom {
 	protected final ImmutableMap<String, String> metaData;
 
 	private final Supplier<AID> cachedAID = Suppliers.memoize(this::doGetAID);
-	private final Supplier<Hash> cachedHash = Suppliers.memoize(this::doGetHash);
+	private Supplier<Hash> cachedHash = Suppliers.memoize(this::doGetHash);
+	// Computed on first use, and discarded when particle groups are added
+	private volatile long[] cachedShards = null;
+	private volatile Set<Long> cachedShardSet = null;
 
 	public Atom() {
 		this.metaData = ImmutableMap.of();
@@ -141,6 +146,8 @@ public class Atom {
 		Objects.requireNonNull(particleGroup, "particleGroup is required");
 
 		this.particleGroups.add(particleGroup);
+		this.cachedShards = null;
+		this.cachedShardSet = null;
 	}
 
 	/**
@@ -266,13 +273,52 @@ public class Atom {
 		}
 	}
 
+	/**
+	 * Gets the distinct shards of the particles in this atom.
+	 * Note that once called, the result of this operation is cached until
+	 * a particle group is added.
+	 */
 	public final Set<Long> getShards() {
-		return this.particleGroups.stream()
-			.flatMap(ParticleGroup::spunParticles)
-			.map(SpunParticle::getParticle)
-			.flatMap(p -> p.getDestinations().stream())
-			.map(EUID::getShard)
-			.collect(Collectors.toSet());
+		Set<Long> shards = this.cachedShardSet;
+		if (shards == null) {
+			ImmutableSet.Builder<Long> builder = ImmutableSet.builder();
+			for (long shard : getShardArray()) {
+				builder.add(shard);
+			}
+			shards = builder.build();
+			this.cachedShardSet = shards;
+		}
+		return shards;
+	}
+
+	/**
+	 * Gets the distinct shards of the particles in this atom, in ascending unsigned order.
+	 * Note that once called, the result of this operation is cached until
+	 * a particle group is added, and the returned array must not be modified.
+	 */
+	final long[] getShardArray() {
+		long[] shards = this.cachedShards;
+		if (shards == null) {
+			shards = computeShards();
+			this.cachedShards = shards;
+		}
+		return shards;
+	}
+
+	private long[] computeShards() {
+		long[] shards = new long[8];
+		int count = 0;
+		for (ParticleGroup particleGroup : this.particleGroups) {
+			for (SpunParticle spunParticle : particleGroup.getParticles()) {
+				for (EUID destination : spunParticle.getParticle().getDestinations()) {
+					if (count == shards.length) {
+						shards = Arrays.copyOf(shards, shards.length * 2);
+					}
+					shards[count++] = destination.getShard();
+				}
+			}
+		}
+		return Longs.toSortedUnsignedSet(shards, count);
 	}
 
 	/**
@@ -286,7 +332,7 @@ public class Atom {
 	}
 
 	private AID doGetAID() {
-		return AID.from(getHash(), this.getShards());
+		return AID.from(getHash(), this.getShardArray());
 	}
 
 	/**
@@ -367,7 +413,8 @@ public class Atom {
 
 	private Hash doGetHash() {
 		try {
-			return new Hash(Hash.hash256(Serialization.getDefault().toDson(this, DsonOutput.Output.HASH)));
+			return Serialization.getDefault().mapDson(this, DsonOutput.Output.HASH,
+				(bytes, offset, length) -> new Hash(Hash.hash256(bytes, offset, length)));
 		} catch (Exception e) {
 			throw new IllegalStateException("Error generating hash: " + e, e);
 		}
@@ -377,6 +424,18 @@ public class Atom {
 		return cachedHash.get();
 	}
 
+	/**
+	 * Sets the hash of this atom, where it is already known from the
+	 * canonical DSON the atom was decoded from, so that the atom does not
+	 * need to be re-encoded to compute it.
+	 * Note that this must be called before the atom is published to other threads.
+	 *
+	 * @param hash The hash of the canonical DSON of this atom
+	 */
+	void setCanonicalHash(Hash hash) {
+		this.cachedHash = Suppliers.ofInstance(Objects.requireNonNull(hash));
+	}
+
 	@JsonProperty("hid")
 	@DsonOutput(DsonOutput.Output.API)
 	public final EUID getHID() {
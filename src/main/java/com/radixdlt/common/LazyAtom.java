@@ -0,0 +1,226 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.common;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.radixdlt.crypto.Hash;
+import com.radixdlt.middleware.ParticleGroup;
+import com.radixdlt.serialization.DsonOutput.Output;
+import com.radixdlt.serialization.Serialization;
+import com.radixdlt.serialization.SerializationException;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * A read-only view of a DSON encoded {@link Atom} which defers deserialization
+ * of the atom's particle groups until they are first accessed.
+ * <p>
+ * Read paths that only need the identity or metadata of an atom can use this
+ * view to avoid materializing every {@link ParticleGroup} and particle in the
+ * atom.  Where the retained DSON is canonical, the hash is computed directly
+ * from it, and the full {@link Atom} is only deserialized by
+ * {@link #getParticleGroups()} or {@link #toAtom()}.  The deserialized atom is
+ * then given the same hash, rather than re-encoding the atom to compute it.
+ * DSON which is not canonical may not hash the same as the atom it decodes to,
+ * so the atom is deserialized to compute the hash.
+ */
+public final class LazyAtom {
+	private final byte[] dson;
+
+	private final Supplier<Boolean> cachedCanonical = Suppliers.memoize(this::doIsCanonical);
+	private final Supplier<AtomHeader> cachedHeader = Suppliers.memoize(this::doGetHeader);
+	private final Supplier<Hash> cachedHash = Suppliers.memoize(this::doGetHash);
+	private final Supplier<AID> cachedAID = Suppliers.memoize(this::doGetAID);
+	private final Supplier<Atom> cachedAtom = Suppliers.memoize(this::doGetAtom);
+
+	/**
+	 * Create a view of the specified DSON encoded atom.
+	 * <p>
+	 * The bytes must have been serialized using an output mode that
+	 * includes all the {@link Output#HASH} properties of an atom, such as
+	 * {@link Output#PERSIST} or {@link Output#WIRE}.
+	 *
+	 * @param dson The DSON encoded atom
+	 */
+	public LazyAtom(byte[] dson) {
+		this.dson = Objects.requireNonNull(dson, "dson is required");
+	}
+
+	/**
+	 * Retrieve the DSON bytes this view was created with.
+	 * <p>
+	 * Note that for performance reasons, the underlying array is returned.
+	 *
+	 * @return The DSON encoded atom
+	 */
+	public byte[] getDson() {
+		return this.dson;
+	}
+
+	/**
+	 * Gets the hash of the atom, computed from the retained DSON
+	 * without deserializing the atom if the DSON is canonical.
+	 */
+	public Hash getHash() {
+		return cachedHash.get();
+	}
+
+	/**
+	 * Gets the AID of the atom, computed without deserializing particles.
+	 */
+	public AID getAID() {
+		return cachedAID.get();
+	}
+
+	/**
+	 * Gets the shards of the atom, computed without deserializing particles.
+	 */
+	public Set<Long> getShards() {
+		return cachedHeader.get().shards;
+	}
+
+	/**
+	 * Get the metadata associated with the atom
+	 *
+	 * @return an immutable map of the metadata
+	 */
+	public Map<String, String> getMetaData() {
+		return cachedHeader.get().metaData;
+	}
+
+	/**
+	 * Gets the particle groups of the atom.
+	 * Note that the first call to this method deserializes the full atom.
+	 */
+	public List<ParticleGroup> getParticleGroups() {
+		return toAtom().getParticleGroups();
+	}
+
+	/**
+	 * Gets the fully deserialized atom.
+	 * Note that once called, the result of this operation is cached.
+	 */
+	public Atom toAtom() {
+		return cachedAtom.get();
+	}
+
+	private AtomHeader doGetHeader() {
+		try {
+			return Serialization.getDefault().fromDson(this.dson, AtomHeader.class);
+		} catch (SerializationException e) {
+			throw new IllegalStateException("Error decoding atom header: " + e, e);
+		}
+	}
+
+	private boolean doIsCanonical() {
+		return Serialization.getDefault().isCanonicalDson(this.dson);
+	}
+
+	private Hash doGetHash() {
+		if (!cachedCanonical.get()) {
+			return toAtom().getHash();
+		}
+		try {
+			return new Hash(Hash.hash256(Serialization.getDefault().filterDson(this.dson, Output.HASH)));
+		} catch (Exception e) {
+			throw new IllegalStateException("Error generating hash: " + e, e);
+		}
+	}
+
+	private AID doGetAID() {
+		return AID.from(getHash(), getShards());
+	}
+
+	private Atom doGetAtom() {
+		try {
+			Atom atom = Serialization.getDefault().fromDson(this.dson, Atom.class);
+			if (cachedCanonical.get()) {
+				atom.setCanonicalHash(getHash());
+			}
+			return atom;
+		} catch (SerializationException e) {
+			throw new IllegalStateException("Error decoding atom: " + e, e);
+		}
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (o == this) {
+			return true;
+		}
+
+		return o instanceof LazyAtom && getHash().equals(((LazyAtom) o).getHash());
+	}
+
+	@Override
+	public int hashCode() {
+		return getHash().hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s[%s]", getClass().getSimpleName(), getAID());
+	}
+
+	// The classes below are minimal projections of the DSON structure of an atom.
+	// Anything not mapped here, including the particles themselves, is skipped
+	// by the parser rather than deserialized.
+	private static final class AtomHeader {
+		private ImmutableSet<Long> shards = ImmutableSet.of();
+
+		@JsonProperty("metaData")
+		private ImmutableMap<String, String> metaData = ImmutableMap.of();
+
+		@JsonProperty("particleGroups")
+		private void setParticleGroups(List<ParticleGroupHeader> particleGroups) {
+			ImmutableSet.Builder<Long> shardsBuilder = ImmutableSet.builder();
+			for (ParticleGroupHeader particleGroup : particleGroups) {
+				for (SpunParticleHeader spunParticle : particleGroup.particles) {
+					if (spunParticle.particle != null) {
+						for (EUID destination : spunParticle.particle.destinations) {
+							shardsBuilder.add(destination.getShard());
+						}
+					}
+				}
+			}
+			this.shards = shardsBuilder.build();
+		}
+	}
+
+	private static final class ParticleGroupHeader {
+		@JsonProperty("particles")
+		private ImmutableList<SpunParticleHeader> particles = ImmutableList.of();
+	}
+
+	private static final class SpunParticleHeader {
+		@JsonProperty("particle")
+		private ParticleHeader particle;
+	}
+
+	private static final class ParticleHeader {
+		@JsonProperty("destinations")
+		private ImmutableSet<EUID> destinations = ImmutableSet.of();
+	}
+}
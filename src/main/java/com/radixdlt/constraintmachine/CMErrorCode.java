@@ -34,7 +34,8 @@ public enum CMErrorCode {
 	TRANSITION_PRECONDITION_FAILURE("Transition Precondition failure"),
 	TRANSITION_ERROR("Transition error"),
 	ARITHMETIC_ERROR("Arithmetic error"),
-	INVALID_INSTRUCTION_SEQUENCE("Invalid instruction sequence");
+	INVALID_INSTRUCTION_SEQUENCE("Invalid instruction sequence"),
+	IN_FLIGHT_CONFLICT("Particle is already being spun by an atom in flight");
 
 	private final String description;
 
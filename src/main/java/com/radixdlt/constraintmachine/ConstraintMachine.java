@@ -24,12 +24,20 @@ import com.radixdlt.constraintmachine.WitnessValidator.WitnessValidatorResult;
 import com.radixdlt.crypto.ECPublicKey;
 import com.radixdlt.crypto.ECSignature;
 import com.radixdlt.crypto.Hash;
+import com.radixdlt.metrics.EngineMetrics;
 import com.radixdlt.store.SpinStateMachine;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
  * An implementation of a UTXO based constraint machine which uses Radix's atom structure.
@@ -42,6 +50,9 @@ public final class ConstraintMachine {
 	public static class Builder {
 		private Function<Particle, Result> particleStaticCheck;
 		private Function<TransitionToken, TransitionProcedure<Particle, UsedData, Particle, UsedData>> particleProcedures;
+		private Function<Particle, Stream<ECPublicKey>> particleSigners = p -> Stream.empty();
+		private Executor signatureVerificationExecutor;
+		private EngineMetrics metrics = EngineMetrics.noop();
 
 		public Builder setParticleStaticCheck(Function<Particle, Result> particleStaticCheck) {
 			this.particleStaticCheck = particleStaticCheck;
@@ -55,23 +66,79 @@ public final class ConstraintMachine {
 			return this;
 		}
 
+		/**
+		 * Sets the mapping from a particle to the public keys a witness validator may
+		 * ask about for that particle. Only used for signature pre-verification.
+		 */
+		public Builder setParticleSigners(Function<Particle, Stream<ECPublicKey>> particleSigners) {
+			this.particleSigners = particleSigners;
+			return this;
+		}
+
+		/**
+		 * Sets the executor used to verify the signatures of an instruction in parallel
+		 * before validation starts. If not set, signatures are verified lazily on the
+		 * validating thread as witness validators ask for them.
+		 */
+		public Builder setSignatureVerificationExecutor(Executor signatureVerificationExecutor) {
+			this.signatureVerificationExecutor = signatureVerificationExecutor;
+			return this;
+		}
+
+		/**
+		 * Sets the metrics which validation errors and executed transitions are
+		 * counted in. Defaults to {@link EngineMetrics#noop()}.
+		 */
+		public Builder setMetrics(EngineMetrics metrics) {
+			this.metrics = Objects.requireNonNull(metrics);
+			return this;
+		}
+
 		public ConstraintMachine build() {
 			return new ConstraintMachine(
 				particleStaticCheck,
-				particleProcedures
+				particleProcedures,
+				particleSigners,
+				signatureVerificationExecutor,
+				metrics
 			);
 		}
 	}
 
 	private final Function<Particle, Result> particleStaticCheck;
 	private final Function<TransitionToken, TransitionProcedure<Particle, UsedData, Particle, UsedData>> particleProcedures;
+	private final Function<Particle, Stream<ECPublicKey>> particleSigners;
+	private final Executor signatureVerificationExecutor;
+	private final EngineMetrics metrics;
 
 	ConstraintMachine(
 		Function<Particle, Result> particleStaticCheck,
 		Function<TransitionToken, TransitionProcedure<Particle, UsedData, Particle, UsedData>> particleProcedures
+	) {
+		this(particleStaticCheck, particleProcedures, p -> Stream.empty(), null);
+	}
+
+	ConstraintMachine(
+		Function<Particle, Result> particleStaticCheck,
+		Function<TransitionToken, TransitionProcedure<Particle, UsedData, Particle, UsedData>> particleProcedures,
+		Function<Particle, Stream<ECPublicKey>> particleSigners,
+		Executor signatureVerificationExecutor
+	) {
+		this(particleStaticCheck, particleProcedures, particleSigners, signatureVerificationExecutor, EngineMetrics.noop());
+	}
+
+	ConstraintMachine(
+		Function<Particle, Result> particleStaticCheck,
+		Function<TransitionToken, TransitionProcedure<Particle, UsedData, Particle, UsedData>> particleProcedures,
+		Function<Particle, Stream<ECPublicKey>> particleSigners,
+		Executor signatureVerificationExecutor,
+		EngineMetrics metrics
 	) {
 		this.particleStaticCheck = particleStaticCheck;
 		this.particleProcedures = particleProcedures;
+		this.particleSigners = particleSigners;
+		this.signatureVerificationExecutor = signatureVerificationExecutor;
+		this.metrics = metrics;
 	}
 
 	public static final class CMValidationState {
@@ -79,13 +146,13 @@ public final class ConstraintMachine {
 		private Particle particleRemaining = null;
 		private boolean particleRemainingIsInput;
 		private UsedData particleRemainingUsed = null;
-		private final Map<Particle, Spin> currentSpins;
+		private final ParticleHashMap<Spin> currentSpins;
 		private final Hash witness;
 		private final Map<EUID, ECSignature> signatures;
 		private final Map<ECPublicKey, Boolean> isSignedByCache = new HashMap<>();
 
 		CMValidationState(Hash witness, Map<EUID, ECSignature> signatures) {
-			this.currentSpins = new HashMap<>();
+			this.currentSpins = new ParticleHashMap<>();
 			this.witness = witness;
 			this.signatures = signatures;
 		}
@@ -107,6 +174,28 @@ public final class ConstraintMachine {
 			return this.isSignedByCache.computeIfAbsent(publicKey, this::verifySignedWith);
 		}
 
+		/**
+		 * Verifies signatures for the specified public keys in parallel, and seeds the
+		 * results for subsequent calls to {@link #isSignedBy(ECPublicKey)}.
+		 * Keys which could not be scheduled on the executor are left to be verified lazily.
+		 *
+		 * @param publicKeys the public keys to verify signatures for
+		 * @param executor the executor to verify signatures on
+		 */
+		void preverifySignedBy(Set<ECPublicKey> publicKeys, Executor executor) {
+			final Map<ECPublicKey, CompletableFuture<Boolean>> verifications = new HashMap<>();
+			for (ECPublicKey publicKey : publicKeys) {
+				if (!this.isSignedByCache.containsKey(publicKey)) {
+					try {
+						verifications.put(publicKey, CompletableFuture.supplyAsync(() -> verifySignedWith(publicKey), executor));
+					} catch (RejectedExecutionException e) {
+						// Executor is saturated, verify lazily instead
+					}
+				}
+			}
+			verifications.forEach((publicKey, verification) -> this.isSignedByCache.put(publicKey, verification.join()));
+		}
+
 		private boolean verifySignedWith(ECPublicKey publicKey) {
 			if (signatures == null || signatures.isEmpty() || witness == null) {
 				return false;
@@ -242,6 +331,8 @@ public final class ConstraintMachine {
 			);
 		}
 
+		this.metrics.incrementTransition(transitionToken);
+
 		final UsedData inputUsed = validationState.getInputUsed();
 		final UsedData outputUsed = validationState.getOutputUsed();
 
@@ -401,6 +492,41 @@ public final class ConstraintMachine {
 			cmInstruction.getSignatures()
 		);
 
-		return this.validateMicroInstructions(validationState, cmInstruction.getMicroInstructions());
+		if (this.signatureVerificationExecutor != null) {
+			final Set<ECPublicKey> signers = signersOf(cmInstruction);
+			// Not worth handing off unless there is something to do in parallel
+			if (signers.size() > 1) {
+				validationState.preverifySignedBy(signers, this.signatureVerificationExecutor);
+			}
+		}
+
+		final Optional<CMError> error = this.validateMicroInstructions(validationState, cmInstruction.getMicroInstructions());
+		error.ifPresent(e -> this.metrics.incrementError(e.getErrorCode()));
+		return error;
+	}
+
+	/**
+	 * Collects the public keys a witness validator may ask about which also have
+	 * a signature in the specified instruction.
+	 */
+	private Set<ECPublicKey> signersOf(CMInstruction cmInstruction) {
+		final Map<EUID, ECSignature> signatures = cmInstruction.getSignatures();
+		final Set<ECPublicKey> signers = new HashSet<>();
+		if (signatures.isEmpty() || cmInstruction.getWitness() == null) {
+			return signers;
+		}
+
+		for (CMMicroInstruction cmMicroInstruction : cmInstruction.getMicroInstructions()) {
+			if (cmMicroInstruction.isCheckSpin()) {
+				try {
+					this.particleSigners.apply(cmMicroInstruction.getParticle())
+						.filter(publicKey -> signatures.containsKey(publicKey.getUID()))
+						.forEach(signers::add);
+				} catch (RuntimeException e) {
+					// Malformed particles are reported by the static check during validation
+				}
+			}
+		}
+		return signers;
 	}
 }
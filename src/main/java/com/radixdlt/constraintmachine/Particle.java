@@ -28,6 +28,7 @@ import com.radixdlt.serialization.Serialization;
 import com.radixdlt.serialization.SerializerConstants;
 import com.radixdlt.serialization.SerializerDummy;
 import com.radixdlt.serialization.SerializerId2;
+import com.radixdlt.utils.Longs;
 import java.util.Set;
 import java.util.function.Supplier;
 
@@ -53,6 +54,7 @@ public abstract class Particle {
 	private short version = 100;
 
 	private final Supplier<Hash> cachedHash = Suppliers.memoize(this::doGetHash);
+	private final Supplier<long[]> cachedShards = Suppliers.memoize(this::doGetShards);
 
 	public Particle() {
 		this.destinations = ImmutableSet.of();
@@ -70,6 +72,24 @@ public abstract class Particle {
 		return destinations;
 	}
 
+	/**
+	 * Gets the distinct shards of the destinations of this particle, in ascending unsigned order.
+	 * Note that once called, the result of this operation is cached, and a copy
+	 * of the cached array is returned.
+	 */
+	public long[] getShards() {
+		return cachedShards.get().clone();
+	}
+
+	private long[] doGetShards() {
+		long[] shards = new long[destinations.size()];
+		int i = 0;
+		for (EUID destination : destinations) {
+			shards[i++] = destination.getShard();
+		}
+		return Longs.toSortedUnsignedSet(shards, shards.length);
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (o == null) {
@@ -94,7 +114,8 @@ public abstract class Particle {
 
 	private Hash doGetHash() {
 		try {
-			return new Hash(Hash.hash256(Serialization.getDefault().toDson(this, Output.HASH)));
+			return Serialization.getDefault().mapDson(this, Output.HASH,
+				(bytes, offset, length) -> new Hash(Hash.hash256(bytes, offset, length)));
 		} catch (Exception e) {
 			throw new RuntimeException("Error generating hash: " + e, e);
 		}
@@ -0,0 +1,148 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.constraintmachine;
+
+import com.radixdlt.crypto.Hash;
+import com.radixdlt.utils.Longs;
+import java.util.Objects;
+
+/**
+ * A map keyed by particle identity, that is the content of the particle's hash.
+ * <p>
+ * Keys are stored as the four longs of the 32-byte hash in an open addressing
+ * table, so lookups compare a few longs rather than calling {@link Particle#equals(Object)}.
+ * As hashes are uniformly distributed, the first long is used directly to choose a slot.
+ * <p>
+ * Null values are not permitted. Note that this class is not thread safe.
+ *
+ * @param <V> the type of values in the map
+ */
+public final class ParticleHashMap<V> {
+	private static final int WORDS = Hash.BYTES / Long.BYTES;
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private long[] keys;
+	private Object[] values;
+	private int mask;
+	private int size;
+
+	public ParticleHashMap() {
+		allocate(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a map that can hold the specified number of particles without resizing.
+	 *
+	 * @param expectedSize the expected number of particles
+	 */
+	public ParticleHashMap(int expectedSize) {
+		int capacity = DEFAULT_CAPACITY;
+		while ((capacity >> 1) <= expectedSize) {
+			capacity <<= 1;
+		}
+		allocate(capacity);
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	public boolean containsKey(Particle particle) {
+		return get(particle) != null;
+	}
+
+	@SuppressWarnings("unchecked")
+	public V get(Particle particle) {
+		return (V) this.values[slotFor(particle.getHash().toByteArray())];
+	}
+
+	/**
+	 * Associates the value with the particle.
+	 *
+	 * @param particle the particle
+	 * @param value the non-null value
+	 * @return the previous value associated with the particle, or {@code null} if there was none
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(Particle particle, V value) {
+		Objects.requireNonNull(value);
+		final byte[] hash = particle.getHash().toByteArray();
+		final int slot = slotFor(hash);
+		final Object previous = this.values[slot];
+		this.values[slot] = value;
+		if (previous == null) {
+			final int base = slot * WORDS;
+			for (int i = 0; i < WORDS; ++i) {
+				this.keys[base + i] = Longs.fromByteArray(hash, i * Long.BYTES);
+			}
+			// Keep the load factor at or below 0.5
+			if (++this.size > this.mask >> 1) {
+				resize();
+			}
+		}
+		return (V) previous;
+	}
+
+	/**
+	 * Returns the slot holding the specified hash, or the empty slot where it belongs.
+	 */
+	private int slotFor(byte[] hash) {
+		final long w0 = Longs.fromByteArray(hash, 0);
+		final long w1 = Longs.fromByteArray(hash, Long.BYTES);
+		final long w2 = Longs.fromByteArray(hash, Long.BYTES * 2);
+		final long w3 = Longs.fromByteArray(hash, Long.BYTES * 3);
+		return slotFor(this.keys, this.values, this.mask, w0, w1, w2, w3);
+	}
+
+	private static int slotFor(long[] keys, Object[] values, int mask, long w0, long w1, long w2, long w3) {
+		int slot = (int) w0 & mask;
+		while (values[slot] != null) {
+			final int base = slot * WORDS;
+			if (keys[base] == w0 && keys[base + 1] == w1 && keys[base + 2] == w2 && keys[base + 3] == w3) {
+				break;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void allocate(int capacity) {
+		this.keys = new long[capacity * WORDS];
+		this.values = new Object[capacity];
+		this.mask = capacity - 1;
+	}
+
+	private void resize() {
+		final long[] oldKeys = this.keys;
+		final Object[] oldValues = this.values;
+		allocate(oldValues.length * 2);
+		for (int oldSlot = 0; oldSlot < oldValues.length; ++oldSlot) {
+			if (oldValues[oldSlot] != null) {
+				final int oldBase = oldSlot * WORDS;
+				final int slot = slotFor(this.keys, this.values, this.mask,
+					oldKeys[oldBase], oldKeys[oldBase + 1], oldKeys[oldBase + 2], oldKeys[oldBase + 3]);
+				System.arraycopy(oldKeys, oldBase, this.keys, slot * WORDS, WORDS);
+				this.values[slot] = oldValues[oldSlot];
+			}
+		}
+	}
+}
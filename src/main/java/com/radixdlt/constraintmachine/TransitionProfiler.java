@@ -0,0 +1,318 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+
+package com.radixdlt.constraintmachine;
+
+import com.google.common.collect.ImmutableMap;
+import com.radixdlt.atomos.Result;
+import com.radixdlt.constraintmachine.WitnessValidator.WitnessValidatorResult;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Profiles transition procedures per {@link TransitionToken}, so that slow
+ * or failing scrypts can be identified.
+ * <p>
+ * Profiling is enabled by wrapping the procedures passed to a constraint machine:
+ * <pre>
+ *   TransitionProfiler profiler = new TransitionProfiler();
+ *   new ConstraintMachine.Builder()
+ *       .setParticleTransitionProcedures(profiler.wrap(cmAtomOS.buildTransitionProcedures()))
+ *       ...
+ * </pre>
+ * Counts and times are accumulated in {@link LongAdder}s, so that concurrent
+ * validations do not contend, and can be read at any time with {@link #getProfiles()}
+ * or {@link #dump()}.
+ */
+public final class TransitionProfiler {
+	/**
+	 * A point in time copy of the counts and times for a single transition token.
+	 * All times are in nanoseconds.
+	 */
+	public static final class Profile {
+		private final long invocations;
+		private final long preconditionNanos;
+		private final long usedComputeNanos;
+		private final long witnessNanos;
+		private final long preconditionErrors;
+		private final long usedComputeErrors;
+		private final long witnessErrors;
+
+		private Profile(Counters counters) {
+			this.invocations = counters.invocations.sum();
+			this.preconditionNanos = counters.preconditionNanos.sum();
+			this.usedComputeNanos = counters.usedComputeNanos.sum();
+			this.witnessNanos = counters.witnessNanos.sum();
+			this.preconditionErrors = counters.preconditionErrors.sum();
+			this.usedComputeErrors = counters.usedComputeErrors.sum();
+			this.witnessErrors = counters.witnessErrors.sum();
+		}
+
+		/**
+		 * Returns the number of times the procedure's precondition was checked,
+		 * which is once for each time the procedure was executed.
+		 */
+		public long getInvocations() {
+			return invocations;
+		}
+
+		public long getPreconditionNanos() {
+			return preconditionNanos;
+		}
+
+		public long getUsedComputeNanos() {
+			return usedComputeNanos;
+		}
+
+		public long getWitnessNanos() {
+			return witnessNanos;
+		}
+
+		public long getTotalNanos() {
+			return preconditionNanos + usedComputeNanos + witnessNanos;
+		}
+
+		public long getPreconditionErrors() {
+			return preconditionErrors;
+		}
+
+		/**
+		 * Returns the number of used computations which threw an exception,
+		 * for example because of an arithmetic overflow.
+		 */
+		public long getUsedComputeErrors() {
+			return usedComputeErrors;
+		}
+
+		public long getWitnessErrors() {
+			return witnessErrors;
+		}
+
+		public long getErrors() {
+			return preconditionErrors + usedComputeErrors + witnessErrors;
+		}
+	}
+
+	private static final class Counters {
+		private final LongAdder invocations = new LongAdder();
+		private final LongAdder preconditionNanos = new LongAdder();
+		private final LongAdder usedComputeNanos = new LongAdder();
+		private final LongAdder witnessNanos = new LongAdder();
+		private final LongAdder preconditionErrors = new LongAdder();
+		private final LongAdder usedComputeErrors = new LongAdder();
+		private final LongAdder witnessErrors = new LongAdder();
+
+		private void reset() {
+			invocations.reset();
+			preconditionNanos.reset();
+			usedComputeNanos.reset();
+			witnessNanos.reset();
+			preconditionErrors.reset();
+			usedComputeErrors.reset();
+			witnessErrors.reset();
+		}
+	}
+
+	/**
+	 * A procedure which records counts and times before delegating.
+	 */
+	private static final class ProfiledProcedure implements TransitionProcedure<Particle, UsedData, Particle, UsedData> {
+		private final TransitionProcedure<Particle, UsedData, Particle, UsedData> delegate;
+		private final Counters counters;
+		private final UsedCompute<Particle, UsedData, Particle, UsedData> inputUsedCompute;
+		private final UsedCompute<Particle, UsedData, Particle, UsedData> outputUsedCompute;
+		private final WitnessValidator<Particle> inputWitnessValidator;
+		private final WitnessValidator<Particle> outputWitnessValidator;
+
+		private ProfiledProcedure(TransitionProcedure<Particle, UsedData, Particle, UsedData> delegate, Counters counters) {
+			this.delegate = delegate;
+			this.counters = counters;
+			// Created once here, rather than on every call from the constraint machine
+			this.inputUsedCompute = (input, inputUsed, output, outputUsed) ->
+				usedCompute(delegate.inputUsedCompute(), input, inputUsed, output, outputUsed);
+			this.outputUsedCompute = (input, inputUsed, output, outputUsed) ->
+				usedCompute(delegate.outputUsedCompute(), input, inputUsed, output, outputUsed);
+			this.inputWitnessValidator = (particle, witnessData) ->
+				witness(delegate.inputWitnessValidator(), particle, witnessData);
+			this.outputWitnessValidator = (particle, witnessData) ->
+				witness(delegate.outputWitnessValidator(), particle, witnessData);
+		}
+
+		@Override
+		public Result precondition(Particle inputParticle, UsedData inputUsed, Particle outputParticle, UsedData outputUsed) {
+			this.counters.invocations.increment();
+			final long start = System.nanoTime();
+			boolean success = false;
+			try {
+				final Result result = this.delegate.precondition(inputParticle, inputUsed, outputParticle, outputUsed);
+				success = result.isSuccess();
+				return result;
+			} finally {
+				this.counters.preconditionNanos.add(System.nanoTime() - start);
+				if (!success) {
+					this.counters.preconditionErrors.increment();
+				}
+			}
+		}
+
+		@Override
+		public UsedCompute<Particle, UsedData, Particle, UsedData> inputUsedCompute() {
+			return this.inputUsedCompute;
+		}
+
+		@Override
+		public UsedCompute<Particle, UsedData, Particle, UsedData> outputUsedCompute() {
+			return this.outputUsedCompute;
+		}
+
+		@Override
+		public WitnessValidator<Particle> inputWitnessValidator() {
+			return this.inputWitnessValidator;
+		}
+
+		@Override
+		public WitnessValidator<Particle> outputWitnessValidator() {
+			return this.outputWitnessValidator;
+		}
+
+		private Optional<UsedData> usedCompute(
+			UsedCompute<Particle, UsedData, Particle, UsedData> usedCompute,
+			Particle input,
+			UsedData inputUsed,
+			Particle output,
+			UsedData outputUsed
+		) {
+			final long start = System.nanoTime();
+			boolean success = false;
+			try {
+				final Optional<UsedData> usedData = usedCompute.compute(input, inputUsed, output, outputUsed);
+				success = true;
+				return usedData;
+			} finally {
+				this.counters.usedComputeNanos.add(System.nanoTime() - start);
+				if (!success) {
+					this.counters.usedComputeErrors.increment();
+				}
+			}
+		}
+
+		private WitnessValidatorResult witness(WitnessValidator<Particle> witnessValidator, Particle particle, WitnessData witnessData) {
+			final long start = System.nanoTime();
+			boolean success = false;
+			try {
+				final WitnessValidatorResult result = witnessValidator.validate(particle, witnessData);
+				success = result.isSuccess();
+				return result;
+			} finally {
+				this.counters.witnessNanos.add(System.nanoTime() - start);
+				if (!success) {
+					this.counters.witnessErrors.increment();
+				}
+			}
+		}
+	}
+
+	private final ConcurrentMap<TransitionToken<?, ?, ?, ?>, Counters> counters = new ConcurrentHashMap<>();
+
+	/**
+	 * Wraps the specified transition procedures so that their execution is profiled
+	 * by this profiler. Procedures are wrapped once per token, and missing procedures
+	 * remain missing.
+	 *
+	 * @param procedures The procedures to profile, for example from
+	 * 		{@link com.radixdlt.atomos.CMAtomOS#buildTransitionProcedures()}
+	 * @return The profiled procedures
+	 */
+	public Function<TransitionToken, TransitionProcedure<Particle, UsedData, Particle, UsedData>> wrap(
+		Function<TransitionToken, TransitionProcedure<Particle, UsedData, Particle, UsedData>> procedures
+	) {
+		final ConcurrentMap<TransitionToken<?, ?, ?, ?>, TransitionProcedure<Particle, UsedData, Particle, UsedData>> wrapped
+			= new ConcurrentHashMap<>();
+		return token -> {
+			TransitionProcedure<Particle, UsedData, Particle, UsedData> procedure = wrapped.get(token);
+			if (procedure == null) {
+				final TransitionProcedure<Particle, UsedData, Particle, UsedData> delegate = procedures.apply(token);
+				if (delegate == null) {
+					return null;
+				}
+				procedure = wrapped.computeIfAbsent(token, t -> new ProfiledProcedure(delegate, countersFor(t)));
+			}
+			return procedure;
+		};
+	}
+
+	/**
+	 * Returns a copy of the current profile of every transition token which has been executed.
+	 */
+	public Map<TransitionToken<?, ?, ?, ?>, Profile> getProfiles() {
+		final ImmutableMap.Builder<TransitionToken<?, ?, ?, ?>, Profile> profiles = ImmutableMap.builder();
+		this.counters.forEach((token, c) -> profiles.put(token, new Profile(c)));
+		return profiles.build();
+	}
+
+	/**
+	 * Returns the current profile of the specified transition token, which is
+	 * empty if the token has not been executed.
+	 */
+	public Profile getProfile(TransitionToken<?, ?, ?, ?> transitionToken) {
+		final Counters c = this.counters.get(transitionToken);
+		return new Profile(c == null ? new Counters() : c);
+	}
+
+	/**
+	 * Resets all counts and times to zero.
+	 */
+	public void reset() {
+		this.counters.values().forEach(Counters::reset);
+	}
+
+	/**
+	 * Formats the current profiles as a table, one line per transition token,
+	 * with the tokens taking the most total time first.
+	 */
+	public String dump() {
+		final StringBuilder builder = new StringBuilder();
+		builder.append(String.format("%12s %12s %12s %12s %12s %8s  %s%n",
+			"invocations", "total_us", "precond_us", "used_us", "witness_us", "errors", "transition"));
+		getProfiles().entrySet().stream()
+			.sorted(Comparator.comparingLong((Map.Entry<TransitionToken<?, ?, ?, ?>, Profile> e) -> e.getValue().getTotalNanos()).reversed())
+			.forEach(e -> {
+				final Profile p = e.getValue();
+				builder.append(String.format("%12d %12d %12d %12d %12d %8d  %s%n",
+					p.getInvocations(),
+					TimeUnit.NANOSECONDS.toMicros(p.getTotalNanos()),
+					TimeUnit.NANOSECONDS.toMicros(p.getPreconditionNanos()),
+					TimeUnit.NANOSECONDS.toMicros(p.getUsedComputeNanos()),
+					TimeUnit.NANOSECONDS.toMicros(p.getWitnessNanos()),
+					p.getErrors(),
+					e.getKey()));
+			});
+		return builder.toString();
+	}
+
+	private Counters countersFor(TransitionToken<?, ?, ?, ?> transitionToken) {
+		// Counters are shared between all procedures wrapped by this profiler
+		return this.counters.computeIfAbsent(transitionToken, t -> new Counters());
+	}
+}
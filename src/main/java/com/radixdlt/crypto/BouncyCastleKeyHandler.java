@@ -20,7 +20,12 @@ package com.radixdlt.crypto;
 import java.math.BigInteger;
 import java.security.KeyFactory;
 import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import org.bouncycastle.asn1.x9.X9ECParameters;
 import org.bouncycastle.crypto.params.ECDomainParameters;
 import org.bouncycastle.crypto.params.ECPrivateKeyParameters;
@@ -30,8 +35,11 @@ import org.bouncycastle.crypto.signers.ECDSASigner;
 import org.bouncycastle.jce.interfaces.ECPublicKey;
 import org.bouncycastle.jce.spec.ECParameterSpec;
 import org.bouncycastle.jce.spec.ECPublicKeySpec;
+import org.bouncycastle.math.ec.ECPoint;
 
 class BouncyCastleKeyHandler implements KeyHandler {
+	private static final int BATCH_CHUNK_SIZE = 32;
+
 	private final BigInteger halfCurveOrder;
 	private final X9ECParameters curve;
 	private final ECDomainParameters domain;
@@ -61,8 +69,64 @@ class BouncyCastleKeyHandler implements KeyHandler {
 
 	@Override
 	public boolean verify(byte[] hash, ECSignature signature, byte[] publicKey) throws CryptoException {
+		return verify(hash, signature, spec.getCurve().decodePoint(publicKey));
+	}
+
+	@Override
+	public boolean verify(byte[] hash, ECSignature signature, ECPoint publicPoint) throws CryptoException {
+		// Bouncy Castle caches validity checks and WNAF multiplication tables on
+		// the point itself, so these are reused when the same point is reused.
+		return verify(new ECDSASigner(), hash, signature, publicPoint);
+	}
+
+	@Override
+	public BitSet verifyBatch(List<VerifyRequest> requests, Executor executor, BitSet invalid) {
+		final boolean[] results = new boolean[requests.size()];
+		final boolean[] failures = new boolean[requests.size()];
+		if (requests.size() <= BATCH_CHUNK_SIZE) {
+			verifyChunk(requests, 0, requests.size(), results, failures);
+		} else {
+			// Each chunk writes a disjoint range of results, and joining
+			// the tasks makes those writes visible here.
+			List<CompletableFuture<Void>> chunks = new ArrayList<>();
+			for (int start = 0; start < requests.size(); start += BATCH_CHUNK_SIZE) {
+				final int chunkStart = start;
+				final int chunkEnd = Math.min(requests.size(), start + BATCH_CHUNK_SIZE);
+				chunks.add(CompletableFuture.runAsync(() -> verifyChunk(requests, chunkStart, chunkEnd, results, failures), executor));
+			}
+			chunks.forEach(CompletableFuture::join);
+		}
+
+		BitSet verified = new BitSet(results.length);
+		for (int i = 0; i < results.length; ++i) {
+			if (results[i]) {
+				verified.set(i);
+			}
+			if (failures[i]) {
+				invalid.set(i);
+			}
+		}
+		return verified;
+	}
+
+	private void verifyChunk(List<VerifyRequest> requests, int start, int end, boolean[] results, boolean[] failures) {
+		// One signer per chunk, reinitialised for each request
 		ECDSASigner verifier = new ECDSASigner();
-		verifier.init(false, new ECPublicKeyParameters(spec.getCurve().decodePoint(publicKey), domain));
+		for (int i = start; i < end; ++i) {
+			VerifyRequest request = requests.get(i);
+			if (request.getSignature() != null) {
+				try {
+					results[i] = verify(verifier, request.getHash(), request.getSignature(), request.getPublicKey().getPublicPoint());
+				} catch (RuntimeException e) {
+					// Invalid keys or signatures are simply not verified
+					failures[i] = true;
+				}
+			}
+		}
+	}
+
+	private boolean verify(ECDSASigner verifier, byte[] hash, ECSignature signature, ECPoint publicPoint) {
+		verifier.init(false, new ECPublicKeyParameters(publicPoint, domain));
 		return verifier.verifySignature(hash, signature.getR(), signature.getS());
 	}
 
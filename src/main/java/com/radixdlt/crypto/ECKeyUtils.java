@@ -36,9 +36,12 @@ import org.bouncycastle.crypto.params.ECDomainParameters;
 import org.bouncycastle.crypto.params.KeyParameter;
 import org.bouncycastle.crypto.params.ParametersWithIV;
 import org.bouncycastle.jce.spec.ECParameterSpec;
+import org.bouncycastle.math.ec.ECPoint;
 import org.bouncycastle.math.ec.FixedPointUtil;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.primitives.UnsignedBytes;
 import com.radixdlt.utils.Bytes;
 
@@ -72,6 +75,24 @@ class ECKeyUtils {
 	// Must be after secureRandom init
 	static final KeyHandler keyHandler = new BouncyCastleKeyHandler(secureRandom, curve);
 
+	// Decoded points for recently used public keys.  Multiplication tables
+	// precomputed during verification are retained on the points, so sharing
+	// points between ECPublicKey instances keeps those tables for hot keys.
+	private static final int MAX_CACHED_POINTS = 1024;
+	private static final Cache<ECPublicKey, ECPoint> publicPoints = CacheBuilder.newBuilder()
+		.maximumSize(MAX_CACHED_POINTS)
+		.build();
+
+	static ECPoint publicPoint(ECPublicKey publicKey) {
+		ECPoint point = publicPoints.getIfPresent(publicKey);
+		if (point == null) {
+			// Benign race here, worst case is that the point is decoded more than once
+			point = spec.getCurve().decodePoint(publicKey.getBytes()).normalize();
+			publicPoints.put(publicKey, point);
+		}
+		return point;
+	}
+
 	static byte[] calculateMAC(byte[] salt, byte[] iv, ECPublicKey ephemeral, byte[] encrypted) throws IOException {
 		byte[] ephemeralPubKey = ephemeral.getBytes();
 		int bytesLen = iv.length + encrypted.length + ephemeralPubKey.length;
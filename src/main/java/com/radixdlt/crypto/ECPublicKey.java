@@ -27,6 +27,9 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.math.BigInteger;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.function.Supplier;
 import org.bouncycastle.math.ec.ECPoint;
 
@@ -40,6 +43,7 @@ public final class ECPublicKey {
 	private final byte[] publicKey;
 
 	private final Supplier<EUID> uid = Suppliers.memoize(this::computeUID);
+	private final Supplier<ECPoint> publicPoint = Suppliers.memoize(() -> ECKeyUtils.publicPoint(this));
 
 	@JsonCreator
 	private static ECPublicKey fromPublicKey(byte[] key) throws CryptoException {
@@ -89,8 +93,12 @@ public final class ECPublicKey {
 		return this.publicKey;
 	}
 
+	/**
+	 * Returns the decoded and normalized point for this public key.
+	 * Note that once called, the result of this operation is cached.
+	 */
 	ECPoint getPublicPoint() {
-		return ECKeyUtils.spec.getCurve().decodePoint(this.publicKey);
+		return this.publicPoint.get();
 	}
 
 	public boolean verify(Hash hash, ECSignature signature) {
@@ -103,12 +111,38 @@ public final class ECPublicKey {
 		}
 
 		try {
-			return ECKeyUtils.keyHandler.verify(hash, signature, this.publicKey);
+			return SignatureVerificationCache.getDefault().verify(ECKeyUtils.keyHandler, hash, signature, this);
 		} catch (CryptoException e) {
 			return false;
 		}
 	}
 
+	/**
+	 * Verify many signatures at once, for example a burst of incoming atoms.
+	 * Uncached requests are verified on the calling thread.
+	 *
+	 * @param requests The requests to verify
+	 * @return A {@link BitSet} where bit {@code i} is set if and only if
+	 * 	the signature of request {@code i} could be successfully validated
+	 */
+	public static BitSet verifyBatch(List<VerifyRequest> requests) {
+		return verifyBatch(requests, Runnable::run);
+	}
+
+	/**
+	 * Verify many signatures at once, for example a burst of incoming atoms.
+	 * Large batches of uncached requests are split into chunks, which are
+	 * verified concurrently on the specified executor.
+	 *
+	 * @param requests The requests to verify
+	 * @param executor The executor to verify uncached requests on
+	 * @return A {@link BitSet} where bit {@code i} is set if and only if
+	 * 	the signature of request {@code i} could be successfully validated
+	 */
+	public static BitSet verifyBatch(List<VerifyRequest> requests, Executor executor) {
+		return SignatureVerificationCache.getDefault().verifyBatch(ECKeyUtils.keyHandler, requests, executor);
+	}
+
 	public byte[] encrypt(byte[] data) throws CryptoException {
         byte[] iv = new byte[16];
         ECKeyUtils.secureRandom.nextBytes(iv);
@@ -20,15 +20,26 @@ package com.radixdlt.crypto;
 import com.google.common.primitives.UnsignedBytes;
 import com.radixdlt.common.EUID;
 import com.radixdlt.utils.Bytes;
+import java.nio.ByteBuffer;
 import java.security.SecureRandom;
 import java.util.Arrays;
 import java.util.Comparator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public final class Hash implements Comparable<Hash> {
+	private static final Logger log = LoggerFactory.getLogger(Hash.class);
 
 	private static final Comparator<byte[]> COMPARATOR = UnsignedBytes.lexicographicalComparator();
 	private static final SecureRandom secureRandom = new SecureRandom();
-	private static HashHandler hasher = new SHAHashHandler();
+	/**
+	 * System property naming the security provider to use for hashing,
+	 * for example "SUN" or "BC". If not set, or the provider is not installed,
+	 * the highest priority provider for each algorithm is used.
+	 */
+	public static final String HASH_PROVIDER_PROPERTY = "com.radixdlt.crypto.hashProvider";
+
+	private static HashHandler hasher = createHashHandler(System.getProperty(HASH_PROVIDER_PROPERTY));
 
 	public static final int BYTES = 32;
     public static final int BITS = BYTES * Byte.SIZE;
@@ -50,6 +61,10 @@ public final class Hash implements Comparable<Hash> {
 		return hasher.hash256(data, offset, length);
 	}
 
+	public static void hash256(byte[] data, int offset, int length, byte[] output, int outputOffset) {
+		hasher.hash256(data, offset, length, output, outputOffset);
+	}
+
 	public static byte[] hash512(byte[] data) {
 		return hasher.hash512(data, 0, data.length);
 	}
@@ -62,6 +77,22 @@ public final class Hash implements Comparable<Hash> {
 		return hasher.hash256(data0, data1);
 	}
 
+	public static byte[] hash256(ByteBuffer... buffers) {
+		return hasher.hash256(buffers);
+	}
+
+	// A misconfigured provider must not leave this class unusable, so fall back to the default
+	static HashHandler createHashHandler(String provider) {
+		if (provider != null) {
+			try {
+				return new SHAHashHandler(provider);
+			} catch (IllegalArgumentException e) {
+				log.warn("Hash provider {} is not available, using default provider", provider, e);
+			}
+		}
+		return new SHAHashHandler();
+	}
+
 	private final byte[] 	data;
 	private EUID			id;
 
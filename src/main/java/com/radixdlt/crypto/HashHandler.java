@@ -17,6 +17,8 @@
 
 package com.radixdlt.crypto;
 
+import java.nio.ByteBuffer;
+
 /**
  * Interface for abstract 256-bit and 512-bit cryptographic hash functions.
  * <p>
@@ -45,6 +47,19 @@ interface HashHandler {
 	 */
 	byte[] hash256(byte[] data, int offset, int length);
 
+	/**
+	 * Hashes the specified portion of the array, writing the cryptographically
+	 * secure 256-bit hash into the output array rather than allocating a new one.
+	 *
+	 * @param data The data to hash
+	 * @param offset The offset within the array to start hashing data
+	 * @param length The number of bytes in the array to hash
+	 * @param output The array to write the hash into
+	 * @param outputOffset The offset within {@code output} to write the 32-byte hash
+	 * @throws IllegalArgumentException if {@code output} does not have space for the hash
+	 */
+	void hash256(byte[] data, int offset, int length, byte[] output, int outputOffset);
+
 	/**
 	 * Hashes the supplied arrays, returning a cryptographically secure 256-bit hash.
 	 * The hash is calculated as if the arrays were concatenated into a single array.
@@ -55,6 +70,18 @@ interface HashHandler {
 	 */
 	byte[] hash256(byte[] data0, byte[] data1);
 
+	/**
+	 * Hashes the remaining bytes of the supplied buffers, returning a cryptographically
+	 * secure 256-bit hash. The hash is calculated as if the remaining bytes of the
+	 * buffers were concatenated into a single array.
+	 * <p>
+	 * Note that the position of each buffer is advanced to its limit.
+	 *
+	 * @param buffers The data to hash
+	 * @return The 256-bit/32-byte hash
+	 */
+	byte[] hash256(ByteBuffer... buffers);
+
 	/**
 	 * Hashes the specified portion of the array, returning a cryptographically secure 512-bit hash.
 	 *
@@ -17,6 +17,11 @@
 
 package com.radixdlt.crypto;
 
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Executor;
+import org.bouncycastle.math.ec.ECPoint;
+
 /**
  * Interface for signature and public key computation functions.
  * <p>
@@ -48,6 +53,36 @@ interface KeyHandler {
 	 */
 	boolean verify(byte[] hash, ECSignature signature, byte[] publicKey) throws CryptoException;
 
+	/**
+	 * Verify the specified signature against the specified hash with the
+	 * specified decoded public key point.
+	 * <p>
+	 * Implementations may retain precomputed data on the point, so callers
+	 * verifying repeatedly with the same key should reuse the same point.
+	 *
+	 * @param hash The hash to verify against
+	 * @param signature The signature to verify
+	 * @param publicPoint The normalized public key point to verify the signature with
+	 * @return An boolean indicating whether the signature could be successfully validated
+	 * @throws CryptoException if the {@code publicPoint} or {@code signature} is invalid
+	 */
+	boolean verify(byte[] hash, ECSignature signature, ECPoint publicPoint) throws CryptoException;
+
+	/**
+	 * Verify each of the specified requests.
+	 * <p>
+	 * Unlike the single signature methods, requests with an invalid public key
+	 * or signature do not raise an exception, they are simply not verified,
+	 * and their bit is set in {@code invalid}.
+	 *
+	 * @param requests The requests to verify
+	 * @param executor The executor to verify the requests on
+	 * @param invalid Bits are set here for requests whose public key or signature is invalid
+	 * @return A {@link BitSet} where bit {@code i} is set if and only if
+	 * 	the signature of request {@code i} could be successfully validated
+	 */
+	BitSet verifyBatch(List<VerifyRequest> requests, Executor executor, BitSet invalid);
+
 	/**
 	 * Compute a public key for the specified private key.
 	 *
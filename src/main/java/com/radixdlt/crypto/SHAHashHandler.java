@@ -17,23 +17,54 @@
 
 package com.radixdlt.crypto;
 
+import java.nio.ByteBuffer;
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.security.NoSuchProviderException;
 
 class SHAHashHandler implements HashHandler {
 	// Note that default provide around 20-25% faster than Bouncy Castle.
-	// See jmh/org.radix.benchmark.HashBenchmark
-	private final ThreadLocal<MessageDigest> hash256DigesterInner = ThreadLocal.withInitial(() -> getDigester("SHA-256"));
-	private final ThreadLocal<MessageDigest> hash256DigesterOuter = ThreadLocal.withInitial(() -> getDigester("SHA-256"));
-	private final ThreadLocal<MessageDigest> hash512Digester = ThreadLocal.withInitial(() -> getDigester("SHA-512"));
+	// See HashBenchmark in the jmh source set.
+	// The default SUN provider also uses the SHA intrinsics on CPUs that
+	// support them (see -XX:+UseSHA256Intrinsics and -XX:+UseSHA512Intrinsics).
+	private final String provider;
+	private final ThreadLocal<Digesters> digesters = ThreadLocal.withInitial(this::createDigesters);
+
+	/**
+	 * Digesters and scratch space confined to a single thread, reset on each use.
+	 */
+	private static final class Digesters {
+		private final MessageDigest hash256Inner;
+		private final MessageDigest hash256Outer;
+		private final MessageDigest hash512;
+		private final byte[] scratch = new byte[64];
+
+		private Digesters(MessageDigest hash256Inner, MessageDigest hash256Outer, MessageDigest hash512) {
+			this.hash256Inner = hash256Inner;
+			this.hash256Outer = hash256Outer;
+			this.hash512 = hash512;
+		}
+	}
 
 	SHAHashHandler() {
+		this(null);
+	}
+
+	/**
+	 * Creates a hash handler using the specified security provider.
+	 *
+	 * @param provider The name of the security provider to use, or {@code null}
+	 * 	to use the highest priority provider for each algorithm
+	 */
+	SHAHashHandler(String provider) {
+		this.provider = provider;
+		// Fail early for unknown providers
+		createDigesters();
 	}
 
 	void reset() {
-		hash256DigesterInner.remove();
-		hash256DigesterOuter.remove();
-		hash512Digester.remove();
+		digesters.remove();
 	}
 
 	@Override
@@ -43,40 +74,87 @@ class SHAHashHandler implements HashHandler {
 
 	@Override
 	public byte[] hash256(byte[] data, int offset, int length) {
-		// Here we use SHA-256(SHA-512(data)) to avoid length-extension attack
-		final MessageDigest hash256DigesterOuterLocal = hash256DigesterOuter.get();
-		final MessageDigest hash256DigesterInnerLocal = hash256DigesterInner.get();
-		hash256DigesterOuterLocal.reset();
-		hash256DigesterInnerLocal.reset();
-		hash256DigesterInnerLocal.update(data, offset, length);
-		return hash256DigesterOuterLocal.digest(hash256DigesterInnerLocal.digest());
+		// Here we use SHA-256(SHA-256(data)) to avoid length-extension attack
+		final Digesters local = digesters.get();
+		local.hash256Inner.reset();
+		local.hash256Inner.update(data, offset, length);
+		return hash256Outer(local);
+	}
+
+	@Override
+	public void hash256(byte[] data, int offset, int length, byte[] output, int outputOffset) {
+		// Here we use SHA-256(SHA-256(data)) to avoid length-extension attack
+		final Digesters local = digesters.get();
+		local.hash256Inner.reset();
+		local.hash256Inner.update(data, offset, length);
+		final int innerLength = digestInto(local.hash256Inner, local.scratch);
+		local.hash256Outer.reset();
+		local.hash256Outer.update(local.scratch, 0, innerLength);
+		try {
+			local.hash256Outer.digest(output, outputOffset, output.length - outputOffset);
+		} catch (DigestException e) {
+			throw new IllegalArgumentException("Output does not have space for hash at offset " + outputOffset, e);
+		}
 	}
 
 	@Override
 	public byte[] hash256(byte[] data0, byte[] data1) {
-		// Here we use SHA-256(SHA-512(data0 || data1)) to avoid length-extension attack
-		final MessageDigest hash256DigesterInnerLocal = hash256DigesterInner.get();
-		final MessageDigest hash256DigesterOuterLocal = hash256DigesterOuter.get();
-		hash256DigesterInnerLocal.reset();
-		hash256DigesterOuterLocal.reset();
-		hash256DigesterInnerLocal.update(data0);
-		return hash256DigesterOuterLocal.digest(hash256DigesterInnerLocal.digest(data1));
+		// Here we use SHA-256(SHA-256(data0 || data1)) to avoid length-extension attack
+		final Digesters local = digesters.get();
+		local.hash256Inner.reset();
+		local.hash256Inner.update(data0);
+		local.hash256Inner.update(data1);
+		return hash256Outer(local);
+	}
+
+	@Override
+	public byte[] hash256(ByteBuffer... buffers) {
+		// Here we use SHA-256(SHA-256(buffers...)) to avoid length-extension attack
+		final Digesters local = digesters.get();
+		local.hash256Inner.reset();
+		for (ByteBuffer buffer : buffers) {
+			local.hash256Inner.update(buffer);
+		}
+		return hash256Outer(local);
 	}
 
 	@Override
 	public byte[] hash512(byte[] data, int offset, int length) {
-		// Here we use SHA-512(SHA-512(data0 || data1)) to avoid length-extension attack
-		final MessageDigest hash512DigesterLocal = hash512Digester.get();
-		hash512DigesterLocal.reset();
-		hash512DigesterLocal.update(data, offset, length);
-		return hash512DigesterLocal.digest(hash512DigesterLocal.digest());
+		// Here we use SHA-512(SHA-512(data)) to avoid length-extension attack
+		final Digesters local = digesters.get();
+		local.hash512.reset();
+		local.hash512.update(data, offset, length);
+		final int innerLength = digestInto(local.hash512, local.scratch);
+		local.hash512.update(local.scratch, 0, innerLength);
+		return local.hash512.digest();
+	}
+
+	private static byte[] hash256Outer(Digesters local) {
+		final int innerLength = digestInto(local.hash256Inner, local.scratch);
+		local.hash256Outer.reset();
+		local.hash256Outer.update(local.scratch, 0, innerLength);
+		return local.hash256Outer.digest();
+	}
+
+	private static int digestInto(MessageDigest digester, byte[] scratch) {
+		try {
+			return digester.digest(scratch, 0, scratch.length);
+		} catch (DigestException e) {
+			throw new IllegalStateException("Digest does not fit in scratch buffer: " + digester.getAlgorithm(), e);
+		}
+	}
+
+	private Digesters createDigesters() {
+		return new Digesters(getDigester("SHA-256"), getDigester("SHA-256"), getDigester("SHA-512"));
 	}
 
-	private static MessageDigest getDigester(String algorithm) {
+	private MessageDigest getDigester(String algorithm) {
 		try {
-			return  MessageDigest.getInstance(algorithm);
+			return provider == null ? MessageDigest.getInstance(algorithm) : MessageDigest.getInstance(algorithm, provider);
 		} catch (NoSuchAlgorithmException e) {
 			throw new IllegalArgumentException("No such algorithm: " + algorithm, e);
+		} catch (NoSuchProviderException e) {
+			throw new IllegalArgumentException("No such provider: " + provider, e);
 		}
 	}
 }
@@ -0,0 +1,184 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.crypto;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.radixdlt.utils.Ints;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * A bounded, process-wide cache of signature verification results.
+ * <p>
+ * Verifying an ECDSA signature is the most expensive operation performed
+ * for each atom, and the same signature is frequently verified again, for
+ * example when an atom is resubmitted or received again from a peer.
+ * Results are keyed by a digest of the hash, public key and signature, so
+ * a cached result is only ever returned for exactly the same inputs.
+ * <p>
+ * Note that all methods are thread safe.
+ */
+public final class SignatureVerificationCache {
+	private static final long DEFAULT_MAXIMUM_SIZE = 1L << 15;
+
+	private static final SignatureVerificationCache defaultInstance = new SignatureVerificationCache(DEFAULT_MAXIMUM_SIZE);
+
+	/**
+	 * Returns the process-wide cache used by {@link ECPublicKey#verify(byte[], ECSignature)}.
+	 *
+	 * @return The process-wide cache
+	 */
+	public static SignatureVerificationCache getDefault() {
+		return defaultInstance;
+	}
+
+	private final Cache<Hash, Boolean> cache;
+
+	SignatureVerificationCache(long maximumSize) {
+		this.cache = CacheBuilder.newBuilder()
+			.maximumSize(maximumSize)
+			.recordStats()
+			.build();
+	}
+
+	/**
+	 * Verify the specified signature, using a cached result if one is present.
+	 *
+	 * @param keyHandler The key handler to verify the signature with if no result is cached
+	 * @param hash The hash to verify against
+	 * @param signature The signature to verify
+	 * @param publicKey The public key to verify the signature with
+	 * @return An boolean indicating whether the signature could be successfully validated
+	 * @throws CryptoException if the {@code publicKey} or {@code signature} is invalid
+	 */
+	boolean verify(KeyHandler keyHandler, byte[] hash, ECSignature signature, ECPublicKey publicKey) throws CryptoException {
+		Hash key = cacheKey(hash, signature, publicKey.getBytes());
+		Boolean cached = this.cache.getIfPresent(key);
+		if (cached != null) {
+			return cached;
+		}
+		// Inputs that raise exceptions are not cached
+		boolean verified = keyHandler.verify(hash, signature, publicKey.getPublicPoint());
+		this.cache.put(key, verified);
+		return verified;
+	}
+
+	/**
+	 * Verify the specified requests, using cached results where present, and
+	 * verifying the remainder as a single batch.
+	 *
+	 * @param keyHandler The key handler to verify the uncached requests with
+	 * @param requests The requests to verify
+	 * @param executor The executor to verify the uncached requests on
+	 * @return A {@link BitSet} where bit {@code i} is set if and only if
+	 * 	the signature of request {@code i} could be successfully validated
+	 */
+	BitSet verifyBatch(KeyHandler keyHandler, List<VerifyRequest> requests, Executor executor) {
+		BitSet verified = new BitSet(requests.size());
+		List<VerifyRequest> uncached = new ArrayList<>();
+		List<Integer> uncachedIndices = new ArrayList<>();
+		List<Hash> uncachedKeys = new ArrayList<>();
+		for (int i = 0; i < requests.size(); ++i) {
+			VerifyRequest request = requests.get(i);
+			if (request.getSignature() == null) {
+				continue;
+			}
+			Hash key = cacheKey(request.getHash(), request.getSignature(), request.getPublicKey().getBytes());
+			Boolean cached = this.cache.getIfPresent(key);
+			if (cached != null) {
+				verified.set(i, cached);
+			} else {
+				uncached.add(request);
+				uncachedIndices.add(i);
+				uncachedKeys.add(key);
+			}
+		}
+
+		if (!uncached.isEmpty()) {
+			BitSet invalid = new BitSet(uncached.size());
+			BitSet uncachedVerified = keyHandler.verifyBatch(uncached, executor, invalid);
+			for (int i = 0; i < uncached.size(); ++i) {
+				boolean result = uncachedVerified.get(i);
+				// As for single verification, inputs that raise exceptions are not cached
+				if (!invalid.get(i)) {
+					this.cache.put(uncachedKeys.get(i), result);
+				}
+				verified.set(uncachedIndices.get(i), result);
+			}
+		}
+		return verified;
+	}
+
+	/**
+	 * Returns the number of lookups that found a cached result.
+	 */
+	public long getHitCount() {
+		return this.cache.stats().hitCount();
+	}
+
+	/**
+	 * Returns the number of lookups that did not find a cached result.
+	 */
+	public long getMissCount() {
+		return this.cache.stats().missCount();
+	}
+
+	/**
+	 * Returns the ratio of lookups that found a cached result, or {@code 1.0}
+	 * if there have been no lookups.
+	 */
+	public double getHitRate() {
+		return this.cache.stats().hitRate();
+	}
+
+	/**
+	 * Returns the approximate number of cached results.
+	 */
+	public long size() {
+		return this.cache.size();
+	}
+
+	/**
+	 * Discard all cached results.
+	 */
+	public void clear() {
+		this.cache.invalidateAll();
+	}
+
+	private static Hash cacheKey(byte[] hash, ECSignature signature, byte[] publicKey) {
+		// Each component is length prefixed so that the encoding is unambiguous
+		byte[] r = signature.getR().toByteArray();
+		byte[] s = signature.getS().toByteArray();
+		byte[] data = new byte[Integer.BYTES * 4 + hash.length + publicKey.length + r.length + s.length];
+		int offset = 0;
+		offset = append(data, offset, hash);
+		offset = append(data, offset, publicKey);
+		offset = append(data, offset, r);
+		append(data, offset, s);
+		return new Hash(Hash.hash256(data));
+	}
+
+	private static int append(byte[] data, int offset, byte[] component) {
+		Ints.copyTo(component.length, data, offset);
+		System.arraycopy(component, 0, data, offset + Integer.BYTES, component.length);
+		return offset + Integer.BYTES + component.length;
+	}
+}
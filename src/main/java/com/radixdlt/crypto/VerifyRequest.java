@@ -0,0 +1,61 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.crypto;
+
+import java.util.Objects;
+
+/**
+ * A request to verify a signature against a hash with a public key,
+ * for use with batch verification.
+ */
+public final class VerifyRequest {
+	private final byte[] hash;
+	private final ECSignature signature;
+	private final ECPublicKey publicKey;
+
+	public VerifyRequest(Hash hash, ECSignature signature, ECPublicKey publicKey) {
+		this(hash.toByteArray(), signature, publicKey);
+	}
+
+	public VerifyRequest(byte[] hash, ECSignature signature, ECPublicKey publicKey) {
+		this.hash = Objects.requireNonNull(hash);
+		this.signature = signature;
+		this.publicKey = Objects.requireNonNull(publicKey);
+	}
+
+	public byte[] getHash() {
+		return hash;
+	}
+
+	/**
+	 * Returns the signature to verify, or {@code null} if there is none,
+	 * in which case verification fails.
+	 */
+	public ECSignature getSignature() {
+		return signature;
+	}
+
+	public ECPublicKey getPublicKey() {
+		return publicKey;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s[%s, %s]", getClass().getSimpleName(), publicKey, signature);
+	}
+}
@@ -0,0 +1,240 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+
+package com.radixdlt.engine;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.radixdlt.common.AID;
+import com.radixdlt.common.Atom;
+import com.radixdlt.constraintmachine.CMError;
+import com.radixdlt.constraintmachine.DataPointer;
+import com.radixdlt.constraintmachine.Particle;
+import com.radixdlt.metrics.LatencyHistogram;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An {@link AtomEventListener} which delivers events to another listener on
+ * its own thread, through a bounded queue.
+ * <p>
+ * The Radix Engine calls listeners inline, on the commit thread or on the
+ * thread calling {@link RadixEngine#store(Atom, AtomEventListener)}, so a
+ * slow listener stalls every commit. Wrapping the listener in an instance of
+ * this class isolates the engine from it: events are only queued by the
+ * calling thread. Events are delivered to the wrapped listener in the order
+ * they were received.
+ * <p>
+ * When the queue is full, events are either dropped or the calling thread
+ * waits for space, depending on the {@link OverflowPolicy}.
+ */
+public final class AsyncAtomEventListener implements AtomEventListener {
+	private static final Logger log = LoggerFactory.getLogger(AsyncAtomEventListener.class);
+
+	/**
+	 * What to do with an event when the queue of a listener is full.
+	 */
+	public enum OverflowPolicy {
+		/**
+		 * Discard the event and count it. The engine is never slowed down, but the listener misses events.
+		 */
+		DROP,
+		/**
+		 * Wait for space in the queue. The listener sees every event, but can slow down the engine.
+		 */
+		BLOCK
+	}
+
+	/**
+	 * Builder for {@link AsyncAtomEventListener} instances.
+	 */
+	public static final class Builder {
+		private final AtomEventListener delegate;
+		private int capacity = 1024;
+		private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+		private String name;
+
+		private Builder(AtomEventListener delegate) {
+			this.delegate = Objects.requireNonNull(delegate);
+			final String simpleName = delegate.getClass().getSimpleName();
+			this.name = simpleName.isEmpty() ? delegate.getClass().getName() : simpleName;
+		}
+
+		/**
+		 * Sets the maximum number of events queued for the listener.
+		 */
+		public Builder setCapacity(int capacity) {
+			if (capacity < 1) {
+				throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+			}
+			this.capacity = capacity;
+			return this;
+		}
+
+		public Builder setOverflowPolicy(OverflowPolicy overflowPolicy) {
+			this.overflowPolicy = Objects.requireNonNull(overflowPolicy);
+			return this;
+		}
+
+		/**
+		 * Sets the name used for the dispatch thread and in log messages.
+		 */
+		public Builder setName(String name) {
+			this.name = Objects.requireNonNull(name);
+			return this;
+		}
+
+		public AsyncAtomEventListener build() {
+			return new AsyncAtomEventListener(this.delegate, this.capacity, this.overflowPolicy, this.name);
+		}
+	}
+
+	private final AtomEventListener delegate;
+	private final OverflowPolicy overflowPolicy;
+	private final String name;
+	private final BlockingQueue<Runnable> queue;
+	private final ThreadPoolExecutor executor;
+
+	private final LatencyHistogram lag = new LatencyHistogram();
+	private final LongAdder dropped = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+
+	private AsyncAtomEventListener(AtomEventListener delegate, int capacity, OverflowPolicy overflowPolicy, String name) {
+		this.delegate = delegate;
+		this.overflowPolicy = overflowPolicy;
+		this.name = name;
+		this.queue = new ArrayBlockingQueue<>(capacity);
+		this.executor = new ThreadPoolExecutor(
+			1, 1,
+			0L, TimeUnit.MILLISECONDS,
+			this.queue,
+			new ThreadFactoryBuilder().setDaemon(true).setNameFormat("Atom Event Listener " + name).build(),
+			this::rejected
+		);
+	}
+
+	/**
+	 * Creates a builder for a listener delivering events to the specified listener.
+	 */
+	public static Builder builder(AtomEventListener delegate) {
+		return new Builder(delegate);
+	}
+
+	@Override
+	public void onCMSuccess(Atom atom) {
+		dispatch(() -> this.delegate.onCMSuccess(atom));
+	}
+
+	@Override
+	public void onCMError(Atom atom, CMError error) {
+		dispatch(() -> this.delegate.onCMError(atom, error));
+	}
+
+	@Override
+	public void onStateStore(Atom atom) {
+		dispatch(() -> this.delegate.onStateStore(atom));
+	}
+
+	@Override
+	public void onVirtualStateConflict(Atom atom, DataPointer issueParticle) {
+		dispatch(() -> this.delegate.onVirtualStateConflict(atom, issueParticle));
+	}
+
+	@Override
+	public void onStateConflict(Atom atom, DataPointer issueParticle, Atom conflictingAtom) {
+		dispatch(() -> this.delegate.onStateConflict(atom, issueParticle, conflictingAtom));
+	}
+
+	@Override
+	public void onStateMissingDependency(AID atomId, Particle particle) {
+		dispatch(() -> this.delegate.onStateMissingDependency(atomId, particle));
+	}
+
+	/**
+	 * Returns the time events spent queued before being delivered.
+	 */
+	public LatencyHistogram getLag() {
+		return this.lag;
+	}
+
+	/**
+	 * Returns the number of events waiting to be delivered.
+	 */
+	public int getQueueDepth() {
+		return this.queue.size();
+	}
+
+	/**
+	 * Returns the number of events discarded because the queue was full or the listener was shut down.
+	 */
+	public long getDroppedCount() {
+		return this.dropped.sum();
+	}
+
+	/**
+	 * Returns the number of events for which the wrapped listener threw an exception.
+	 */
+	public long getFailedCount() {
+		return this.failed.sum();
+	}
+
+	/**
+	 * Stops delivering events. Events already queued are still delivered,
+	 * and events received afterwards are dropped.
+	 *
+	 * @param timeout The maximum time to wait for queued events to be delivered
+	 * @param unit The unit of {@code timeout}
+	 * @return {@code true} if all queued events were delivered, {@code false} otherwise
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public boolean shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+		this.executor.shutdown();
+		return this.executor.awaitTermination(timeout, unit);
+	}
+
+	private void dispatch(Runnable event) {
+		final long queuedNanos = System.nanoTime();
+		this.executor.execute(() -> {
+			this.lag.record(System.nanoTime() - queuedNanos);
+			try {
+				event.run();
+			} catch (RuntimeException e) {
+				this.failed.increment();
+				log.error("Atom event listener {} failed", this.name, e);
+			}
+		});
+	}
+
+	private void rejected(Runnable event, ThreadPoolExecutor executor) {
+		if (this.overflowPolicy == OverflowPolicy.BLOCK && !executor.isShutdown()) {
+			try {
+				this.queue.put(event);
+				return;
+			} catch (InterruptedException e) {
+				// Drop the event, but leave the interrupt for the engine to handle
+				Thread.currentThread().interrupt();
+			}
+		}
+		this.dropped.increment();
+	}
+}
@@ -44,4 +44,12 @@ public interface AtomEventListener {
 
 	default void onStateMissingDependency(AID atomId, Particle particle) {
 	}
+
+	/**
+	 * Called after {@link #onCMSuccess(Atom)} when speculative state checks are
+	 * enabled and the atom is predicted not to be committed. The atom is still
+	 * queued, and the actual outcome is reported later.
+	 */
+	default void onSpeculativeStateConflict(Atom atom, DataPointer issueParticle) {
+	}
 }
@@ -0,0 +1,143 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+
+package com.radixdlt.engine;
+
+import com.radixdlt.common.Atom;
+import com.radixdlt.constraintmachine.DataPointer;
+import com.radixdlt.constraintmachine.Spin;
+import com.radixdlt.crypto.Hash;
+import com.radixdlt.middleware.ParticleGroup;
+import com.radixdlt.middleware.SpunParticle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A table of the particles being spun down by atoms which have been submitted
+ * to a {@link RadixEngine}, but not yet committed or rejected.
+ * <p>
+ * Two atoms spending the same particle can both pass validation and wait in
+ * the commit queue, only for the second to be rejected when it reaches the
+ * commit thread. Checking the {@link Spin#DOWN} particles of each atom against
+ * this table on submission lets the engine reject the second atom straight
+ * away, without paying for its validation and signature checks.
+ * <p>
+ * Particles are only reserved once an atom has passed validation, so that
+ * invalid atoms cannot block the particles they spend.  Two valid atoms
+ * spending the same particle may therefore both pass the initial check, in
+ * which case the second is rejected when it tries to reserve the particle.
+ * Rejections are reported with {@link com.radixdlt.constraintmachine.CMErrorCode#IN_FLIGHT_CONFLICT}.
+ * <p>
+ * Note that all methods are thread safe.
+ */
+public final class ParticleReservations {
+	/**
+	 * The {@link Spin#DOWN} particles of a single atom. Reservations are
+	 * compared by identity, so that a resubmitted atom does not share
+	 * reservations with an earlier copy of itself.
+	 */
+	static final class Reservation {
+		private final List<Hash> particleHashes = new ArrayList<>();
+		private final List<DataPointer> dataPointers = new ArrayList<>();
+
+		Reservation(Atom atom) {
+			final List<ParticleGroup> particleGroups = atom.getParticleGroups();
+			for (int groupIndex = 0; groupIndex < particleGroups.size(); ++groupIndex) {
+				final List<SpunParticle> particles = particleGroups.get(groupIndex).getParticles();
+				for (int particleIndex = 0; particleIndex < particles.size(); ++particleIndex) {
+					final SpunParticle spunParticle = particles.get(particleIndex);
+					if (spunParticle.getSpin() == Spin.DOWN) {
+						this.particleHashes.add(spunParticle.getParticle().getHash());
+						this.dataPointers.add(DataPointer.ofParticle(groupIndex, particleIndex));
+					}
+				}
+			}
+		}
+	}
+
+	private final ConcurrentMap<Hash, Reservation> reserved = new ConcurrentHashMap<>();
+	private final LongAdder rejected = new LongAdder();
+
+	/**
+	 * Checks whether any particle of the specified reservation is reserved by
+	 * another atom, without reserving anything.
+	 *
+	 * @return {@code null} if no particle is reserved by another atom, otherwise
+	 * 		a pointer to the first particle reserved by another atom
+	 */
+	DataPointer check(Reservation reservation) {
+		for (int i = 0; i < reservation.particleHashes.size(); ++i) {
+			final Reservation existing = this.reserved.get(reservation.particleHashes.get(i));
+			if (existing != null && existing != reservation) {
+				this.rejected.increment();
+				return reservation.dataPointers.get(i);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Reserves all particles of the specified reservation, or none of them if
+	 * any particle is already reserved by another atom.
+	 *
+	 * @return {@code null} if the particles were reserved, otherwise a pointer
+	 * 		to the first particle reserved by another atom
+	 */
+	DataPointer reserve(Reservation reservation) {
+		for (int i = 0; i < reservation.particleHashes.size(); ++i) {
+			final Reservation existing = this.reserved.putIfAbsent(reservation.particleHashes.get(i), reservation);
+			if (existing != null && existing != reservation) {
+				release(reservation, i);
+				this.rejected.increment();
+				return reservation.dataPointers.get(i);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Releases all particles reserved by the specified reservation.
+	 * Particles reserved by other reservations are left untouched.
+	 */
+	void release(Reservation reservation) {
+		release(reservation, reservation.particleHashes.size());
+	}
+
+	private void release(Reservation reservation, int count) {
+		for (int i = 0; i < count; ++i) {
+			this.reserved.remove(reservation.particleHashes.get(i), reservation);
+		}
+	}
+
+	/**
+	 * Returns the number of particles currently reserved.
+	 */
+	public int getReservedCount() {
+		return this.reserved.size();
+	}
+
+	/**
+	 * Returns the number of atoms rejected because a particle was already reserved.
+	 */
+	public long getRejectedCount() {
+		return this.rejected.sum();
+	}
+}
@@ -0,0 +1,175 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+
+package com.radixdlt.engine;
+
+import com.google.common.collect.ImmutableList;
+import com.radixdlt.crypto.Hash;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * A bounded set of items waiting for particles to become available, keyed by
+ * the hash of the particle each is waiting for.
+ * <p>
+ * Items are evicted once they have waited longer than a fixed time to live,
+ * or, oldest first, when more than a fixed number of items are waiting.
+ * The time to live is measured from when an item first started waiting, so
+ * an item which is added again keeps its original expiry.
+ * <p>
+ * Note that all methods are thread safe.
+ *
+ * @param <T> The type of the waiting items
+ */
+final class PendingAtoms<T> {
+	private static final class Entry<T> {
+		private final T item;
+		private final Hash particleHash;
+		private final long expiresNanos;
+		private final long sequence;
+		private boolean waiting = true;
+
+		private Entry(T item, Hash particleHash, long expiresNanos, long sequence) {
+			this.item = item;
+			this.particleHash = particleHash;
+			this.expiresNanos = expiresNanos;
+			this.sequence = sequence;
+		}
+	}
+
+	// Expiry times are compared by difference, as System.nanoTime() may overflow
+	private static final Comparator<Entry<?>> EXPIRY_ORDER = (e0, e1) -> {
+		final int byExpiry = Long.signum(e0.expiresNanos - e1.expiresNanos);
+		return byExpiry != 0 ? byExpiry : Long.compare(e0.sequence, e1.sequence);
+	};
+
+	private final int capacity;
+	private final long ttlNanos;
+	private final Map<Hash, List<Entry<T>>> byParticle = new HashMap<>();
+	// Entries in the order they expire in, with ties in the order they were added.
+	// Entries which are no longer waiting are removed lazily.
+	private final PriorityQueue<Entry<T>> byAge = new PriorityQueue<>(EXPIRY_ORDER);
+	private long nextSequence = 0L;
+	private int size = 0;
+
+	PendingAtoms(int capacity, long ttlNanos) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+		}
+		if (ttlNanos < 1) {
+			throw new IllegalArgumentException("Time to live must be positive: " + ttlNanos);
+		}
+		this.capacity = capacity;
+		this.ttlNanos = ttlNanos;
+	}
+
+	/**
+	 * Adds an item waiting for the specified particle.
+	 *
+	 * @param particleHash The hash of the particle the item is waiting for
+	 * @param item The waiting item
+	 * @param sinceNanos The time the item first started waiting, from which its time to live is measured
+	 * @return The items evicted to make room, oldest first
+	 */
+	synchronized List<T> add(Hash particleHash, T item, long sinceNanos) {
+		final Entry<T> entry = new Entry<>(item, particleHash, sinceNanos + this.ttlNanos, this.nextSequence++);
+		this.byParticle.computeIfAbsent(particleHash, h -> new ArrayList<>(1)).add(entry);
+		this.byAge.add(entry);
+		this.size += 1;
+
+		List<T> evicted = ImmutableList.of();
+		while (this.size > this.capacity) {
+			if (evicted.isEmpty()) {
+				evicted = new ArrayList<>();
+			}
+			evicted.add(evictOldest());
+		}
+		return evicted;
+	}
+
+	/**
+	 * Removes all items waiting for the specified particle.
+	 *
+	 * @return The removed items, in the order they were added
+	 */
+	synchronized List<T> remove(Hash particleHash) {
+		final List<Entry<T>> entries = this.byParticle.remove(particleHash);
+		if (entries == null) {
+			return ImmutableList.of();
+		}
+		final List<T> items = new ArrayList<>(entries.size());
+		for (Entry<T> entry : entries) {
+			entry.waiting = false;
+			items.add(entry.item);
+		}
+		this.size -= entries.size();
+		return items;
+	}
+
+	/**
+	 * Removes all items which have waited longer than the time to live.
+	 *
+	 * @return The expired items, oldest first
+	 */
+	synchronized List<T> expire(long nowNanos) {
+		List<T> expired = ImmutableList.of();
+		for (Entry<T> oldest = peekOldest(); oldest != null && nowNanos - oldest.expiresNanos >= 0; oldest = peekOldest()) {
+			if (expired.isEmpty()) {
+				expired = new ArrayList<>();
+			}
+			expired.add(evictOldest());
+		}
+		return expired;
+	}
+
+	synchronized int size() {
+		return this.size;
+	}
+
+	private Entry<T> peekOldest() {
+		Entry<T> oldest = this.byAge.peek();
+		while (oldest != null && !oldest.waiting) {
+			this.byAge.poll();
+			oldest = this.byAge.peek();
+		}
+		return oldest;
+	}
+
+	private T evictOldest() {
+		final Entry<T> oldest = peekOldest();
+		this.byAge.poll();
+		oldest.waiting = false;
+		final List<Entry<T>> entries = this.byParticle.get(oldest.particleHash);
+		for (Iterator<Entry<T>> i = entries.iterator(); i.hasNext();) {
+			if (i.next() == oldest) {
+				i.remove();
+				break;
+			}
+		}
+		if (entries.isEmpty()) {
+			this.byParticle.remove(oldest.particleHash);
+		}
+		this.size -= 1;
+		return oldest.item;
+	}
+}
@@ -0,0 +1,198 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+
+package com.radixdlt.engine;
+
+import com.radixdlt.common.EUID;
+import com.radixdlt.constraintmachine.CMInstruction;
+import com.radixdlt.constraintmachine.CMMicroInstruction;
+import com.radixdlt.constraintmachine.CMMicroInstruction.CMMicroOp;
+import com.radixdlt.constraintmachine.Particle;
+import com.radixdlt.constraintmachine.Spin;
+import com.radixdlt.store.CMStore;
+import com.radixdlt.store.SpinStateMachine;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link CMStore} which combines committed state with the predicted effect of
+ * atoms which are queued, but not yet committed.
+ * <p>
+ * Each queued atom which passes a state check against the overlay is applied to
+ * it. Checking an atom against the overlay therefore predicts the result of
+ * checking it against committed state once every atom ahead of it has been
+ * committed. The prediction holds as long as nothing happens to committed state
+ * which the overlay did not predict, such as a queued atom failing. Every such
+ * event increments the {@link #getVersion() version} of the overlay, so a
+ * prediction made at a version which is still current does not need to be checked again.
+ * <p>
+ * Committed spins may be {@link #prefetch(CMInstruction) prefetched} without
+ * holding the lock on the overlay, so that reads from committed state do not
+ * serialize callers which check atoms against the overlay.
+ * <p>
+ * Note that atoms must be applied in the same order in which they are committed.
+ * All methods are thread safe.
+ */
+final class PendingStateOverlay implements CMStore {
+	private static final class Entry {
+		private final Object owner;
+		private final Spin spin;
+
+		private Entry(Object owner, Spin spin) {
+			this.owner = owner;
+			this.spin = spin;
+		}
+	}
+
+	private final CMStore committed;
+	private final Map<Particle, Entry> pending = new HashMap<>();
+	private final Map<Object, Set<Particle>> pendingByOwner = new IdentityHashMap<>();
+	private long version = 0L;
+	// Incremented whenever predicted spins are removed, after which prefetched committed spins may be stale
+	private long removals = 0L;
+
+	PendingStateOverlay(CMStore committed) {
+		this.committed = committed;
+	}
+
+	@Override
+	public boolean supports(Set<EUID> destinations) {
+		return this.committed.supports(destinations);
+	}
+
+	@Override
+	public synchronized Spin getSpin(Particle particle) {
+		final Entry entry = this.pending.get(particle);
+		return entry == null ? this.committed.getSpin(particle) : entry.spin;
+	}
+
+	/**
+	 * Returns a number which changes whenever committed state diverges from the predicted state.
+	 */
+	synchronized long getVersion() {
+		return this.version;
+	}
+
+	/**
+	 * Applies the spins pushed by the specified instruction, on behalf of the specified owner.
+	 */
+	synchronized void apply(Object owner, CMInstruction cmInstruction) {
+		final Map<Particle, Spin> spins = new LinkedHashMap<>();
+		for (CMMicroInstruction microInstruction : cmInstruction.getMicroInstructions()) {
+			if (microInstruction.isCheckSpin()) {
+				spins.put(microInstruction.getParticle(), microInstruction.getCheckSpin());
+			} else if (microInstruction.getMicroOp() == CMMicroOp.PUSH) {
+				spins.computeIfPresent(microInstruction.getParticle(), (p, spin) -> SpinStateMachine.next(spin));
+			}
+		}
+		spins.forEach((particle, spin) -> this.pending.put(particle, new Entry(owner, spin)));
+		this.pendingByOwner.put(owner, spins.keySet());
+	}
+
+	/**
+	 * Records that the atom applied by the specified owner was committed as predicted.
+	 * Called after the atom has been stored.
+	 */
+	synchronized void confirm(Object owner) {
+		remove(owner);
+	}
+
+	/**
+	 * Records that committed state has diverged from the predicted state, either
+	 * because the atom applied by the specified owner was not committed, or
+	 * because state was changed by something which was never applied.
+	 *
+	 * @param owner The owner of the atom which was not committed, or {@code null}
+	 */
+	synchronized void invalidate(Object owner) {
+		if (owner != null) {
+			remove(owner);
+		}
+		this.version += 1;
+	}
+
+	/**
+	 * Reads the committed spins of the particles checked by the specified instruction,
+	 * without holding the lock on this overlay.
+	 * <p>
+	 * The returned view combines the predicted spins with the prefetched committed spins.
+	 * A prefetched spin is only used if no predicted spins have been removed since it was
+	 * read, as it may otherwise miss an atom committed in the meantime; committed state is
+	 * read again instead. The view should be used while holding the lock on this overlay.
+	 */
+	CMStore prefetch(CMInstruction cmInstruction) {
+		final long removalsBefore = getRemovals();
+		final Map<Particle, Spin> committedSpins = new HashMap<>();
+		for (CMMicroInstruction microInstruction : cmInstruction.getMicroInstructions()) {
+			final Particle particle = microInstruction.getParticle();
+			if (microInstruction.isCheckSpin() && this.committed.supports(particle.getDestinations())) {
+				committedSpins.put(particle, this.committed.getSpin(particle));
+			}
+		}
+		return new Prefetched(removalsBefore, committedSpins);
+	}
+
+	synchronized int size() {
+		return this.pending.size();
+	}
+
+	private synchronized long getRemovals() {
+		return this.removals;
+	}
+
+	private final class Prefetched implements CMStore {
+		private final long removalsBefore;
+		private final Map<Particle, Spin> committedSpins;
+
+		private Prefetched(long removalsBefore, Map<Particle, Spin> committedSpins) {
+			this.removalsBefore = removalsBefore;
+			this.committedSpins = committedSpins;
+		}
+
+		@Override
+		public boolean supports(Set<EUID> destinations) {
+			return PendingStateOverlay.this.supports(destinations);
+		}
+
+		@Override
+		public Spin getSpin(Particle particle) {
+			synchronized (PendingStateOverlay.this) {
+				final Entry entry = pending.get(particle);
+				if (entry != null) {
+					return entry.spin;
+				}
+				final Spin committedSpin = this.removalsBefore == removals ? this.committedSpins.get(particle) : null;
+				return committedSpin == null ? committed.getSpin(particle) : committedSpin;
+			}
+		}
+	}
+
+	private void remove(Object owner) {
+		this.removals += 1;
+		final Set<Particle> particles = this.pendingByOwner.remove(owner);
+		if (particles != null) {
+			for (Particle particle : particles) {
+				// Later atoms may have spun the same particle again
+				this.pending.computeIfPresent(particle, (p, entry) -> entry.owner == owner ? null : entry);
+			}
+		}
+	}
+}
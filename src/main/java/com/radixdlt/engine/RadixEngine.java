@@ -28,12 +28,20 @@ import com.radixdlt.constraintmachine.CMError;
 import com.radixdlt.constraintmachine.CMMicroInstruction;
 import com.radixdlt.constraintmachine.CMMicroInstruction.CMMicroOp;
 import com.radixdlt.constraintmachine.ConstraintMachine;
+import com.radixdlt.engine.ParticleReservations.Reservation;
+import com.radixdlt.metrics.AtomTrace;
+import com.radixdlt.metrics.AtomTrace.Checkpoint;
+import com.radixdlt.metrics.AtomTracer;
+import com.radixdlt.metrics.EngineMetrics;
+import com.radixdlt.metrics.EngineMetrics.Outcome;
+import com.radixdlt.metrics.EngineMetrics.Stage;
 import com.radixdlt.middleware.RadixEngineUtils;
 import com.radixdlt.middleware.SimpleRadixEngineAtom;
 import com.radixdlt.store.CMStore;
 import com.radixdlt.store.CMStores;
 import com.radixdlt.store.EngineStore;
 import com.radixdlt.store.SpinStateMachine;
+import com.radixdlt.utils.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -42,6 +50,7 @@ import java.util.Optional;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.function.UnaryOperator;
 
 /**
@@ -51,23 +60,86 @@ public final class RadixEngine {
 
 	private static final Logger log = LoggerFactory.getLogger(RadixEngine.class);
 
-	private interface EngineAction {
+	// How often expired pending atoms are evicted when no actions are queued
+	private static final long PENDING_EXPIRY_INTERVAL_MILLIS = 1000L;
+
+	// Version of atoms which were queued without a speculative state check
+	private static final long NOT_SPECULATED = -1L;
+
+	private abstract static class EngineAction {
+		private final long enqueuedNanos = System.nanoTime();
 	}
 
-	private final class DeleteAtom implements EngineAction {
+	private final class DeleteAtom extends EngineAction {
 		private final Atom atom;
 		DeleteAtom(Atom atom) {
 			this.atom = atom;
 		}
 	}
 
-	private final class StoreAtom implements EngineAction {
+	private final class StoreAtom extends EngineAction {
 		private final Atom atom;
 		private final AtomEventListener listener;
-
-		StoreAtom(Atom atom, AtomEventListener listener) {
+		private final AtomTracer tracer;
+		private final AtomTrace trace;
+		private final ParticleReservations reservations;
+		private final Reservation reservation;
+		// Version of the state overlay the atom was checked against, written before the atom is queued
+		private long speculatedVersion = NOT_SPECULATED;
+		// Time the atom was first parked waiting for a missing dependency, kept when it is requeued
+		private boolean parked = false;
+		private long parkedSinceNanos;
+
+		StoreAtom(
+			Atom atom,
+			AtomEventListener listener,
+			AtomTracer tracer,
+			AtomTrace trace,
+			ParticleReservations reservations,
+			Reservation reservation
+		) {
 			this.atom = atom;
 			this.listener = listener;
+			this.tracer = tracer;
+			this.trace = trace;
+			this.reservations = reservations;
+			this.reservation = reservation;
+		}
+
+		StoreAtom requeue() {
+			final StoreAtom requeued = new StoreAtom(atom, listener, tracer, trace, reservations, reservation);
+			requeued.parked = this.parked;
+			requeued.parkedSinceNanos = this.parkedSinceNanos;
+			return requeued;
+		}
+
+		long park(long nowNanos) {
+			if (!this.parked) {
+				this.parked = true;
+				this.parkedSinceNanos = nowNanos;
+			}
+			return this.parkedSinceNanos;
+		}
+
+		boolean isSpeculated() {
+			return speculatedVersion != NOT_SPECULATED;
+		}
+	}
+
+	/**
+	 * The reason an atom cannot be committed in the current state.
+	 */
+	private static final class StateConflict {
+		private final Outcome outcome;
+		private final DataPointer dataPointer;
+		private final Particle particle;
+		private final Spin nextSpin;
+
+		StateConflict(Outcome outcome, DataPointer dataPointer, Particle particle, Spin nextSpin) {
+			this.outcome = outcome;
+			this.dataPointer = dataPointer;
+			this.particle = particle;
+			this.nextSpin = nextSpin;
 		}
 	}
 
@@ -75,9 +147,14 @@ public final class RadixEngine {
 	private final CMStore virtualizedCMStore;
 
 	private final EngineStore engineStore;
+	private final EngineMetrics metrics;
 	private final CopyOnWriteArrayList<AtomEventListener> atomEventListeners = new CopyOnWriteArrayList<>();
 	private final CopyOnWriteArrayList<CMSuccessHook> cmSuccessHooks = new CopyOnWriteArrayList<>();
 	private	final BlockingQueue<EngineAction> commitQueue = new LinkedBlockingQueue<>();
+	private volatile AtomTracer tracer = null;
+	private volatile ParticleReservations reservations = null;
+	private volatile PendingAtoms<Pair<StoreAtom, Particle>> pendingAtoms = null;
+	private volatile PendingStateOverlay stateOverlay = null;
 
 	private volatile boolean running = false;
 	private Thread stateUpdateThread = null;
@@ -87,23 +164,61 @@ public final class RadixEngine {
 		ConstraintMachine constraintMachine,
 		UnaryOperator<CMStore> virtualStoreLayer,
 		EngineStore engineStore
+	) {
+		this(constraintMachine, virtualStoreLayer, engineStore, EngineMetrics.noop());
+	}
+
+	/**
+	 * Creates an engine which reports latencies, outcomes and commit queue state
+	 * to the specified metrics. Note that validation errors and transitions are
+	 * counted by the {@link ConstraintMachine}, which needs to be configured with
+	 * the same metrics separately.
+	 */
+	public RadixEngine(
+		ConstraintMachine constraintMachine,
+		UnaryOperator<CMStore> virtualStoreLayer,
+		EngineStore engineStore,
+		EngineMetrics metrics
 	) {
 		this.constraintMachine = constraintMachine;
 		// Remove cm virtual store
 		this.virtualizedCMStore = virtualStoreLayer.apply(CMStores.empty());
 		this.engineStore = engineStore;
+		this.metrics = Objects.requireNonNull(metrics);
+		this.metrics.registerCommitQueue(this.commitQueue::size, this::getCommitQueueAge);
 	}
 
 	private void run() {
 		while (this.running) {
 			try {
-				final EngineAction action = this.commitQueue.take();
+				final PendingAtoms<Pair<StoreAtom, Particle>> pending = this.pendingAtoms;
+				final EngineAction action;
+				if (pending == null) {
+					action = this.commitQueue.take();
+				} else {
+					evictExpired(pending);
+					action = this.commitQueue.poll(PENDING_EXPIRY_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+					if (action == null) {
+						continue;
+					}
+				}
+				this.metrics.recordLatency(Stage.QUEUE_WAIT, System.nanoTime() - action.enqueuedNanos);
 				if (action instanceof StoreAtom) {
 					StoreAtom storeAtom = (StoreAtom) action;
-					stateCheckAndStore(storeAtom);
+					stamp(storeAtom.trace, Checkpoint.DEQUEUED);
+					boolean parked = false;
+					try {
+						parked = stateCheckAndStore(storeAtom);
+					} finally {
+						// Parked atoms are still in flight, and keep their reservations
+						if (!parked) {
+							release(storeAtom.reservations, storeAtom.reservation);
+						}
+					}
 				} else if (action instanceof DeleteAtom) {
 					DeleteAtom deleteAtom = (DeleteAtom) action;
 					engineStore.deleteAtom(deleteAtom.atom.getAID());
+					invalidateOverlay(null);
 				} else {
 					// We don't want to stop processing future EngineActions,
 					// but we do want to flag this logic error.
@@ -122,6 +237,11 @@ public final class RadixEngine {
 		return commitQueue.size();
 	}
 
+	private long getCommitQueueAge() {
+		final EngineAction oldest = commitQueue.peek();
+		return oldest == null ? 0L : Math.max(0L, System.nanoTime() - oldest.enqueuedNanos);
+	}
+
 	/**
 	 * Start this instance of the Radix Engine processing incoming events.
 	 * Events are placed onto a queue by the {@link #delete(Atom)}
@@ -185,10 +305,105 @@ public final class RadixEngine {
 		this.cmSuccessHooks.add(hook);
 	}
 
+	/**
+	 * Adds a listener which is notified of every atom. Listeners are called
+	 * inline on the engine's threads; wrap slow listeners in an
+	 * {@link AsyncAtomEventListener} so that they cannot hold up commits.
+	 */
 	public void addAtomEventListener(AtomEventListener acceptor) {
 		this.atomEventListeners.add(acceptor);
 	}
 
+	/**
+	 * Traces atoms passed to {@link #store(Atom, AtomEventListener)} with the
+	 * specified tracer, or disables tracing if {@code null}.
+	 * Tracing is disabled by default.
+	 */
+	public void setAtomTracer(AtomTracer tracer) {
+		this.tracer = tracer;
+	}
+
+	/**
+	 * Rejects atoms spinning down particles which are already being spun down
+	 * by atoms in flight, before validating them, using the specified table.
+	 * Particles are reserved in the table once an atom has been validated, and
+	 * released once it has been committed or rejected.
+	 * Early rejection is disabled if {@code null}, which is the default.
+	 */
+	public void setParticleReservations(ParticleReservations reservations) {
+		this.reservations = reservations;
+	}
+
+	/**
+	 * Holds atoms which spin down a particle that is not yet up, rather than
+	 * reporting them with {@link AtomEventListener#onStateMissingDependency}
+	 * straight away. A held atom is queued to be committed again, without being
+	 * validated again, as soon as an atom spinning the particle up is stored.
+	 * <p>
+	 * Atoms are reported as missing a dependency if they are held for longer
+	 * than the specified time, or if more than the specified number of atoms
+	 * are held, in which case the atoms held longest are reported first.
+	 * The time an atom is held for is measured from when it was first held,
+	 * including any time spent held waiting for other particles.
+	 * <p>
+	 * Must be called at most once, before the engine is started.
+	 *
+	 * @param capacity The maximum number of atoms to hold
+	 * @param timeToLive The maximum time to hold an atom for
+	 * @param unit The unit of {@code timeToLive}
+	 * @throws IllegalStateException if the engine is running, or pending atoms are already enabled
+	 */
+	public void enablePendingAtoms(int capacity, long timeToLive, TimeUnit unit) {
+		synchronized (stateUpdateEngineLock) {
+			if (this.running) {
+				throw new IllegalStateException("Pending atoms must be enabled before the engine is started");
+			}
+			if (this.pendingAtoms != null) {
+				throw new IllegalStateException("Pending atoms are already enabled");
+			}
+			this.pendingAtoms = new PendingAtoms<>(capacity, unit.toNanos(timeToLive));
+		}
+	}
+
+	/**
+	 * Returns the number of atoms held waiting for a missing dependency.
+	 */
+	public int getPendingAtomCount() {
+		final PendingAtoms<Pair<StoreAtom, Particle>> pending = this.pendingAtoms;
+		return pending == null ? 0 : pending.size();
+	}
+
+	/**
+	 * Checks atoms against the state they will be committed in as they are
+	 * submitted, rather than only once they reach the front of the commit queue.
+	 * Submitters are told early about atoms which are predicted to fail with
+	 * {@link AtomEventListener#onSpeculativeStateConflict(Atom, DataPointer)}.
+	 * Atoms predicted to succeed are committed without a second state check,
+	 * unless the prediction has been invalidated by an earlier atom failing.
+	 * <p>
+	 * This moves the state check onto the submitting thread: every submitted atom
+	 * reads the spins of its particles from the engine store before it is queued,
+	 * and again at commit time if its prediction was invalidated. Submissions are
+	 * serialized while each atom is checked against and applied to the pending
+	 * state, but store reads only happen there for particles of atoms committed
+	 * in the meantime.
+	 * <p>
+	 * Must be called at most once, before the engine is started.
+	 *
+	 * @throws IllegalStateException if the engine is running, or speculative state checks are already enabled
+	 */
+	public void enableSpeculativeStateChecks() {
+		synchronized (stateUpdateEngineLock) {
+			if (this.running) {
+				throw new IllegalStateException("Speculative state checks must be enabled before the engine is started");
+			}
+			if (this.stateOverlay != null) {
+				throw new IllegalStateException("Speculative state checks are already enabled");
+			}
+			this.stateOverlay = new PendingStateOverlay(this.engineStore);
+		}
+	}
+
 	public void delete(Atom atom) {
 		this.commitQueue.add(new DeleteAtom(atom));
 	}
@@ -198,100 +413,331 @@ public final class RadixEngine {
 		Objects.requireNonNull(atom);
 		Objects.requireNonNull(atomEventListener);
 
-		RadixEngineAtom cmAtom;
-		try {
-			cmAtom = RadixEngineUtils.toCMAtom(atom);
-		} catch (RadixEngineUtils.CMAtomConversionException e) {
-			log.error("Atom creation failed", e);
-			CMError cmError = new CMError(e.getDataPointer(), CMErrorCode.INVALID_PARTICLE, null);
-			atomEventListener.onCMError(atom, cmError);
-			this.atomEventListeners.forEach(acceptor -> acceptor.onCMError(atom, cmError));
-			return;
-		}
-		final Optional<CMError> error = constraintMachine.validate(cmAtom.getCMInstruction());
-		if (error.isPresent()) {
-			log.error("Atom is not valid: {}", error.get());
-			atomEventListener.onCMError(atom, error.get());
-			this.atomEventListeners.forEach(acceptor -> acceptor.onCMError(atom, error.get()));
-			return;
+		final AtomTracer currentTracer = this.tracer;
+		final AtomTrace trace = currentTracer == null ? null : currentTracer.begin(atom);
+		final ParticleReservations currentReservations = this.reservations;
+		final Reservation reservation = currentReservations == null ? null : new Reservation(atom);
+		if (reservation != null) {
+			final DataPointer conflict = currentReservations.check(reservation);
+			if (conflict != null) {
+				notifyInFlightConflict(atom, atomEventListener, conflict, currentTracer, trace);
+				return;
+			}
 		}
 
-		for (CMSuccessHook hook : cmSuccessHooks) {
-			Result hookResult = hook.hook(atom);
-			if (hookResult.isError()) {
-				CMError cmError = new CMError(DataPointer.ofAtom(), CMErrorCode.HOOK_ERROR, null, hookResult.getErrorMessage());
-				atomEventListener.onCMError(atom, cmError);
-				this.atomEventListeners.forEach(acceptor -> acceptor.onCMError(atom, cmError));
+		boolean queued = false;
+		try {
+			final long validationStart = System.nanoTime();
+			RadixEngineAtom cmAtom;
+			try {
+				cmAtom = RadixEngineUtils.toCMAtom(atom);
+			} catch (RadixEngineUtils.CMAtomConversionException e) {
+				log.error("Atom creation failed", e);
+				CMError cmError = new CMError(e.getDataPointer(), CMErrorCode.INVALID_PARTICLE, null);
+				this.metrics.incrementError(CMErrorCode.INVALID_PARTICLE);
+				notifyCMError(atom, atomEventListener, cmError);
+				finishTrace(currentTracer, trace, Outcome.CM_ERROR);
 				return;
 			}
+			stamp(trace, Checkpoint.CONVERTED);
+			final Optional<CMError> error = constraintMachine.validate(cmAtom.getCMInstruction());
+			this.metrics.recordLatency(Stage.VALIDATION, System.nanoTime() - validationStart);
+			stamp(trace, Checkpoint.VALIDATED);
+			if (error.isPresent()) {
+				log.error("Atom is not valid: {}", error.get());
+				notifyCMError(atom, atomEventListener, error.get());
+				finishTrace(currentTracer, trace, Outcome.CM_ERROR);
+				return;
+			}
+
+			final long hooksStart = System.nanoTime();
+			for (CMSuccessHook hook : cmSuccessHooks) {
+				Result hookResult = hook.hook(atom);
+				if (hookResult.isError()) {
+					this.metrics.recordLatency(Stage.HOOKS, System.nanoTime() - hooksStart);
+					CMError cmError = new CMError(DataPointer.ofAtom(), CMErrorCode.HOOK_ERROR, null, hookResult.getErrorMessage());
+					this.metrics.incrementError(CMErrorCode.HOOK_ERROR);
+					stamp(trace, Checkpoint.HOOKS_RUN);
+					notifyCMError(atom, atomEventListener, cmError);
+					finishTrace(currentTracer, trace, Outcome.CM_ERROR);
+					return;
+				}
+			}
+			this.metrics.recordLatency(Stage.HOOKS, System.nanoTime() - hooksStart);
+			stamp(trace, Checkpoint.HOOKS_RUN);
+
+			// Particles are only claimed by valid atoms, so invalid atoms cannot block other spends
+			if (reservation != null) {
+				final DataPointer conflict = currentReservations.reserve(reservation);
+				if (conflict != null) {
+					notifyInFlightConflict(atom, atomEventListener, conflict, currentTracer, trace);
+					return;
+				}
+			}
+
+			// Stamped before adding, as the engine thread may finish the trace immediately after
+			stamp(trace, Checkpoint.QUEUED);
+			final StoreAtom storeAtom = new StoreAtom(atom, atomEventListener, currentTracer, trace, currentReservations, reservation);
+			final StateConflict predictedConflict = enqueue(storeAtom, cmAtom.getCMInstruction());
+			// From here on the engine thread releases the reservation
+			queued = true;
+
+			this.metrics.incrementOutcome(Outcome.CM_SUCCESS);
+			atomEventListener.onCMSuccess(atom);
+			this.atomEventListeners.forEach(acceptor -> acceptor.onCMSuccess(atom));
+			if (predictedConflict != null) {
+				final DataPointer dp = predictedConflict.dataPointer;
+				atomEventListener.onSpeculativeStateConflict(atom, dp);
+				this.atomEventListeners.forEach(acceptor -> acceptor.onSpeculativeStateConflict(atom, dp));
+			}
+		} finally {
+			if (!queued) {
+				release(currentReservations, reservation);
+			}
+		}
+	}
+
+	/**
+	 * Adds the specified atom to the commit queue, checking it against the
+	 * state overlay first if speculative state checks are enabled.
+	 *
+	 * @return The predicted reason the atom will not be committed, or {@code null}
+	 */
+	private StateConflict enqueue(StoreAtom storeAtom, CMInstruction cmInstruction) {
+		final PendingStateOverlay overlay = this.stateOverlay;
+		if (overlay == null) {
+			this.commitQueue.add(storeAtom);
+			return null;
+		}
+		// Read committed state before taking the lock, so that store reads do not serialize submitters
+		final CMStore prefetched = overlay.prefetch(cmInstruction);
+		// Atoms must be applied to the overlay in the order they are queued
+		synchronized (overlay) {
+			final StateConflict conflict = checkState(cmInstruction, prefetched);
+			if (conflict == null) {
+				overlay.apply(storeAtom, cmInstruction);
+				storeAtom.speculatedVersion = overlay.getVersion();
+			}
+			this.commitQueue.add(storeAtom);
+			return conflict;
 		}
+	}
 
-		this.commitQueue.add(new StoreAtom(atom, atomEventListener));
+	private void invalidateOverlay(StoreAtom storeAtom) {
+		final PendingStateOverlay overlay = this.stateOverlay;
+		if (overlay != null) {
+			overlay.invalidate(storeAtom);
+		}
+	}
 
-		atomEventListener.onCMSuccess(atom);
-		this.atomEventListeners.forEach(acceptor -> acceptor.onCMSuccess(atom));
+	private static void stamp(AtomTrace trace, Checkpoint checkpoint) {
+		if (trace != null) {
+			trace.stamp(checkpoint);
+		}
 	}
 
-	private void stateCheckAndStore(StoreAtom storeAtom) {
+	private static void finishTrace(AtomTracer tracer, AtomTrace trace, Outcome outcome) {
+		if (trace != null) {
+			trace.stamp(Checkpoint.NOTIFIED);
+			tracer.finish(trace, outcome);
+		}
+	}
+
+	private static void release(ParticleReservations reservations, Reservation reservation) {
+		if (reservation != null) {
+			reservations.release(reservation);
+		}
+	}
+
+	private void notifyInFlightConflict(
+		Atom atom,
+		AtomEventListener atomEventListener,
+		DataPointer conflict,
+		AtomTracer tracer,
+		AtomTrace trace
+	) {
+		CMError cmError = new CMError(conflict, CMErrorCode.IN_FLIGHT_CONFLICT, null);
+		this.metrics.incrementError(CMErrorCode.IN_FLIGHT_CONFLICT);
+		notifyCMError(atom, atomEventListener, cmError);
+		finishTrace(tracer, trace, Outcome.CM_ERROR);
+	}
+
+	private void notifyCMError(Atom atom, AtomEventListener atomEventListener, CMError cmError) {
+		this.metrics.incrementOutcome(Outcome.CM_ERROR);
+		atomEventListener.onCMError(atom, cmError);
+		this.atomEventListeners.forEach(acceptor -> acceptor.onCMError(atom, cmError));
+	}
+
+	private void evictExpired(PendingAtoms<Pair<StoreAtom, Particle>> pending) {
+		for (Pair<StoreAtom, Particle> expired : pending.expire(System.nanoTime())) {
+			evictPending(expired);
+		}
+	}
+
+	private void evictPending(Pair<StoreAtom, Particle> parked) {
+		final StoreAtom storeAtom = parked.getFirst();
+		release(storeAtom.reservations, storeAtom.reservation);
+		notifyMissingDependency(storeAtom, parked.getSecond());
+	}
+
+	private void notifyMissingDependency(StoreAtom storeAtom, Particle particle) {
 		final Atom atom = storeAtom.atom;
-		try {
-			SimpleRadixEngineAtom cmAtom = RadixEngineUtils.toCMAtom(atom);
-			final CMInstruction cmInstruction = cmAtom.getCMInstruction();
-
-			long particleIndex = 0;
-			long particleGroupIndex = 0;
-			for (CMMicroInstruction microInstruction : cmInstruction.getMicroInstructions()) {
-				// Treat check spin as the first push for now
-				if (!microInstruction.isCheckSpin()) {
-					if (microInstruction.getMicroOp() == CMMicroOp.PARTICLE_GROUP) {
-						particleGroupIndex++;
-						particleIndex = 0;
-					} else {
-						particleIndex++;
-					}
-					continue;
-				}
+		this.metrics.incrementOutcome(Outcome.MISSING_DEPENDENCY);
+		storeAtom.listener.onStateMissingDependency(atom.getAID(), particle);
+		atomEventListeners.forEach(listener -> listener.onStateMissingDependency(atom.getAID(), particle));
+		finishTrace(storeAtom.tracer, storeAtom.trace, Outcome.MISSING_DEPENDENCY);
+	}
 
-				final Particle particle = microInstruction.getParticle();
-				if (!engineStore.supports(particle.getDestinations())) {
-					continue;
+	private void requeuePending(PendingAtoms<Pair<StoreAtom, Particle>> pending, Atom stored) {
+		stored.particles(Spin.UP).forEach(particle -> {
+			for (Pair<StoreAtom, Particle> waiting : pending.remove(particle.getHash())) {
+				this.commitQueue.add(waiting.getFirst().requeue());
+			}
+		});
+	}
+
+	/**
+	 * Checks the specified instruction against the specified state.
+	 *
+	 * @return The reason the instruction cannot be committed, or {@code null} if it can be
+	 */
+	private StateConflict checkState(CMInstruction cmInstruction, CMStore store) {
+		long particleIndex = 0;
+		long particleGroupIndex = 0;
+		for (CMMicroInstruction microInstruction : cmInstruction.getMicroInstructions()) {
+			// Treat check spin as the first push for now
+			if (!microInstruction.isCheckSpin()) {
+				if (microInstruction.getMicroOp() == CMMicroOp.PARTICLE_GROUP) {
+					particleGroupIndex++;
+					particleIndex = 0;
+				} else {
+					particleIndex++;
 				}
+				continue;
+			}
+
+			final Particle particle = microInstruction.getParticle();
+			if (!store.supports(particle.getDestinations())) {
+				continue;
+			}
 
-				final DataPointer dp = DataPointer.ofParticle(particleGroupIndex, particleIndex);
+			final DataPointer dp = DataPointer.ofParticle(particleGroupIndex, particleIndex);
 
-				// First spun is the only one we need to check
-				final Spin checkSpin = microInstruction.getCheckSpin();
-				final Spin virtualSpin = virtualizedCMStore.getSpin(particle);
-				if (SpinStateMachine.isBefore(checkSpin, virtualSpin)) {
-					storeAtom.listener.onVirtualStateConflict(atom, dp);
-					atomEventListeners.forEach(listener -> listener.onVirtualStateConflict(atom, dp));
-					return;
+			// First spun is the only one we need to check
+			final Spin checkSpin = microInstruction.getCheckSpin();
+			final Spin virtualSpin = virtualizedCMStore.getSpin(particle);
+			if (SpinStateMachine.isBefore(checkSpin, virtualSpin)) {
+				return new StateConflict(Outcome.VIRTUAL_CONFLICT, dp, particle, checkSpin);
+			}
+
+			final Spin nextSpin = SpinStateMachine.next(checkSpin);
+			final Spin physicalSpin = store.getSpin(particle);
+			final Spin currentSpin = SpinStateMachine.isAfter(virtualSpin, physicalSpin) ? virtualSpin : physicalSpin;
+			if (!SpinStateMachine.canTransition(currentSpin, nextSpin)) {
+				final Outcome outcome = SpinStateMachine.isBefore(currentSpin, nextSpin) ? Outcome.MISSING_DEPENDENCY : Outcome.CONFLICT;
+				return new StateConflict(outcome, dp, particle, nextSpin);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Checks the specified atom against the current state, and stores it if possible.
+	 *
+	 * @return {@code true} if the atom was parked waiting for a missing dependency
+	 */
+	private boolean stateCheckAndStore(StoreAtom storeAtom) {
+		final Atom atom = storeAtom.atom;
+		final long stateCheckStart = System.nanoTime();
+		final PendingStateOverlay overlay = this.stateOverlay;
+		try {
+			final StateConflict conflict;
+			if (overlay != null && storeAtom.isSpeculated() && overlay.getVersion() == storeAtom.speculatedVersion) {
+				// Nothing unpredicted has happened since the atom was checked against the overlay
+				this.metrics.incrementOutcome(Outcome.SPECULATION_CONFIRMED);
+				conflict = null;
+			} else {
+				if (storeAtom.isSpeculated()) {
+					this.metrics.incrementOutcome(Outcome.SPECULATION_STALE);
 				}
+				SimpleRadixEngineAtom cmAtom = RadixEngineUtils.toCMAtom(atom);
+				conflict = checkState(cmAtom.getCMInstruction(), engineStore);
+			}
 
-				final Spin nextSpin = SpinStateMachine.next(checkSpin);
-				final Spin physicalSpin = engineStore.getSpin(particle);
-				final Spin currentSpin = SpinStateMachine.isAfter(virtualSpin, physicalSpin) ? virtualSpin : physicalSpin;
-				if (!SpinStateMachine.canTransition(currentSpin, nextSpin)) {
-					if (!SpinStateMachine.isBefore(currentSpin, nextSpin)) {
-						engineStore.getAtomContaining(particle, nextSpin == Spin.DOWN, conflictAtom -> {
-							storeAtom.listener.onStateConflict(atom, dp, conflictAtom);
-							atomEventListeners.forEach(listener -> listener.onStateConflict(atom, dp, conflictAtom));
-						});
-
-						return;
-					} else {
-						storeAtom.listener.onStateMissingDependency(atom.getAID(), particle);
-						atomEventListeners.forEach(listener -> listener.onStateMissingDependency(atom.getAID(), particle));
-						return;
-					}
+			final long storeStart = System.nanoTime();
+			this.metrics.recordLatency(Stage.STATE_CHECK, storeStart - stateCheckStart);
+			stamp(storeAtom.trace, Checkpoint.STATE_CHECKED);
+			if (conflict != null) {
+				// Atoms which were never applied to the overlay do not change predicted state by failing
+				if (storeAtom.isSpeculated()) {
+					invalidateOverlay(storeAtom);
 				}
+				return onStateConflict(storeAtom, conflict);
 			}
 
 			engineStore.storeAtom(atom);
+			if (overlay != null) {
+				if (storeAtom.isSpeculated()) {
+					overlay.confirm(storeAtom);
+				} else {
+					overlay.invalidate(null);
+				}
+			}
+			this.metrics.recordLatency(Stage.STORE, System.nanoTime() - storeStart);
+			stamp(storeAtom.trace, Checkpoint.STORED);
+			this.metrics.incrementOutcome(Outcome.STORED);
 			storeAtom.listener.onStateStore(atom);
 			atomEventListeners.forEach(listener -> listener.onStateStore(atom));
+			finishTrace(storeAtom.tracer, storeAtom.trace, Outcome.STORED);
+			final PendingAtoms<Pair<StoreAtom, Particle>> pending = this.pendingAtoms;
+			if (pending != null) {
+				requeuePending(pending, atom);
+			}
 		} catch (RadixEngineUtils.CMAtomConversionException e) {
 			log.error("Atom creation failed", e);
+			finishTrace(storeAtom.tracer, storeAtom.trace, null);
+		}
+		return false;
+	}
+
+	/**
+	 * Notifies listeners of an atom which cannot be committed, or parks it if it is missing a dependency.
+	 *
+	 * @return {@code true} if the atom was parked waiting for a missing dependency
+	 */
+	private boolean onStateConflict(StoreAtom storeAtom, StateConflict conflict) {
+		final Atom atom = storeAtom.atom;
+		final DataPointer dp = conflict.dataPointer;
+		switch (conflict.outcome) {
+			case VIRTUAL_CONFLICT:
+				this.metrics.incrementOutcome(Outcome.VIRTUAL_CONFLICT);
+				storeAtom.listener.onVirtualStateConflict(atom, dp);
+				atomEventListeners.forEach(listener -> listener.onVirtualStateConflict(atom, dp));
+				finishTrace(storeAtom.tracer, storeAtom.trace, Outcome.VIRTUAL_CONFLICT);
+				return false;
+			case CONFLICT:
+				this.metrics.incrementOutcome(Outcome.CONFLICT);
+				engineStore.getAtomContaining(conflict.particle, conflict.nextSpin == Spin.DOWN, conflictAtom -> {
+					storeAtom.listener.onStateConflict(atom, dp, conflictAtom);
+					atomEventListeners.forEach(listener -> listener.onStateConflict(atom, dp, conflictAtom));
+				});
+				finishTrace(storeAtom.tracer, storeAtom.trace, Outcome.CONFLICT);
+				return false;
+			case MISSING_DEPENDENCY:
+				final PendingAtoms<Pair<StoreAtom, Particle>> pending = this.pendingAtoms;
+				if (pending == null) {
+					notifyMissingDependency(storeAtom, conflict.particle);
+					return false;
+				}
+				this.metrics.incrementOutcome(Outcome.PARKED);
+				final Particle particle = conflict.particle;
+				final long parkedSinceNanos = storeAtom.park(System.nanoTime());
+				for (Pair<StoreAtom, Particle> evicted : pending.add(particle.getHash(), Pair.of(storeAtom, particle), parkedSinceNanos)) {
+					evictPending(evicted);
+				}
+				return true;
+			default:
+				throw new IllegalStateException("Unexpected state conflict: " + conflict.outcome);
 		}
 	}
 }
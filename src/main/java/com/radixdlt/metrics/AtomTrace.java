@@ -0,0 +1,163 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+
+package com.radixdlt.metrics;
+
+import com.radixdlt.common.AID;
+import com.radixdlt.metrics.EngineMetrics.Outcome;
+import java.util.Arrays;
+
+/**
+ * Timestamps of a single atom passing through the engine, recorded by an {@link AtomTracer}.
+ * <p>
+ * Timestamps are from {@link System#nanoTime()}, so they can be compared with each
+ * other across threads, but not with wall clock time. A trace is written by one
+ * thread at a time as the atom is handed between them, and must not be modified
+ * once it has been passed to an {@link AtomTraceSink}.
+ */
+public final class AtomTrace {
+	/**
+	 * Points in processing an atom at which a timestamp is recorded, in the order they are reached.
+	 */
+	public enum Checkpoint {
+		/**
+		 * The atom was passed to {@code RadixEngine.store}.
+		 */
+		RECEIVED,
+		/**
+		 * The atom was converted to constraint machine instructions.
+		 */
+		CONVERTED,
+		/**
+		 * The constraint machine finished validating the atom.
+		 */
+		VALIDATED,
+		/**
+		 * All success hooks have been run.
+		 */
+		HOOKS_RUN,
+		/**
+		 * The atom was added to the commit queue.
+		 */
+		QUEUED,
+		/**
+		 * The engine thread took the atom from the commit queue.
+		 */
+		DEQUEUED,
+		/**
+		 * The atom was checked against the current state.
+		 */
+		STATE_CHECKED,
+		/**
+		 * The atom was stored in the engine store.
+		 */
+		STORED,
+		/**
+		 * All listeners have been notified of the outcome.
+		 */
+		NOTIFIED
+	}
+
+	/**
+	 * Value of timestamps for checkpoints which were not reached.
+	 */
+	public static final long NOT_REACHED = Long.MIN_VALUE;
+
+	private final AID aid;
+	private final long[] timestamps = new long[Checkpoint.values().length];
+	private Outcome outcome;
+
+	AtomTrace(AID aid, long receivedNanos) {
+		this.aid = aid;
+		Arrays.fill(this.timestamps, NOT_REACHED);
+		this.timestamps[Checkpoint.RECEIVED.ordinal()] = receivedNanos;
+	}
+
+	/**
+	 * Records the current time for the specified checkpoint.
+	 */
+	public void stamp(Checkpoint checkpoint) {
+		this.timestamps[checkpoint.ordinal()] = System.nanoTime();
+	}
+
+	void setOutcome(Outcome outcome) {
+		this.outcome = outcome;
+	}
+
+	/**
+	 * Returns the AID of the traced atom, or {@code null} if the atom does not have a valid AID.
+	 */
+	public AID getAID() {
+		return aid;
+	}
+
+	/**
+	 * Returns the final outcome of the atom, or {@code null} if the trace has not finished.
+	 */
+	public Outcome getOutcome() {
+		return outcome;
+	}
+
+	/**
+	 * Returns the timestamp of the specified checkpoint, or {@link #NOT_REACHED}.
+	 */
+	public long getTimestamp(Checkpoint checkpoint) {
+		return this.timestamps[checkpoint.ordinal()];
+	}
+
+	public boolean isReached(Checkpoint checkpoint) {
+		return getTimestamp(checkpoint) != NOT_REACHED;
+	}
+
+	/**
+	 * Returns the time between two checkpoints in nanoseconds, or {@code -1} if either was not reached.
+	 */
+	public long getNanos(Checkpoint from, Checkpoint to) {
+		if (!isReached(from) || !isReached(to)) {
+			return -1L;
+		}
+		return getTimestamp(to) - getTimestamp(from);
+	}
+
+	/**
+	 * Returns the time from the atom being received to the last checkpoint reached, in nanoseconds.
+	 */
+	public long getTotalNanos() {
+		final long received = getTimestamp(Checkpoint.RECEIVED);
+		long last = received;
+		for (long timestamp : this.timestamps) {
+			if (timestamp != NOT_REACHED) {
+				last = Math.max(last, timestamp);
+			}
+		}
+		return last - received;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder builder = new StringBuilder();
+		builder.append(getClass().getSimpleName()).append('[').append(aid).append(' ').append(outcome);
+		final long received = getTimestamp(Checkpoint.RECEIVED);
+		for (Checkpoint checkpoint : Checkpoint.values()) {
+			if (checkpoint != Checkpoint.RECEIVED && isReached(checkpoint)) {
+				builder.append(' ').append(checkpoint).append("=+").append(getTimestamp(checkpoint) - received).append("ns");
+			}
+		}
+		return builder.append(']').toString();
+	}
+}
@@ -0,0 +1,263 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+
+package com.radixdlt.metrics;
+
+import com.radixdlt.common.AID;
+import com.radixdlt.common.Atom;
+import com.radixdlt.metrics.EngineMetrics.Outcome;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records the time at which sampled atoms reach each {@link AtomTrace.Checkpoint}
+ * in the engine, and delivers the finished traces to an {@link AtomTraceSink}.
+ * <p>
+ * Finished traces are held in a bounded, lock free buffer, so that recording
+ * never blocks the threads processing atoms. Traces finished while the buffer
+ * is full are dropped and counted. The buffer is emptied into the sink either
+ * by calling {@link #flush()}, or by a background thread started with
+ * {@link #startFlushing()}.
+ * <p>
+ * Note that all methods are thread safe.
+ */
+public final class AtomTracer {
+	private static final Logger log = LoggerFactory.getLogger(AtomTracer.class);
+
+	/**
+	 * Builder for {@link AtomTracer} instances.
+	 */
+	public static final class Builder {
+		private AtomTraceSink sink;
+		private int sampleInterval = 1;
+		private int capacity = 4096;
+		private long flushIntervalMillis = 100L;
+
+		/**
+		 * Sets the sink which finished traces are delivered to. Required.
+		 */
+		public Builder setSink(AtomTraceSink sink) {
+			this.sink = sink;
+			return this;
+		}
+
+		/**
+		 * Traces one in {@code sampleInterval} atoms on average. Defaults to
+		 * {@code 1}, which traces every atom.
+		 */
+		public Builder setSampleInterval(int sampleInterval) {
+			if (sampleInterval < 1) {
+				throw new IllegalArgumentException("Sample interval must be positive: " + sampleInterval);
+			}
+			this.sampleInterval = sampleInterval;
+			return this;
+		}
+
+		/**
+		 * Sets the maximum number of finished traces held before they are flushed.
+		 */
+		public Builder setCapacity(int capacity) {
+			if (capacity < 1) {
+				throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+			}
+			this.capacity = capacity;
+			return this;
+		}
+
+		/**
+		 * Sets the time the flushing thread waits between flushes.
+		 */
+		public Builder setFlushInterval(long interval, TimeUnit unit) {
+			this.flushIntervalMillis = Math.max(1L, unit.toMillis(interval));
+			return this;
+		}
+
+		public AtomTracer build() {
+			return new AtomTracer(Objects.requireNonNull(this.sink, "sink is required"), this.sampleInterval, this.capacity,
+				this.flushIntervalMillis);
+		}
+	}
+
+	private final AtomTraceSink sink;
+	private final int sampleInterval;
+	private final int capacity;
+	private final long flushIntervalMillis;
+
+	private final Queue<AtomTrace> buffer = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger buffered = new AtomicInteger();
+	private final LongAdder sampled = new LongAdder();
+	private final LongAdder dropped = new LongAdder();
+
+	private volatile boolean flushing = false;
+	private Thread flushThread = null;
+	private final Object flushThreadLock = new Object();
+
+	private AtomTracer(AtomTraceSink sink, int sampleInterval, int capacity, long flushIntervalMillis) {
+		this.sink = sink;
+		this.sampleInterval = sampleInterval;
+		this.capacity = capacity;
+		this.flushIntervalMillis = flushIntervalMillis;
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * Starts a trace for the specified atom if it is sampled.
+	 *
+	 * @param atom The atom which has been received
+	 * @return A trace with the {@link AtomTrace.Checkpoint#RECEIVED} timestamp set,
+	 * 		or {@code null} if the atom is not sampled
+	 */
+	public AtomTrace begin(Atom atom) {
+		final long receivedNanos = System.nanoTime();
+		if (this.sampleInterval > 1 && ThreadLocalRandom.current().nextInt(this.sampleInterval) != 0) {
+			return null;
+		}
+		this.sampled.increment();
+		return new AtomTrace(aidOf(atom), receivedNanos);
+	}
+
+	/**
+	 * Finishes the specified trace and queues it for delivery to the sink.
+	 * The trace must not be modified afterwards.
+	 *
+	 * @param trace The trace to finish
+	 * @param outcome The outcome of processing the atom, or {@code null} if
+	 * 		processing ended without an outcome
+	 */
+	public void finish(AtomTrace trace, Outcome outcome) {
+		trace.setOutcome(outcome);
+		if (this.buffered.incrementAndGet() > this.capacity) {
+			this.buffered.decrementAndGet();
+			this.dropped.increment();
+			return;
+		}
+		this.buffer.offer(trace);
+	}
+
+	/**
+	 * Delivers all buffered traces to the sink on the calling thread.
+	 *
+	 * @return The number of traces delivered
+	 */
+	public int flush() {
+		int delivered = 0;
+		AtomTrace trace;
+		while ((trace = this.buffer.poll()) != null) {
+			this.buffered.decrementAndGet();
+			try {
+				this.sink.accept(trace);
+			} catch (RuntimeException e) {
+				log.error("Atom trace sink failed", e);
+			}
+			delivered += 1;
+		}
+		return delivered;
+	}
+
+	/**
+	 * Returns the number of atoms sampled for tracing.
+	 */
+	public long getSampledCount() {
+		return this.sampled.sum();
+	}
+
+	/**
+	 * Returns the number of finished traces dropped because the buffer was full.
+	 */
+	public long getDroppedCount() {
+		return this.dropped.sum();
+	}
+
+	/**
+	 * Starts a background thread which periodically flushes buffered traces to the sink.
+	 *
+	 * @return {@code true} if the call to this method actually started
+	 * 		flushing, {@code false} otherwise.
+	 */
+	public boolean startFlushing() {
+		synchronized (this.flushThreadLock) {
+			if (!this.flushing) {
+				this.flushThread = new Thread(this::runFlush);
+				this.flushThread.setDaemon(true);
+				this.flushThread.setName("Atom Tracer");
+				this.flushing = true;
+				this.flushThread.start();
+				return true;
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Stops the background flushing thread, after a final flush.
+	 *
+	 * @return {@code true} if the call to this method actually stopped
+	 * 		flushing, {@code false} otherwise.
+	 */
+	public boolean stopFlushing() {
+		synchronized (this.flushThreadLock) {
+			if (this.flushing) {
+				try {
+					this.flushThread.interrupt();
+					this.flushThread.join();
+				} catch (InterruptedException e) {
+					// Continue without waiting further
+					Thread.currentThread().interrupt();
+				} finally {
+					this.flushThread = null;
+					this.flushing = false;
+				}
+				return true;
+			}
+			return false;
+		}
+	}
+
+	private void runFlush() {
+		try {
+			while (this.flushing) {
+				flush();
+				Thread.sleep(this.flushIntervalMillis);
+			}
+		} catch (InterruptedException e) {
+			// Just exit if we are interrupted
+			Thread.currentThread().interrupt();
+		} finally {
+			flush();
+		}
+	}
+
+	private static AID aidOf(Atom atom) {
+		try {
+			return atom.getAID();
+		} catch (RuntimeException e) {
+			// Atoms without shards have no AID, but are still worth tracing to rejection
+			return null;
+		}
+	}
+}
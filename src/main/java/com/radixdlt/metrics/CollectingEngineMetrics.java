@@ -0,0 +1,163 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+
+package com.radixdlt.metrics;
+
+import com.google.common.collect.ImmutableMap;
+import com.radixdlt.constraintmachine.CMErrorCode;
+import com.radixdlt.constraintmachine.TransitionToken;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Metrics which collect measurements in memory, for export to a metrics registry.
+ * <p>
+ * Values can be read individually, or all at once with {@link #snapshot()},
+ * which names each value so that an exporter can register or update it in
+ * a registry without knowing about the engine.
+ */
+public final class CollectingEngineMetrics implements EngineMetrics {
+	private final String prefix;
+	private final Map<Stage, LatencyHistogram> latencies;
+	private final Map<CMErrorCode, LongAdder> errors;
+	private final Map<Outcome, LongAdder> outcomes;
+	private final ConcurrentMap<TransitionToken<?, ?, ?, ?>, LongAdder> transitions = new ConcurrentHashMap<>();
+	private volatile IntSupplier queueDepth = () -> 0;
+	private volatile LongSupplier queueAgeNanos = () -> 0L;
+
+	/**
+	 * Creates metrics with names starting with {@code "radix.engine."}.
+	 */
+	public CollectingEngineMetrics() {
+		this("radix.engine.");
+	}
+
+	/**
+	 * Creates metrics with names starting with the specified prefix.
+	 *
+	 * @param prefix The prefix for the names of values in {@link #snapshot()}
+	 */
+	public CollectingEngineMetrics(String prefix) {
+		this.prefix = prefix;
+		this.latencies = fill(Stage.class, LatencyHistogram::new);
+		this.errors = fill(CMErrorCode.class, LongAdder::new);
+		this.outcomes = fill(Outcome.class, LongAdder::new);
+	}
+
+	@Override
+	public void recordLatency(Stage stage, long nanos) {
+		this.latencies.get(stage).record(nanos);
+	}
+
+	@Override
+	public void incrementError(CMErrorCode errorCode) {
+		this.errors.get(errorCode).increment();
+	}
+
+	@Override
+	public void incrementOutcome(Outcome outcome) {
+		this.outcomes.get(outcome).increment();
+	}
+
+	@Override
+	public void incrementTransition(TransitionToken<?, ?, ?, ?> transitionToken) {
+		LongAdder counter = this.transitions.get(transitionToken);
+		if (counter == null) {
+			counter = this.transitions.computeIfAbsent(transitionToken, t -> new LongAdder());
+		}
+		counter.increment();
+	}
+
+	@Override
+	public void registerCommitQueue(IntSupplier depth, LongSupplier oldestAgeNanos) {
+		this.queueDepth = depth;
+		this.queueAgeNanos = oldestAgeNanos;
+	}
+
+	public LatencyHistogram getLatency(Stage stage) {
+		return this.latencies.get(stage);
+	}
+
+	public long getCount(CMErrorCode errorCode) {
+		return this.errors.get(errorCode).sum();
+	}
+
+	public long getCount(Outcome outcome) {
+		return this.outcomes.get(outcome).sum();
+	}
+
+	public long getCount(TransitionToken<?, ?, ?, ?> transitionToken) {
+		LongAdder counter = this.transitions.get(transitionToken);
+		return counter == null ? 0L : counter.sum();
+	}
+
+	public int getQueueDepth() {
+		return this.queueDepth.getAsInt();
+	}
+
+	public long getQueueAgeNanos() {
+		return this.queueAgeNanos.getAsLong();
+	}
+
+	/**
+	 * Returns the current value of every metric, keyed by name.
+	 * Latencies are reported as a count, mean, 50th, 99th percentile and
+	 * maximum, all in nanoseconds.
+	 *
+	 * @return A sorted map of metric names to their current values
+	 */
+	public SortedMap<String, Number> snapshot() {
+		SortedMap<String, Number> snapshot = new TreeMap<>();
+		this.latencies.forEach((stage, histogram) -> {
+			String name = this.prefix + "latency." + name(stage) + ".";
+			snapshot.put(name + "count", histogram.getCount());
+			snapshot.put(name + "mean_ns", histogram.getMeanNanos());
+			snapshot.put(name + "p50_ns", histogram.getPercentileNanos(0.5));
+			snapshot.put(name + "p99_ns", histogram.getPercentileNanos(0.99));
+			snapshot.put(name + "max_ns", histogram.getMaxNanos());
+		});
+		this.errors.forEach((errorCode, counter) -> snapshot.put(this.prefix + "errors." + name(errorCode), counter.sum()));
+		this.outcomes.forEach((outcome, counter) -> snapshot.put(this.prefix + "outcomes." + name(outcome), counter.sum()));
+		this.transitions.forEach((token, counter) -> snapshot.put(this.prefix + "transitions." + token, counter.sum()));
+		snapshot.put(this.prefix + "queue.depth", getQueueDepth());
+		snapshot.put(this.prefix + "queue.age_ns", getQueueAgeNanos());
+		return snapshot;
+	}
+
+	private static String name(Enum<?> value) {
+		return value.name().toLowerCase(Locale.ROOT);
+	}
+
+	private static <K extends Enum<K>, V> Map<K, V> fill(Class<K> keyClass, Supplier<V> valueSupplier) {
+		// Every key is present up front, so lookups never need to synchronise
+		EnumMap<K, V> values = new EnumMap<>(keyClass);
+		for (K key : keyClass.getEnumConstants()) {
+			values.put(key, valueSupplier.get());
+		}
+		return ImmutableMap.copyOf(values);
+	}
+}
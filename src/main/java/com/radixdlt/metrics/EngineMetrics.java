@@ -0,0 +1,136 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+
+package com.radixdlt.metrics;
+
+import com.radixdlt.constraintmachine.CMErrorCode;
+import com.radixdlt.constraintmachine.TransitionToken;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Receives runtime measurements from the {@link com.radixdlt.engine.RadixEngine}
+ * and {@link com.radixdlt.constraintmachine.ConstraintMachine}.
+ * <p>
+ * All methods do nothing by default, so implementations only need to override
+ * the measurements they are interested in. Methods are called on the hot path,
+ * possibly from several threads at once, so implementations must be thread safe
+ * and should not block.
+ */
+public interface EngineMetrics {
+	/**
+	 * Stages of processing an atom which are timed.
+	 */
+	enum Stage {
+		/**
+		 * Conversion and constraint machine validation of an atom.
+		 */
+		VALIDATION,
+		/**
+		 * Execution of all success hooks for an atom.
+		 */
+		HOOKS,
+		/**
+		 * Time an action spent in the commit queue before being processed.
+		 */
+		QUEUE_WAIT,
+		/**
+		 * Checking an atom against the current state, excluding storing it.
+		 */
+		STATE_CHECK,
+		/**
+		 * Storing an atom in the engine store.
+		 */
+		STORE
+	}
+
+	/**
+	 * Outcomes reported to {@link com.radixdlt.engine.AtomEventListener}s.
+	 */
+	enum Outcome {
+		CM_SUCCESS,
+		CM_ERROR,
+		STORED,
+		VIRTUAL_CONFLICT,
+		CONFLICT,
+		MISSING_DEPENDENCY,
+		/**
+		 * Not reported to listeners. The atom is waiting for a missing dependency,
+		 * and is counted again when it is retried or gives up.
+		 */
+		PARKED,
+		/**
+		 * Not reported to listeners. The speculative state check of the atom was
+		 * still current when it was committed, so the state was not checked again.
+		 */
+		SPECULATION_CONFIRMED,
+		/**
+		 * Not reported to listeners. The speculative state check of the atom had
+		 * been invalidated by the time it was committed, so the state was checked again.
+		 */
+		SPECULATION_STALE
+	}
+
+	/**
+	 * Returns an instance which discards all measurements.
+	 */
+	static EngineMetrics noop() {
+		return NoopEngineMetrics.INSTANCE;
+	}
+
+	/**
+	 * Records the time taken by a stage of processing an atom.
+	 *
+	 * @param stage The stage which was timed
+	 * @param nanos The elapsed time in nanoseconds
+	 */
+	default void recordLatency(Stage stage, long nanos) {
+		// Nothing to do by default
+	}
+
+	/**
+	 * Counts an error, either from validation or from the engine itself.
+	 */
+	default void incrementError(CMErrorCode errorCode) {
+		// Nothing to do by default
+	}
+
+	/**
+	 * Counts an outcome reported to atom event listeners.
+	 */
+	default void incrementOutcome(Outcome outcome) {
+		// Nothing to do by default
+	}
+
+	/**
+	 * Counts the execution of a transition procedure.
+	 */
+	default void incrementTransition(TransitionToken<?, ?, ?, ?> transitionToken) {
+		// Nothing to do by default
+	}
+
+	/**
+	 * Called once when an engine is created with the gauges for its commit queue.
+	 *
+	 * @param depth The number of actions waiting in the queue
+	 * @param oldestAgeNanos How long the oldest waiting action has been queued, or zero if the queue is empty
+	 */
+	default void registerCommitQueue(IntSupplier depth, LongSupplier oldestAgeNanos) {
+		// Nothing to do by default
+	}
+}
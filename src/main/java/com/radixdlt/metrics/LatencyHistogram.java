@@ -0,0 +1,114 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+
+package com.radixdlt.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock free histogram of latencies with power of two buckets.
+ * <p>
+ * Percentiles are accurate to within a factor of two, which is sufficient to
+ * tell where time is going without the cost of a precise histogram.
+ */
+public final class LatencyHistogram {
+	private final LongAdder[] buckets = new LongAdder[Long.SIZE];
+	private final LongAdder count = new LongAdder();
+	private final LongAdder totalNanos = new LongAdder();
+	private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+
+	public LatencyHistogram() {
+		for (int i = 0; i < this.buckets.length; ++i) {
+			this.buckets[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Records a latency. Negative values are recorded as zero.
+	 *
+	 * @param nanos The latency in nanoseconds
+	 */
+	public void record(long nanos) {
+		final long value = Math.max(0L, nanos);
+		this.buckets[bucket(value)].increment();
+		this.count.increment();
+		this.totalNanos.add(value);
+		this.maxNanos.accumulate(value);
+	}
+
+	public long getCount() {
+		return this.count.sum();
+	}
+
+	public long getTotalNanos() {
+		return this.totalNanos.sum();
+	}
+
+	public long getMaxNanos() {
+		return this.maxNanos.get();
+	}
+
+	/**
+	 * Returns the mean latency, or zero if nothing has been recorded.
+	 */
+	public double getMeanNanos() {
+		final long n = getCount();
+		return n == 0 ? 0.0 : (double) getTotalNanos() / n;
+	}
+
+	/**
+	 * Returns an upper bound on the latency at the specified percentile, or zero
+	 * if nothing has been recorded.
+	 *
+	 * @param percentile The percentile, between {@code 0.0} and {@code 1.0}
+	 * @return An upper bound on the latency in nanoseconds, never more than twice the actual value
+	 */
+	public long getPercentileNanos(double percentile) {
+		if (percentile < 0.0 || percentile > 1.0) {
+			throw new IllegalArgumentException("Percentile must be between 0.0 and 1.0: " + percentile);
+		}
+		final long[] counts = new long[this.buckets.length];
+		long total = 0L;
+		for (int i = 0; i < counts.length; ++i) {
+			counts[i] = this.buckets[i].sum();
+			total += counts[i];
+		}
+		if (total == 0L) {
+			return 0L;
+		}
+		final long rank = Math.max(1L, (long) Math.ceil(percentile * total));
+		long seen = 0L;
+		for (int i = 0; i < counts.length; ++i) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return Math.min(upperBound(i), getMaxNanos());
+			}
+		}
+		return getMaxNanos();
+	}
+
+	private static int bucket(long nanos) {
+		// Bucket i holds values in [2^i, 2^(i+1)), with zero counted along with one
+		return Long.SIZE - Long.numberOfLeadingZeros(nanos) - (nanos == 0L ? 0 : 1);
+	}
+
+	private static long upperBound(int bucket) {
+		return bucket >= Long.SIZE - 2 ? Long.MAX_VALUE : (1L << (bucket + 1)) - 1;
+	}
+}
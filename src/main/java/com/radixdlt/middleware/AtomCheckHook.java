@@ -17,13 +17,17 @@
 
 package com.radixdlt.middleware;
 
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableSet;
 import com.radixdlt.atomos.Result;
+import com.radixdlt.common.AID;
 import com.radixdlt.common.Atom;
 import com.radixdlt.crypto.Hash;
 import com.radixdlt.engine.CMSuccessHook;
 import com.radixdlt.universe.Universe;
 import com.radixdlt.utils.POW;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.function.LongSupplier;
 import java.util.function.Supplier;
@@ -34,6 +38,26 @@ public class AtomCheckHook implements CMSuccessHook {
 	private final LongSupplier timestampSupplier;
 	private static final Hash DEFAULT_TARGET = new Hash("0000FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFF");
 	private final int maximumDrift;
+	private volatile UniverseInfo universeInfo;
+
+	/**
+	 * Values derived from a universe, computed once per universe instance.
+	 */
+	private static final class UniverseInfo {
+		private final Universe universe;
+		private final int magic;
+		private final long timestamp;
+		private final Supplier<Set<AID>> genesisAids;
+
+		private UniverseInfo(Universe universe) {
+			this.universe = universe;
+			this.magic = universe.getMagic();
+			this.timestamp = universe.getTimestamp();
+			this.genesisAids = Suppliers.memoize(
+				() -> universe.getGenesis().stream().map(Atom::getAID).collect(ImmutableSet.toImmutableSet())
+			);
+		}
+	}
 
 	public AtomCheckHook(
 		Supplier<Universe> universeSupplier,
@@ -60,11 +84,11 @@ public class AtomCheckHook implements CMSuccessHook {
 		}
 
 		final boolean isMagic = Objects.equals(cmAtom.getAtom().getMetaData().get("magic"), "0xdeadbeef");
+		final UniverseInfo universe = universeInfo();
 
 		// Atom has fee
 		if (!skipAtomFeeCheck) {
-			if (universeSupplier.get().getGenesis().stream().map(Atom::getAID).noneMatch(cmAtom.getAtom().getAID()::equals)
-				&& !isMagic) {
+			if (!isMagic && !universe.genesisAids.get().contains(cmAtom.getAtom().getAID())) {
 
 				String powNonceString = cmAtom.getAtom().getMetaData().get(Atom.METADATA_POW_NONCE_KEY);
 				if (powNonceString == null) {
@@ -79,8 +103,8 @@ public class AtomCheckHook implements CMSuccessHook {
 				}
 
 				final Hash powFeeHash = cmAtom.getAtom().copyExcludingMetadata(Atom.METADATA_POW_NONCE_KEY).getHash();
-				POW pow = new POW(universeSupplier.get().getMagic(), powFeeHash, powNonce);
-				Result powResult = checkPow(pow, powFeeHash, DEFAULT_TARGET, universeSupplier.get().getMagic());
+				POW pow = new POW(universe.magic, powFeeHash, powNonce);
+				Result powResult = checkPow(pow, powFeeHash, DEFAULT_TARGET, universe.magic);
 				if (powResult.isError()) {
 					return powResult;
 				}
@@ -98,7 +122,7 @@ public class AtomCheckHook implements CMSuccessHook {
 				+ TimeUnit.MILLISECONDS.convert(maximumDrift, TimeUnit.SECONDS)) {
 				return Result.error("atom metadata timestamp is after allowed drift time");
 			}
-			if (timestamp < universeSupplier.get().getTimestamp()) {
+			if (timestamp < universe.timestamp) {
 				return Result.error("atom metadata timestamp is before universe creation");
 			}
 		} catch (NumberFormatException e) {
@@ -108,6 +132,17 @@ public class AtomCheckHook implements CMSuccessHook {
 		return Result.success();
 	}
 
+	private UniverseInfo universeInfo() {
+		final Universe universe = universeSupplier.get();
+		UniverseInfo current = this.universeInfo;
+		// Recompute if the supplier has moved on to a different universe
+		if (current == null || current.universe != universe) {
+			current = new UniverseInfo(universe);
+			this.universeInfo = current;
+		}
+		return current;
+	}
+
 	private static Result checkPow(POW pow, Hash hash, Hash target, int universeMagic) {
 		if (!pow.getSeed().equals(hash)) {
 			return Result.error("atom fee invalid: seed does not match validation parameter seed (" + pow.getSeed() + ") + hash(" + hash + ")");
@@ -117,7 +152,7 @@ public class AtomCheckHook implements CMSuccessHook {
 			return Result.error("atom fee invalid: magic '" + pow.getMagic() + "' does not match Universe magic '");
 		}
 
-		if (pow.getHash().compareTo(target) >= 0) {
+		if (!pow.meetsTarget(target)) {
 			return Result.error("atom fee invalid: '" + pow.getHash() + "' does not meet target '" + target + "'");
 		}
 
@@ -24,12 +24,11 @@ import com.radixdlt.common.Atom;
 import com.radixdlt.constraintmachine.DataPointer;
 import com.radixdlt.constraintmachine.CMInstruction;
 import com.radixdlt.constraintmachine.CMMicroInstruction;
+import com.radixdlt.constraintmachine.ParticleHashMap;
 import com.radixdlt.serialization.DsonOutput.Output;
 import com.radixdlt.serialization.Serialization;
 import com.radixdlt.serialization.SerializationException;
 import com.radixdlt.store.SpinStateMachine;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import com.radixdlt.constraintmachine.Particle;
 import com.radixdlt.constraintmachine.Spin;
@@ -57,19 +56,18 @@ public final class RadixEngineUtils {
 	}
 
 	static ImmutableList<CMMicroInstruction> toCMMicroInstructions(List<ParticleGroup> particleGroups) throws CMAtomConversionException {
-		final HashMap<Particle, Spin> spins = new HashMap<>();
+		final ParticleHashMap<Spin> spins = new ParticleHashMap<>();
 		final ImmutableList.Builder<CMMicroInstruction> microInstructionsBuilder = new Builder<>();
 		for (int i = 0; i < particleGroups.size(); i++) {
 			ParticleGroup pg = particleGroups.get(i);
-			final HashSet<Particle> seen = new HashSet<>();
+			final ParticleHashMap<Boolean> seen = new ParticleHashMap<>(pg.getParticleCount());
 			for (int j = 0; j < pg.getParticleCount(); j++) {
 				SpunParticle sp = pg.getSpunParticle(j);
 				Particle particle = sp.getParticle();
 
-				if (seen.contains(particle)) {
+				if (seen.put(particle, Boolean.TRUE) != null) {
 					throw new CMAtomConversionException(DataPointer.ofParticle(i, j), "Particle transition must be unique in group");
 				}
-				seen.add(particle);
 
 				Spin currentSpin = spins.get(particle);
 				if (currentSpin == null) {
@@ -93,7 +91,7 @@ public final class RadixEngineUtils {
 	public static SimpleRadixEngineAtom toCMAtom(Atom atom) throws CMAtomConversionException {
 		final int computedSize;
 		try {
-			computedSize = Serialization.getDefault().toDson(atom, Output.PERSIST).length;
+			computedSize = Serialization.getDefault().mapDson(atom, Output.PERSIST, (bytes, offset, length) -> length);
 		} catch (SerializationException e) {
 			throw new IllegalStateException("Could not compute size", e);
 		}
@@ -0,0 +1,400 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.serialization;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Single pass scanner that checks DSON bytes are in the canonical form
+ * produced by {@link com.radixdlt.serialization.mapper.RadixCBORGenerator},
+ * optionally projecting the properties of serializable objects for an
+ * output mode as it goes.
+ * <p>
+ * Canonical DSON has:
+ * <ul>
+ *   <li>Objects encoded as indefinite length maps with text keys in
+ *       strictly ascending order, and no null or empty values.</li>
+ *   <li>Arrays, text and byte strings encoded with definite, minimally
+ *       encoded lengths.  Text must be valid UTF-8, and byte strings must
+ *       not be empty.</li>
+ *   <li>No duplicate elements in arrays.  Sets are encoded as arrays, and
+ *       would lose a duplicate element when decoded.</li>
+ *   <li>Integers encoded in the fewest bytes possible for values in
+ *       the range of a Java {@code int}, and in eight bytes otherwise.</li>
+ *   <li>No tags, floating point or undefined values, and no trailing bytes.</li>
+ *   <li>Arrays and maps nested no deeper than {@link #MAX_DEPTH}.</li>
+ * </ul>
+ * Bytes in this form decode to a tree or to typed objects and re-encode to
+ * themselves, so properties can be projected by copying byte ranges, rather
+ * than by decoding and re-encoding.
+ */
+final class CanonicalDsonScanner {
+	// Bounds recursion on untrusted input.  Serialized atoms nest well below this.
+	static final int MAX_DEPTH = 64;
+
+	private static final int MAJOR_UINT = 0;
+	private static final int MAJOR_NINT = 1;
+	private static final int MAJOR_BYTES = 2;
+	private static final int MAJOR_TEXT = 3;
+	private static final int MAJOR_ARRAY = 4;
+	private static final int MAJOR_MAP = 5;
+	private static final int MAJOR_SIMPLE = 7;
+
+	private static final int INFO_UINT8 = 24;
+	private static final int INFO_UINT16 = 25;
+	private static final int INFO_UINT32 = 26;
+	private static final int INFO_UINT64 = 27;
+	private static final int INFO_INDEFINITE = 31;
+
+	private static final byte BYTE_FALSE = (byte) 0xF4;
+	private static final byte BYTE_TRUE = (byte) 0xF5;
+	private static final byte BYTE_NULL = (byte) 0xF6;
+	private static final byte BYTE_MAP_INDEFINITE = (byte) 0xBF;
+	private static final byte BYTE_BREAK = (byte) 0xFF;
+
+	// Thrown internally to abandon a scan as soon as non-canonical input is found
+	private static final class NotCanonicalException extends Exception {
+		private static final long serialVersionUID = -4130290557513296476L;
+		private static final NotCanonicalException INSTANCE = new NotCanonicalException();
+
+		private NotCanonicalException() {
+			super(null, null, false, false);
+		}
+	}
+
+	private final byte[] in;
+	private final Function<String, Class<?>> classLookup;
+	private final ImmutableMap<Class<?>, ImmutableSet<String>> includedFields;
+	private final byte[] out;
+	private int inPos = 0;
+	private int outPos = 0;
+	private int depth = 0;
+
+	private CanonicalDsonScanner(byte[] in, Function<String, Class<?>> classLookup, ImmutableMap<Class<?>, ImmutableSet<String>> includedFields) {
+		this.in = in;
+		this.classLookup = classLookup;
+		this.includedFields = includedFields;
+		// Projection only ever removes bytes, so output will never exceed input
+		this.out = includedFields == null ? null : new byte[in.length];
+	}
+
+	/**
+	 * Check whether the specified bytes are canonical DSON.
+	 *
+	 * @param bytes The bytes to check
+	 * @return {@code true} if the bytes are canonical, {@code false} otherwise
+	 */
+	static boolean isCanonical(byte[] bytes) {
+		return new CanonicalDsonScanner(bytes, null, null).scan();
+	}
+
+	/**
+	 * Project the specified canonical DSON bytes to contain only the
+	 * specified properties of serializable objects.  Objects are identified
+	 * using their serializer property.  Maps that are not serializable
+	 * objects have all their entries retained.
+	 *
+	 * @param bytes The canonical DSON bytes to project
+	 * @param classLookup Lookup of class from serializer ID
+	 * @param includedFields The properties to retain for each class
+	 * @return The projected bytes, or {@code null} if the bytes are not canonical DSON
+	 */
+	static byte[] project(byte[] bytes, Function<String, Class<?>> classLookup, ImmutableMap<Class<?>, ImmutableSet<String>> includedFields) {
+		CanonicalDsonScanner scanner = new CanonicalDsonScanner(bytes, classLookup, includedFields);
+		return scanner.scan() ? Arrays.copyOf(scanner.out, scanner.outPos) : null;
+	}
+
+	private boolean scan() {
+		try {
+			scanValue(false);
+			return this.inPos == this.in.length;
+		} catch (NotCanonicalException e) {
+			return false;
+		}
+	}
+
+	private void scanValue(boolean inMap) throws NotCanonicalException {
+		int start = this.inPos;
+		int initial = readByte() & 0xFF;
+		int major = initial >>> 5;
+		int info = initial & 0x1F;
+		switch (major) {
+		case MAJOR_UINT:
+		case MAJOR_NINT:
+			readInteger(info);
+			copy(start);
+			break;
+		case MAJOR_BYTES:
+			skip(nonEmpty(readLength(info)));
+			copy(start);
+			break;
+		case MAJOR_TEXT:
+			int textLength = readLength(info);
+			checkUtf8(this.inPos, inMap ? nonEmpty(textLength) : textLength);
+			skip(textLength);
+			copy(start);
+			break;
+		case MAJOR_ARRAY:
+			int elements = readLength(info);
+			if (inMap) {
+				nonEmpty(elements);
+			}
+			copy(start);
+			enter();
+			Set<ByteBuffer> distinct = elements > 1 ? new HashSet<>() : null;
+			for (int i = 0; i < elements; ++i) {
+				int elementStart = this.inPos;
+				scanValue(false);
+				if (distinct != null && !distinct.add(ByteBuffer.wrap(this.in, elementStart, this.inPos - elementStart))) {
+					throw NotCanonicalException.INSTANCE;
+				}
+			}
+			this.depth -= 1;
+			break;
+		case MAJOR_MAP:
+			if (info != INFO_INDEFINITE) {
+				throw NotCanonicalException.INSTANCE;
+			}
+			enter();
+			scanMap(inMap);
+			this.depth -= 1;
+			break;
+		case MAJOR_SIMPLE:
+			byte simple = (byte) initial;
+			boolean isBoolean = simple == BYTE_FALSE || simple == BYTE_TRUE;
+			// Null values are omitted from objects
+			boolean isArrayNull = simple == BYTE_NULL && !inMap;
+			if (!isBoolean && !isArrayNull) {
+				throw NotCanonicalException.INSTANCE;
+			}
+			copy(start);
+			break;
+		default:
+			// Tags
+			throw NotCanonicalException.INSTANCE;
+		}
+	}
+
+	private void scanMap(boolean inMap) throws NotCanonicalException {
+		write(BYTE_MAP_INDEFINITE);
+		int entriesStart = this.outPos;
+		List<String> keys = new ArrayList<>();
+		List<int[]> entryRanges = this.out == null ? null : new ArrayList<>();
+		String serializerId = null;
+		String previousKey = null;
+		while (peekByte() != BYTE_BREAK) {
+			int entryStart = this.outPos;
+			int keyStart = this.inPos;
+			int initial = readByte() & 0xFF;
+			if (initial >>> 5 != MAJOR_TEXT) {
+				throw NotCanonicalException.INSTANCE;
+			}
+			int keyLength = readLength(initial & 0x1F);
+			String key = decodeUtf8(this.inPos, keyLength);
+			skip(keyLength);
+			if (previousKey != null && previousKey.compareTo(key) >= 0) {
+				throw NotCanonicalException.INSTANCE;
+			}
+			previousKey = key;
+			copy(keyStart);
+
+			int valueStart = this.inPos;
+			scanValue(true);
+			if (SerializerConstants.SERIALIZER_NAME.equals(key) && (this.in[valueStart] & 0xFF) >>> 5 == MAJOR_TEXT) {
+				int idLength = readLengthAt(valueStart);
+				serializerId = decodeUtf8(this.inPos - idLength, idLength);
+			}
+			if (entryRanges != null) {
+				keys.add(key);
+				entryRanges.add(new int[] {entryStart, this.outPos});
+			}
+		}
+		this.inPos += 1;
+		if (inMap && previousKey == null) {
+			// Empty maps are omitted from objects
+			throw NotCanonicalException.INSTANCE;
+		}
+
+		if (entryRanges != null && serializerId != null) {
+			Class<?> cls = this.classLookup.apply(serializerId);
+			if (cls != null) {
+				ImmutableSet<String> retained = this.includedFields.getOrDefault(cls, ImmutableSet.of());
+				int newPos = entriesStart;
+				for (int i = 0; i < keys.size(); ++i) {
+					if (retained.contains(keys.get(i))) {
+						int[] range = entryRanges.get(i);
+						int length = range[1] - range[0];
+						System.arraycopy(this.out, range[0], this.out, newPos, length);
+						newPos += length;
+					}
+				}
+				this.outPos = newPos;
+			}
+		}
+		write(BYTE_BREAK);
+	}
+
+	private void enter() throws NotCanonicalException {
+		this.depth += 1;
+		if (this.depth > MAX_DEPTH) {
+			throw NotCanonicalException.INSTANCE;
+		}
+	}
+
+	private void readInteger(int info) throws NotCanonicalException {
+		if (info == INFO_UINT64) {
+			long value = readBigEndian(Long.BYTES);
+			// Values in int range are written in fewer bytes, and values
+			// beyond the range of a long (negative here) are not produced.
+			if (value <= Integer.MAX_VALUE) {
+				throw NotCanonicalException.INSTANCE;
+			}
+		} else {
+			readLength(info);
+		}
+	}
+
+	private int readLength(int info) throws NotCanonicalException {
+		if (info < INFO_UINT8) {
+			return info;
+		}
+		final long value;
+		final long minimum;
+		switch (info) {
+		case INFO_UINT8:
+			value = readBigEndian(1);
+			minimum = INFO_UINT8;
+			break;
+		case INFO_UINT16:
+			value = readBigEndian(2);
+			minimum = 0x100;
+			break;
+		case INFO_UINT32:
+			value = readBigEndian(4);
+			minimum = 0x10000;
+			break;
+		default:
+			throw NotCanonicalException.INSTANCE;
+		}
+		if (value < minimum || value > Integer.MAX_VALUE) {
+			throw NotCanonicalException.INSTANCE;
+		}
+		return (int) value;
+	}
+
+	// Re-reads the length of an already validated text or byte string at the specified position
+	private int readLengthAt(int position) throws NotCanonicalException {
+		int saved = this.inPos;
+		this.inPos = position;
+		int length = readLength(readByte() & 0x1F);
+		this.inPos = saved;
+		return length;
+	}
+
+	private long readBigEndian(int bytes) throws NotCanonicalException {
+		require(bytes);
+		long value = 0L;
+		for (int i = 0; i < bytes; ++i) {
+			value = (value << 8) | (this.in[this.inPos++] & 0xFFL);
+		}
+		return value;
+	}
+
+	private void checkUtf8(int offset, int length) throws NotCanonicalException {
+		if (!isAscii(offset, length)) {
+			decodeUtf8(offset, length);
+		}
+	}
+
+	private String decodeUtf8(int offset, int length) throws NotCanonicalException {
+		if (isAscii(offset, length)) {
+			return new String(this.in, offset, length, StandardCharsets.US_ASCII);
+		}
+		try {
+			// A fresh decoder reports malformed input, rather than replacing it
+			return StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(this.in, offset, length)).toString();
+		} catch (CharacterCodingException e) {
+			throw NotCanonicalException.INSTANCE;
+		}
+	}
+
+	private boolean isAscii(int offset, int length) throws NotCanonicalException {
+		if (length > this.in.length - offset) {
+			throw NotCanonicalException.INSTANCE;
+		}
+		for (int i = offset; i < offset + length; ++i) {
+			if (this.in[i] < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int nonEmpty(int length) throws NotCanonicalException {
+		if (length == 0) {
+			throw NotCanonicalException.INSTANCE;
+		}
+		return length;
+	}
+
+	private byte readByte() throws NotCanonicalException {
+		require(1);
+		return this.in[this.inPos++];
+	}
+
+	private byte peekByte() throws NotCanonicalException {
+		require(1);
+		return this.in[this.inPos];
+	}
+
+	private void skip(int length) throws NotCanonicalException {
+		require(length);
+		this.inPos += length;
+	}
+
+	private void require(int length) throws NotCanonicalException {
+		if (length > this.in.length - this.inPos) {
+			throw NotCanonicalException.INSTANCE;
+		}
+	}
+
+	// Copy input consumed since the specified position to the output
+	private void copy(int start) {
+		if (this.out != null) {
+			int length = this.inPos - start;
+			System.arraycopy(this.in, start, this.out, this.outPos, length);
+			this.outPos += length;
+		}
+	}
+
+	private void write(byte b) {
+		if (this.out != null) {
+			this.out[this.outPos++] = b;
+		}
+	}
+}
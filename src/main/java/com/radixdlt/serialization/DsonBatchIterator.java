@@ -0,0 +1,80 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.serialization;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.radixdlt.utils.Ints;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterator over the records of a DSON batch, as produced by
+ * {@link Serialization#toDsonBatch(java.util.List, DsonOutput.Output)}.
+ * Each record is only deserialized when it is reached.
+ */
+final class DsonBatchIterator<T> implements Iterator<T> {
+	private final ObjectReader reader;
+	private final byte[] bytes;
+	private int offset;
+
+	DsonBatchIterator(ObjectReader reader, byte[] bytes) throws SerializationException {
+		this.reader = reader;
+		this.bytes = bytes;
+		this.offset = 0;
+		checkFraming(bytes);
+	}
+
+	@Override
+	public boolean hasNext() {
+		return this.offset < this.bytes.length;
+	}
+
+	@Override
+	public T next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		int length = Ints.fromByteArray(this.bytes, this.offset);
+		int start = this.offset + Integer.BYTES;
+		this.offset = start + length;
+		try {
+			return this.reader.readValue(this.bytes, start, length);
+		} catch (IOException ex) {
+			throw new UncheckedIOException(new SerializationException("Error converting from DSON", ex));
+		}
+	}
+
+	// Check record framing up front, so that truncated batches are reported
+	// before any records are consumed.
+	private static void checkFraming(byte[] bytes) throws SerializationException {
+		int offset = 0;
+		while (offset < bytes.length) {
+			if (bytes.length - offset < Integer.BYTES) {
+				throw new SerializationException("Truncated DSON batch record length at offset " + offset);
+			}
+			int length = Ints.fromByteArray(bytes, offset);
+			offset += Integer.BYTES;
+			if (length < 0 || length > bytes.length - offset) {
+				throw new SerializationException("Invalid DSON batch record length " + length + " at offset " + offset);
+			}
+			offset += length;
+		}
+	}
+}
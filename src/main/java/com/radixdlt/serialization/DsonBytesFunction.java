@@ -0,0 +1,40 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.serialization;
+
+/**
+ * A function applied to a region of a byte array containing DSON encoded data.
+ *
+ * @param <T> The result type of the function
+ * @see Serialization#mapDson(Object, DsonOutput.Output, DsonBytesFunction)
+ */
+@FunctionalInterface
+public interface DsonBytesFunction<T> {
+	/**
+	 * Apply this function to the specified DSON encoded bytes.
+	 * <p>
+	 * Note that the array is only valid for the duration of the call, and
+	 * must not be retained by the function.
+	 *
+	 * @param bytes The array containing the DSON encoded bytes
+	 * @param offset The offset of the DSON encoded bytes within the array
+	 * @param length The length of the DSON encoded bytes
+	 * @return The result of the function
+	 */
+	T apply(byte[] bytes, int offset, int length);
+}
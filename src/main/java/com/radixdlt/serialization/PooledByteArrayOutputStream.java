@@ -0,0 +1,83 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.serialization;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * A {@link ByteArrayOutputStream} that is reused by a thread across
+ * serialization calls, so that the output buffer does not need to be
+ * allocated and grown for every object serialized.
+ * <p>
+ * Buffers are obtained with {@link #acquire()} and must be returned with
+ * {@link #release()} once their contents are no longer required.
+ */
+final class PooledByteArrayOutputStream extends ByteArrayOutputStream {
+	private static final int INITIAL_CAPACITY = 4096;
+	// Buffers that have grown beyond this size are not retained, so that
+	// the occasional large object does not pin memory to the thread.
+	private static final int MAX_RETAINED_CAPACITY = 256 * 1024;
+
+	private static final ThreadLocal<PooledByteArrayOutputStream> localBuffer =
+		ThreadLocal.withInitial(PooledByteArrayOutputStream::new);
+
+	private boolean inUse = false;
+
+	private PooledByteArrayOutputStream() {
+		super(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Acquire the calling thread's buffer, or a fresh buffer if the thread's
+	 * buffer is already in use, for example when a getter called during
+	 * serialization serializes another object.
+	 *
+	 * @return An empty buffer
+	 */
+	static PooledByteArrayOutputStream acquire() {
+		PooledByteArrayOutputStream buffer = localBuffer.get();
+		if (buffer.inUse) {
+			buffer = new PooledByteArrayOutputStream();
+		}
+		buffer.inUse = true;
+		return buffer;
+	}
+
+	/**
+	 * Return this buffer for reuse.  The contents of the buffer, including
+	 * any array returned from {@link #array()}, must not be used after this
+	 * call.
+	 */
+	void release() {
+		if (this.buf.length > MAX_RETAINED_CAPACITY) {
+			this.buf = new byte[INITIAL_CAPACITY];
+		}
+		reset();
+		this.inUse = false;
+	}
+
+	/**
+	 * Retrieve the underlying array of this buffer without copying.
+	 * Only the first {@link #size()} bytes of the array are valid.
+	 *
+	 * @return The underlying array
+	 */
+	byte[] array() {
+		return this.buf;
+	}
+}
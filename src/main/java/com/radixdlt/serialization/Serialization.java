@@ -21,19 +21,36 @@ import static com.radixdlt.serialization.mapper.DsonFieldFilter.filterProviderFo
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.radixdlt.serialization.DsonOutput.Output;
 import com.radixdlt.serialization.core.ClasspathScanningSerializationPolicy;
 import com.radixdlt.serialization.core.ClasspathScanningSerializerIds;
+import com.radixdlt.serialization.mapper.DsonFieldFilter;
 import com.radixdlt.serialization.mapper.JacksonCborMapper;
 import com.radixdlt.serialization.mapper.JacksonJsonMapper;
+import com.radixdlt.utils.Ints;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.stream.Collector;
@@ -48,6 +65,9 @@ public class Serialization {
 	private static final Serialization defaultInstance = Serialization.create(ClasspathScanningSerializerIds.create(),
 		ClasspathScanningSerializationPolicy.create());
 
+	// Number of objects serialized by each task when serializing large batches concurrently
+	private static final int BATCH_CHUNK_SIZE = 256;
+
 	public static Serialization getDefault() {
 		return defaultInstance;
 	}
@@ -63,14 +83,17 @@ public class Serialization {
 		return new Serialization(idLookup, policy);
 	}
 
-	private final ImmutableMap<Output, JacksonCborMapper> dsonMappers;
-	private final ImmutableMap<Output, JacksonJsonMapper> jsonMappers;
+	// A single mapper is used for each format, so that classes are only introspected
+	// once and serializers are shared between output modes.  The output mode for a
+	// particular call is supplied to the field filter as a per-call attribute.
+	private final JacksonCborMapper dsonMapper;
+	private final JacksonJsonMapper jsonMapper;
+	private final ImmutableMap<Output, ObjectWriter> dsonWriters;
+	private final ImmutableMap<Output, ObjectWriter> jsonWriters;
+	private final ImmutableMap<Output, ImmutableMap<Class<?>, ImmutableSet<String>>> includedFields;
 
 	private final SerializerIds idLookup;
 
-	private final FilterProvider allProvider;
-	private final FilterProvider noneProvider;
-
 	// Constructor set up to be dependency injection capable at some future date
 	@VisibleForTesting
 	Serialization(SerializerIds idLookup, SerializationPolicy policy) {
@@ -80,27 +103,31 @@ public class Serialization {
 		availableOutputs.remove(Output.ALL);
 		availableOutputs.remove(Output.NONE);
 
-		noneProvider = filterProviderFor(ImmutableMap.of());
 		Map<Class<?>, ImmutableSet<String>> allFields =  availableOutputs.stream()
 				.flatMap(output -> policy.getIncludedFields(output).entrySet().stream())
 				.collect(Collectors.groupingBy(Map.Entry::getKey, flatMapping(e -> e.getValue().stream(), ImmutableSet.toImmutableSet())));
-		allProvider = filterProviderFor(ImmutableMap.copyOf(allFields));
 
-		ImmutableMap.Builder<Output, JacksonCborMapper> dsonBuilder = ImmutableMap.builder();
+		ImmutableMap.Builder<Output, ImmutableMap<Class<?>, ImmutableSet<String>>> fieldsBuilder = ImmutableMap.builder();
 		for (Output e : availableOutputs) {
-			dsonBuilder.put(e, JacksonCborMapper.create(idLookup, filterProviderFor(policy.getIncludedFields(e)), true));
+			fieldsBuilder.put(e, policy.getIncludedFields(e));
 		}
-		dsonBuilder.put(Output.NONE, JacksonCborMapper.create(idLookup, noneProvider, true));
-		dsonBuilder.put(Output.ALL, JacksonCborMapper.create(idLookup, allProvider, true));
-		dsonMappers = dsonBuilder.build();
+		ImmutableMap<Output, ImmutableMap<Class<?>, ImmutableSet<String>>> concreteFields = fieldsBuilder.build();
+		fieldsBuilder.put(Output.NONE, ImmutableMap.of());
+		fieldsBuilder.put(Output.ALL, ImmutableMap.copyOf(allFields));
+		includedFields = fieldsBuilder.build();
 
-		ImmutableMap.Builder<Output, JacksonJsonMapper> jsonBuilder = ImmutableMap.builder();
-		for (Output e : availableOutputs) {
-			jsonBuilder.put(e, JacksonJsonMapper.create(idLookup, filterProviderFor(policy.getIncludedFields(e)), false));
+		FilterProvider filterProvider = filterProviderFor(concreteFields);
+		dsonMapper = JacksonCborMapper.create(idLookup, filterProvider, true);
+		jsonMapper = JacksonJsonMapper.create(idLookup, filterProvider, false);
+
+		ImmutableMap.Builder<Output, ObjectWriter> dsonBuilder = ImmutableMap.builder();
+		ImmutableMap.Builder<Output, ObjectWriter> jsonBuilder = ImmutableMap.builder();
+		for (Output e : Output.values()) {
+			dsonBuilder.put(e, dsonMapper.writer().withAttribute(DsonFieldFilter.OUTPUT_ATTRIBUTE, e));
+			jsonBuilder.put(e, jsonMapper.writer().withAttribute(DsonFieldFilter.OUTPUT_ATTRIBUTE, e));
 		}
-		jsonBuilder.put(Output.NONE, JacksonJsonMapper.create(idLookup, noneProvider, false));
-		jsonBuilder.put(Output.ALL, JacksonJsonMapper.create(idLookup, allProvider, false));
-		jsonMappers = jsonBuilder.build();
+		dsonWriters = dsonBuilder.build();
+		jsonWriters = jsonBuilder.build();
 	}
 
 	/**
@@ -113,13 +140,220 @@ public class Serialization {
 	 * @throws SerializationException if something goes wrong with serialization
 	 */
 	public byte[] toDson(Object o, DsonOutput.Output output) throws SerializationException {
+		return mapDson(o, output, (bytes, offset, length) -> Arrays.copyOfRange(bytes, offset, offset + length));
+	}
+
+	/**
+	 * Write the DSON encoding of the specified object for the specified
+	 * output mode to the specified stream.
+	 * <p>
+	 * Note that the stream is not closed by this method.
+	 *
+	 * @param o The object to serialize
+	 * @param output The output mode to serialize for
+	 * @param out The stream to write the DSON encoded object to
+	 * @return The number of bytes written
+	 * @throws SerializationException if something goes wrong with serialization
+	 */
+	public int toDson(Object o, DsonOutput.Output output, OutputStream out) throws SerializationException {
+		CountingOutputStream counter = new CountingOutputStream(out);
+		writeDson(o, output, counter);
+		return counter.count;
+	}
+
+	/**
+	 * Write the DSON encoding of the specified object for the specified
+	 * output mode into the specified buffer, starting at the buffer's current
+	 * position.  On return the buffer's position is advanced past the encoded
+	 * object.
+	 *
+	 * @param o The object to serialize
+	 * @param output The output mode to serialize for
+	 * @param buffer The buffer to write the DSON encoded object into
+	 * @return The number of bytes written
+	 * @throws SerializationException if something goes wrong with serialization,
+	 * 		or the buffer has insufficient space remaining
+	 */
+	public int toDson(Object o, DsonOutput.Output output, ByteBuffer buffer) throws SerializationException {
+		int start = buffer.position();
 		try {
-			return dsonMapper(output).writeValueAsBytes(o);
-		} catch (JsonProcessingException ex) {
-			throw new SerializationException("Error converting to DSON", ex);
+			writeDson(o, output, new ByteBufferOutputStream(buffer));
+		} catch (BufferOverflowException ex) {
+			buffer.position(start);
+			throw new SerializationException("Insufficient buffer space converting to DSON", ex);
+		}
+		return buffer.position() - start;
+	}
+
+	/**
+	 * Encode the specified object as DSON for the specified output mode into
+	 * a reusable buffer, and apply the specified function to the encoded bytes.
+	 * <p>
+	 * This allows callers that only need to consume the encoded bytes, for
+	 * example to hash them or to determine their length, to avoid allocating
+	 * an exactly sized copy of the encoding.
+	 *
+	 * @param o The object to serialize
+	 * @param output The output mode to serialize for
+	 * @param function The function to apply to the encoded bytes
+	 * @return The result of applying the function
+	 * @throws SerializationException if something goes wrong with serialization
+	 */
+	public <T> T mapDson(Object o, DsonOutput.Output output, DsonBytesFunction<T> function) throws SerializationException {
+		PooledByteArrayOutputStream buffer = PooledByteArrayOutputStream.acquire();
+		try {
+			writeDson(o, output, buffer);
+			return function.apply(buffer.array(), 0, buffer.size());
+		} finally {
+			buffer.release();
 		}
 	}
 
+	/**
+	 * Convert the specified objects to a batch of DSON encoded records for the
+	 * specified output mode.
+	 * <p>
+	 * Records are written to a single contiguous array in list order, each
+	 * prefixed with its length as a four byte big-endian integer.  Batches can
+	 * be decoded using {@link #fromDsonBatch(byte[], Class)}.
+	 *
+	 * @param objects The objects to serialize
+	 * @param output The output mode to serialize for
+	 * @return The serialized objects as a DSON batch
+	 * @throws SerializationException if something goes wrong with serialization
+	 */
+	public byte[] toDsonBatch(List<?> objects, DsonOutput.Output output) throws SerializationException {
+		PooledByteArrayOutputStream buffer = PooledByteArrayOutputStream.acquire();
+		try {
+			writeDsonBatch(objects, output, buffer);
+			return buffer.toByteArray();
+		} finally {
+			buffer.release();
+		}
+	}
+
+	/**
+	 * Convert the specified objects to a batch of DSON encoded records for the
+	 * specified output mode, as for {@link #toDsonBatch(List, DsonOutput.Output)}.
+	 * <p>
+	 * Large batches are split into chunks which are serialized concurrently
+	 * using the specified pool.
+	 *
+	 * @param objects The objects to serialize
+	 * @param output The output mode to serialize for
+	 * @param pool The pool to serialize chunks of large batches with
+	 * @return The serialized objects as a DSON batch
+	 * @throws SerializationException if something goes wrong with serialization
+	 */
+	public byte[] toDsonBatch(List<?> objects, DsonOutput.Output output, ForkJoinPool pool) throws SerializationException {
+		if (objects.size() <= BATCH_CHUNK_SIZE) {
+			return toDsonBatch(objects, output);
+		}
+
+		List<ForkJoinTask<byte[]>> chunks = new ArrayList<>();
+		for (int start = 0; start < objects.size(); start += BATCH_CHUNK_SIZE) {
+			List<?> chunk = objects.subList(start, Math.min(objects.size(), start + BATCH_CHUNK_SIZE));
+			chunks.add(pool.submit(() -> toDsonBatch(chunk, output)));
+		}
+
+		try {
+			List<byte[]> encodedChunks = new ArrayList<>(chunks.size());
+			int totalLength = 0;
+			for (ForkJoinTask<byte[]> chunk : chunks) {
+				byte[] encodedChunk = chunk.get();
+				encodedChunks.add(encodedChunk);
+				totalLength += encodedChunk.length;
+			}
+			byte[] result = new byte[totalLength];
+			int offset = 0;
+			for (byte[] encodedChunk : encodedChunks) {
+				System.arraycopy(encodedChunk, 0, result, offset, encodedChunk.length);
+				offset += encodedChunk.length;
+			}
+			return result;
+		} catch (InterruptedException ex) {
+			chunks.forEach(chunk -> chunk.cancel(true));
+			Thread.currentThread().interrupt();
+			throw new SerializationException("Interrupted converting to DSON", ex);
+		} catch (ExecutionException ex) {
+			chunks.forEach(chunk -> chunk.cancel(true));
+			if (ex.getCause() instanceof SerializationException) {
+				throw (SerializationException) ex.getCause();
+			}
+			throw new SerializationException("Error converting to DSON", ex.getCause());
+		}
+	}
+
+	/**
+	 * Return an iterator over the records of the specified DSON batch, as
+	 * created by {@link #toDsonBatch(List, DsonOutput.Output)}.
+	 * <p>
+	 * The framing of the batch is checked before this method returns, but each
+	 * record is only deserialized as the iterator reaches it.  Deserialization
+	 * failures are reported by the iterator as an {@link java.io.UncheckedIOException}
+	 * wrapping a {@link SerializationException}.
+	 *
+	 * @param bytes The DSON batch to deserialize
+	 * @param valueType The class of the objects in the batch
+	 * @return An iterator over the deserialized objects
+	 * @throws SerializationException if the batch is not correctly framed
+	 */
+	public <T> Iterator<T> fromDsonBatch(byte[] bytes, Class<T> valueType) throws SerializationException {
+		return new DsonBatchIterator<>(dsonMapper.readerFor(valueType), bytes);
+	}
+
+	/**
+	 * Re-encode the specified DSON encoded bytes for the specified output
+	 * mode, without binding the content to any Java classes.
+	 * <p>
+	 * Properties of serializable objects that are not included in the
+	 * specified output mode are removed.  This allows, for example, bytes
+	 * serialized using {@link Output#PERSIST} to be converted to the bytes
+	 * that would have been produced using {@link Output#HASH}.
+	 * Note that the source bytes must have been serialized using an output
+	 * mode that includes all the properties of the specified output mode.
+	 * <p>
+	 * If the source bytes are canonical DSON, see {@link #isCanonicalDson(byte[])},
+	 * the result is produced by copying the retained properties in a single
+	 * pass over the source, without decoding and re-encoding.
+	 *
+	 * @param bytes The DSON encoded object to re-encode
+	 * @param output The output mode to re-encode for
+	 * @return The re-encoded object as a DSON byte array
+	 * @throws SerializationException if something goes wrong with serialization
+	 */
+	public byte[] filterDson(byte[] bytes, DsonOutput.Output output) throws SerializationException {
+		ImmutableMap<Class<?>, ImmutableSet<String>> fields = includedFields.get(output);
+		byte[] projected = CanonicalDsonScanner.project(bytes, idLookup::getClassForId, fields);
+		if (projected != null) {
+			return projected;
+		}
+		try {
+			JsonNode root = dsonMapper.readTree(bytes);
+			filterNode(root, fields);
+			return dsonMapper.writeValueAsBytes(root);
+		} catch (IOException ex) {
+			throw new SerializationException("Error filtering DSON", ex);
+		}
+	}
+
+	/**
+	 * Check whether the specified bytes are canonical DSON, as produced by
+	 * this class.  Canonical DSON decoded to a tree or to typed objects
+	 * re-encodes to exactly the same bytes, so can be filtered and hashed
+	 * without decoding and re-encoding.
+	 * <p>
+	 * Note that arrays with duplicate elements are not canonical, as set
+	 * properties are encoded as arrays and would lose the duplicates when
+	 * decoded.
+	 *
+	 * @param bytes The bytes to check
+	 * @return {@code true} if the bytes are canonical DSON, {@code false} otherwise
+	 */
+	public boolean isCanonicalDson(byte[] bytes) {
+		return CanonicalDsonScanner.isCanonical(bytes);
+	}
+
 	/**
 	 * Convert the specified object to a JSON encoded string for the specified
 	 * output mode.
@@ -131,7 +365,7 @@ public class Serialization {
 	 */
 	public String toJson(Object o, DsonOutput.Output output) throws SerializationException {
 		try {
-			return jsonMapper(output).writeValueAsString(o);
+			return jsonWriter(output).writeValueAsString(o);
 		} catch (JsonProcessingException ex) {
 			throw new SerializationException("Error converting to JSON", ex);
 		}
@@ -146,7 +380,14 @@ public class Serialization {
 	 * @return The serialized object as a JSON string
 	 */
 	public JSONObject toJsonObject(Object o, DsonOutput.Output output) {
-		return jsonMapper(output).convertValue(o, JSONObject.class);
+		// Equivalent to ObjectMapper.convertValue(...), but with the output mode applied
+		try {
+			TokenBuffer buffer = new TokenBuffer(jsonMapper, false);
+			jsonWriter(output).writeValue(buffer, o);
+			return jsonMapper.readValue(buffer.asParser(), JSONObject.class);
+		} catch (IOException ex) {
+			throw new IllegalArgumentException(ex.getMessage(), ex);
+		}
 	}
 
 	/**
@@ -160,7 +401,7 @@ public class Serialization {
 	 */
 	public <T> T fromDson(byte[] bytes, Class<T> valueType) throws SerializationException {
 		try {
-			return dsonMapper(Output.ALL).readValue(bytes, valueType);
+			return dsonMapper.readValue(bytes, valueType);
 		} catch (IOException ex) {
 			throw new SerializationException("Error converting from DSON", ex);
 		}
@@ -177,7 +418,7 @@ public class Serialization {
 	 */
 	public <T> T fromDson(byte[] bytes, DsonJavaType valueType) throws SerializationException {
 		try {
-			return dsonMapper(Output.ALL).readValue(bytes, valueType.javaType());
+			return dsonMapper.readValue(bytes, valueType.javaType());
 		} catch (IOException ex) {
 			throw new SerializationException("Error converting from DSON", ex);
 		}
@@ -194,7 +435,7 @@ public class Serialization {
 	 */
 	public <T> T fromJson(String json, Class<T> valueType) throws SerializationException {
 		try {
-			return jsonMapper(Output.ALL).readValue(json, valueType);
+			return jsonMapper.readValue(json, valueType);
 		} catch (IOException ex) {
 			throw new SerializationException("Error converting from JSON", ex);
 		}
@@ -211,7 +452,7 @@ public class Serialization {
 	 */
 	public <T> T fromJson(String json, JsonJavaType valueType) throws SerializationException {
 		try {
-			return jsonMapper(Output.ALL).readValue(json, valueType.javaType());
+			return jsonMapper.readValue(json, valueType.javaType());
 		} catch (IOException ex) {
 			throw new SerializationException("Error converting from JSON", ex);
 		}
@@ -226,7 +467,7 @@ public class Serialization {
 	 * @return The converted object
 	 */
 	public <T> T fromJsonObject(JSONObject json, Class<T> valueType) {
-		return jsonMapper(Output.ALL).convertValue(json, valueType);
+		return jsonMapper.convertValue(json, valueType);
 	}
 
 	/**
@@ -238,7 +479,7 @@ public class Serialization {
 	 */
 	@SuppressWarnings("rawtypes")
 	public DsonJavaType dsonCollectionType(Class<? extends Collection> collectionClass, Class<?> elementClass) {
-		JavaType type = dsonMappers.get(Output.ALL).getTypeFactory().constructCollectionType(collectionClass, elementClass);
+		JavaType type = dsonMapper.getTypeFactory().constructCollectionType(collectionClass, elementClass);
 		return new DsonJavaType(type);
 	}
 
@@ -251,7 +492,7 @@ public class Serialization {
 	 */
 	@SuppressWarnings("rawtypes")
 	public JsonJavaType jsonCollectionType(Class<? extends Collection> collectionClass, Class<?> elementClass) {
-		JavaType type = jsonMappers.get(Output.ALL).getTypeFactory().constructCollectionType(collectionClass, elementClass);
+		JavaType type = jsonMapper.getTypeFactory().constructCollectionType(collectionClass, elementClass);
 		return new JsonJavaType(type);
 	}
 
@@ -275,12 +516,53 @@ public class Serialization {
 		return idLookup.getClassForId(id);
 	}
 
-	private JacksonCborMapper dsonMapper(Output output) {
-		return dsonMappers.get(output);
+	private void filterNode(JsonNode node, ImmutableMap<Class<?>, ImmutableSet<String>> fields) {
+		if (node.isObject()) {
+			// Serializable objects are identified by their serializer property,
+			// anything else is a map and always has its contents retained.
+			JsonNode serializer = node.get(SerializerConstants.SERIALIZER_NAME);
+			Class<?> cls = serializer != null && serializer.isTextual() ? idLookup.getClassForId(serializer.textValue()) : null;
+			if (cls != null) {
+				((ObjectNode) node).retain(fields.getOrDefault(cls, ImmutableSet.of()));
+			}
+		}
+		if (node.isContainerNode()) {
+			for (JsonNode child : node) {
+				filterNode(child, fields);
+			}
+		}
 	}
 
-	private JacksonJsonMapper jsonMapper(Output output) {
-		return jsonMappers.get(output);
+	private void writeDsonBatch(List<?> objects, Output output, PooledByteArrayOutputStream buffer) throws SerializationException {
+		ObjectWriter writer = dsonWriter(output);
+		byte[] lengthPlaceholder = new byte[Integer.BYTES];
+		for (Object o : objects) {
+			int lengthOffset = buffer.size();
+			buffer.write(lengthPlaceholder, 0, lengthPlaceholder.length);
+			try {
+				writer.writeValue(buffer, o);
+			} catch (IOException ex) {
+				throw new SerializationException("Error converting to DSON", ex);
+			}
+			int length = buffer.size() - lengthOffset - Integer.BYTES;
+			Ints.copyTo(length, buffer.array(), lengthOffset);
+		}
+	}
+
+	private void writeDson(Object o, Output output, OutputStream out) throws SerializationException {
+		try {
+			dsonWriter(output).writeValue(out, o);
+		} catch (IOException ex) {
+			throw new SerializationException("Error converting to DSON", ex);
+		}
+	}
+
+	private ObjectWriter dsonWriter(Output output) {
+		return dsonWriters.get(output);
+	}
+
+	private ObjectWriter jsonWriter(Output output) {
+		return jsonWriters.get(output);
 	}
 
 	private static <T, U, A, R> Collector<T, ?, R> flatMapping(Function<? super T, ? extends Stream<? extends U>> mapper,
@@ -294,4 +576,55 @@ public class Serialization {
 			}
 		}, downstream.combiner(), downstream.finisher(), downstream.characteristics().toArray(new Collector.Characteristics[0]));
 	}
+
+	// Counts bytes written to a caller supplied stream.  Closing is not
+	// propagated, as the stream remains owned by the caller.
+	private static final class CountingOutputStream extends OutputStream {
+		private final OutputStream out;
+		private int count = 0;
+
+		CountingOutputStream(OutputStream out) {
+			this.out = Objects.requireNonNull(out, "out is required");
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			this.out.write(b);
+			this.count += 1;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			this.out.write(b, off, len);
+			this.count += len;
+		}
+
+		@Override
+		public void flush() throws IOException {
+			this.out.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			flush();
+		}
+	}
+
+	private static final class ByteBufferOutputStream extends OutputStream {
+		private final ByteBuffer buffer;
+
+		ByteBufferOutputStream(ByteBuffer buffer) {
+			this.buffer = Objects.requireNonNull(buffer, "buffer is required");
+		}
+
+		@Override
+		public void write(int b) {
+			this.buffer.put((byte) b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			this.buffer.put(b, off, len);
+		}
+	}
 }
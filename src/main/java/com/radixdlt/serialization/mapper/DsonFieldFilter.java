@@ -26,34 +26,84 @@ import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
 import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.radixdlt.serialization.DsonOutput.Output;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
 
 /**
  * A field filter for DSON output modes.
+ * <p>
+ * A single filter serves all output modes.  The output mode for a particular
+ * serialization call is taken from the {@link #OUTPUT_ATTRIBUTE} attribute of
+ * the call, and is checked against a bitmask of the output modes in which each
+ * property is included.  If no output mode is specified, {@link Output#ALL}
+ * is assumed.
  */
 public class DsonFieldFilter extends SimpleBeanPropertyFilter {
-	private final ImmutableMap<Class<?>, ImmutableSet<String>> includedItems;
+	/**
+	 * Per-call attribute key specifying the {@link Output} to filter for.
+	 *
+	 * @see com.fasterxml.jackson.databind.ObjectWriter#withAttribute(Object, Object)
+	 */
+	public static final String OUTPUT_ATTRIBUTE = "dson.output";
+
+	private final ImmutableMap<Class<?>, ImmutableMap<String, Integer>> outputMasks;
 
 	/**
 	 * Create a {@link FilterProvider} with a {@link DsonFieldFilter}
-	 * @param includedFields Set of {@code Class<?>} and field names to include for this filter.
+	 * @param includedFields For each concrete output mode, the set of {@code Class<?>} and
+	 * 		field names to include.  Inclusions for {@link Output#ALL} and {@link Output#NONE}
+	 * 		are derived from the concrete output modes.
 	 * @return A freshly created {@link FilterProvider} with the specified DSON filter included.
 	 */
-	public static FilterProvider filterProviderFor(ImmutableMap<Class<?>, ImmutableSet<String>> includedFields) {
+	public static FilterProvider filterProviderFor(Map<Output, ImmutableMap<Class<?>, ImmutableSet<String>>> includedFields) {
 		return new SimpleFilterProvider().addFilter(MapperConstants.DSON_FILTER_NAME, new DsonFieldFilter(includedFields));
 	}
 
-	DsonFieldFilter(ImmutableMap<Class<?>, ImmutableSet<String>> includedItems) {
-		// No need to make copy of immutable set.
-		this.includedItems = includedItems;
+	/**
+	 * Returns the bitmask for the specified output mode, as used for
+	 * checking property inclusion.
+	 *
+	 * @param output The output mode
+	 * @return The bitmask for the output mode
+	 */
+	static int maskFor(Output output) {
+		switch (output) {
+		case ALL:
+			return ~0;
+		case NONE:
+			return 0;
+		default:
+			return 1 << output.ordinal();
+		}
+	}
+
+	DsonFieldFilter(Map<Output, ImmutableMap<Class<?>, ImmutableSet<String>>> includedItems) {
+		Map<Class<?>, Map<String, Integer>> masks = new HashMap<>();
+		for (Map.Entry<Output, ImmutableMap<Class<?>, ImmutableSet<String>>> outputEntry : includedItems.entrySet()) {
+			Output output = outputEntry.getKey();
+			if (output == Output.ALL || output == Output.NONE) {
+				continue;
+			}
+			int mask = maskFor(output);
+			for (Map.Entry<Class<?>, ImmutableSet<String>> classEntry : outputEntry.getValue().entrySet()) {
+				Map<String, Integer> classMasks = masks.computeIfAbsent(classEntry.getKey(), k -> new HashMap<>());
+				for (String property : classEntry.getValue()) {
+					classMasks.merge(property, mask, (a, b) -> a | b);
+				}
+			}
+		}
+		ImmutableMap.Builder<Class<?>, ImmutableMap<String, Integer>> builder = ImmutableMap.builder();
+		masks.forEach((cls, classMasks) -> builder.put(cls, ImmutableMap.copyOf(classMasks)));
+		this.outputMasks = builder.build();
 	}
 
 	@Override
 	public void serializeAsField(Object pojo, JsonGenerator jgen, SerializerProvider provider, PropertyWriter writer)
 			throws Exception {
-        Object parent = jgen.getOutputContext().getCurrentValue();
-		if (shouldInclude(parent.getClass(), writer.getName())) {
+		Object parent = jgen.getOutputContext().getCurrentValue();
+		if (shouldInclude(parent.getClass(), writer.getName(), outputMask(provider))) {
 			writer.serializeAsField(pojo, jgen, provider);
 		} else if (!jgen.canOmitFields()) { // since 2.3
 			writer.serializeAsOmittedField(pojo, jgen, provider);
@@ -72,12 +122,21 @@ public class DsonFieldFilter extends SimpleBeanPropertyFilter {
 		return true;
 	}
 
-	private boolean shouldInclude(Class<?> cls, String property) {
+	private int outputMask(SerializerProvider provider) {
+		Object output = provider.getAttribute(OUTPUT_ATTRIBUTE);
+		return output == null ? maskFor(Output.ALL) : maskFor((Output) output);
+	}
+
+	private boolean shouldInclude(Class<?> cls, String property, int outputMask) {
 		// Maps and Collection sub-classes always have contents serialised
 		if (Map.class.isAssignableFrom(cls) || Collection.class.isAssignableFrom(cls)) {
 			return true;
 		}
-		ImmutableSet<String> fieldsForClass = this.includedItems.get(cls);
-		return fieldsForClass != null && fieldsForClass.contains(property);
+		ImmutableMap<String, Integer> masksForClass = this.outputMasks.get(cls);
+		if (masksForClass == null) {
+			return false;
+		}
+		Integer propertyMask = masksForClass.get(property);
+		return propertyMask != null && (propertyMask & outputMask) != 0;
 	}
 }
@@ -429,7 +429,8 @@ public class Universe {
 
 	private Hash doGetHash() {
 		try {
-			return new Hash(Hash.hash256(Serialization.getDefault().toDson(this, Output.HASH)));
+			return Serialization.getDefault().mapDson(this, Output.HASH,
+				(bytes, offset, length) -> new Hash(Hash.hash256(bytes, offset, length)));
 		} catch (Exception e) {
 			throw new RuntimeException("Error generating hash: " + e, e);
 		}
@@ -17,6 +17,7 @@
 
 package com.radixdlt.utils;
 
+import java.util.Arrays;
 import java.util.Objects;
 
 /**
@@ -136,4 +137,30 @@ public final class Longs {
 		}
 		return longArray;
 	}
+
+	/**
+	 * Sort the first {@code length} elements of the given array in unsigned
+	 * order, and remove duplicates. The given array is not modified.
+	 * @param values The array to sort
+	 * @param length The number of elements of {@code values} to sort
+	 * @return A new array of the distinct elements, in ascending unsigned order
+	 */
+	public static long[] toSortedUnsignedSet(long[] values, int length) {
+		// Flipping the sign bit maps unsigned order onto signed order
+		long[] sorted = new long[length];
+		for (int i = 0; i < length; i++) {
+			sorted[i] = values[i] ^ Long.MIN_VALUE;
+		}
+		Arrays.sort(sorted);
+		int distinct = 0;
+		for (int i = 0; i < length; i++) {
+			if (distinct == 0 || sorted[i] != sorted[distinct - 1]) {
+				sorted[distinct++] = sorted[i];
+			}
+		}
+		for (int i = 0; i < distinct; i++) {
+			sorted[i] ^= Long.MIN_VALUE;
+		}
+		return distinct == length ? sorted : Arrays.copyOf(sorted, distinct);
+	}
 }
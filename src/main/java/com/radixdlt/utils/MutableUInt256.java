@@ -0,0 +1,262 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.utils;
+
+/**
+ * A mutable 256-bit unsigned integer accumulator, held as four {@code long} words.
+ * <p>
+ * Arithmetic is performed in place, so a sequence of additions, subtractions
+ * and comparisons allocates nothing until the result is frozen with
+ * {@link #toUInt256()}.
+ * <p>
+ * Note that this class is not thread safe.
+ */
+public final class MutableUInt256 implements Comparable<MutableUInt256> {
+	private static final String OVERFLOW = "overflow";
+	private static final String UNDERFLOW = "underflow";
+
+	// Most significant word first
+	private long word3;
+	private long word2;
+	private long word1;
+	private long word0;
+
+	/**
+	 * Creates an accumulator with the value zero.
+	 */
+	public MutableUInt256() {
+		// Nothing to do, all words are zero
+	}
+
+	/**
+	 * Creates an accumulator with the specified initial value.
+	 *
+	 * @param value The initial value
+	 * @return A new accumulator holding {@code value}
+	 */
+	public static MutableUInt256 from(UInt256 value) {
+		return new MutableUInt256().set(value);
+	}
+
+	/**
+	 * Sets the value of this accumulator.
+	 *
+	 * @param value The new value
+	 * @return {@code this}
+	 */
+	public MutableUInt256 set(UInt256 value) {
+		this.word3 = value.getHigh().getHigh();
+		this.word2 = value.getHigh().getLow();
+		this.word1 = value.getLow().getHigh();
+		this.word0 = value.getLow().getLow();
+		return this;
+	}
+
+	/**
+	 * Adds {@code other} to this accumulator, wrapping on overflow
+	 * in the same way as {@link UInt256#add(UInt256)}.
+	 *
+	 * @param other The addend
+	 * @return {@code this}
+	 */
+	public MutableUInt256 add(UInt256 other) {
+		addWords(other.getHigh().getHigh(), other.getHigh().getLow(), other.getLow().getHigh(), other.getLow().getLow());
+		return this;
+	}
+
+	/**
+	 * Adds {@code other} to this accumulator, throwing an exception if
+	 * overflow occurs. The value is unchanged if an exception is thrown.
+	 *
+	 * @param other The addend
+	 * @return {@code this}
+	 * @throws ArithmeticException if an overflow occurs
+	 */
+	public MutableUInt256 addWithOverflow(UInt256 other) {
+		if (addWordsWithOverflow(other.getHigh().getHigh(), other.getHigh().getLow(), other.getLow().getHigh(), other.getLow().getLow())) {
+			throw new ArithmeticException(OVERFLOW);
+		}
+		return this;
+	}
+
+	/**
+	 * Adds {@code other} to this accumulator, throwing an exception if
+	 * overflow occurs. The value is unchanged if an exception is thrown.
+	 *
+	 * @param other The addend
+	 * @return {@code this}
+	 * @throws ArithmeticException if an overflow occurs
+	 */
+	public MutableUInt256 addWithOverflow(MutableUInt256 other) {
+		if (addWordsWithOverflow(other.word3, other.word2, other.word1, other.word0)) {
+			throw new ArithmeticException(OVERFLOW);
+		}
+		return this;
+	}
+
+	/**
+	 * Subtracts {@code other} from this accumulator, wrapping on underflow
+	 * in the same way as {@link UInt256#subtract(UInt256)}.
+	 *
+	 * @param other The subtrahend
+	 * @return {@code this}
+	 */
+	public MutableUInt256 subtract(UInt256 other) {
+		subtractWords(other.getHigh().getHigh(), other.getHigh().getLow(), other.getLow().getHigh(), other.getLow().getLow());
+		return this;
+	}
+
+	/**
+	 * Subtracts {@code other} from this accumulator, throwing an exception if
+	 * underflow occurs. The value is unchanged if an exception is thrown.
+	 *
+	 * @param other The subtrahend
+	 * @return {@code this}
+	 * @throws ArithmeticException if an underflow occurs
+	 */
+	public MutableUInt256 subtractWithUnderflow(UInt256 other) {
+		if (subtractWordsWithUnderflow(other.getHigh().getHigh(), other.getHigh().getLow(), other.getLow().getHigh(), other.getLow().getLow())) {
+			throw new ArithmeticException(UNDERFLOW);
+		}
+		return this;
+	}
+
+	/**
+	 * Compares this accumulator with the specified value.
+	 *
+	 * @param other The value to compare with
+	 * @return A negative number, zero or a positive number as this accumulator is
+	 * 		less than, equal to or greater than {@code other}
+	 */
+	public int compareTo(UInt256 other) {
+		return compareWords(other.getHigh().getHigh(), other.getHigh().getLow(), other.getLow().getHigh(), other.getLow().getLow());
+	}
+
+	@Override
+	public int compareTo(MutableUInt256 other) {
+		return compareWords(other.word3, other.word2, other.word1, other.word0);
+	}
+
+	public boolean isZero() {
+		return (this.word3 | this.word2 | this.word1 | this.word0) == 0L;
+	}
+
+	/**
+	 * Freezes the current value of this accumulator.
+	 *
+	 * @return An immutable {@link UInt256} with the current value
+	 */
+	public UInt256 toUInt256() {
+		return UInt256.from(UInt128.from(this.word3, this.word2), UInt128.from(this.word1, this.word0));
+	}
+
+	/**
+	 * Adds the words in place, returning {@code true} and leaving the value
+	 * unchanged if the result overflows.
+	 */
+	private boolean addWordsWithOverflow(long other3, long other2, long other1, long other0) {
+		if (addWords(other3, other2, other1, other0)) {
+			// Wrapping back restores the original value
+			subtractWords(other3, other2, other1, other0);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Subtracts the words in place, returning {@code true} and leaving the value
+	 * unchanged if the result underflows.
+	 */
+	private boolean subtractWordsWithUnderflow(long other3, long other2, long other1, long other0) {
+		if (subtractWords(other3, other2, other1, other0)) {
+			// Wrapping back restores the original value
+			addWords(other3, other2, other1, other0);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Adds the words in place, wrapping on overflow, and returns {@code true} if
+	 * there was a carry out of the most significant word.
+	 */
+	private boolean addWords(long other3, long other2, long other1, long other0) {
+		final long sum0 = this.word0 + other0;
+		final long carry0 = carry(this.word0, other0, sum0);
+		final long sum1 = this.word1 + other1 + carry0;
+		final long carry1 = carry(this.word1, other1, sum1);
+		final long sum2 = this.word2 + other2 + carry1;
+		final long carry2 = carry(this.word2, other2, sum2);
+		final long sum3 = this.word3 + other3 + carry2;
+		final long carry3 = carry(this.word3, other3, sum3);
+		this.word0 = sum0;
+		this.word1 = sum1;
+		this.word2 = sum2;
+		this.word3 = sum3;
+		return carry3 != 0L;
+	}
+
+	/**
+	 * Subtracts the words in place, wrapping on underflow, and returns {@code true}
+	 * if there was a borrow out of the most significant word.
+	 */
+	private boolean subtractWords(long other3, long other2, long other1, long other0) {
+		final long diff0 = this.word0 - other0;
+		final long borrow0 = borrow(this.word0, other0, diff0);
+		final long diff1 = this.word1 - other1 - borrow0;
+		final long borrow1 = borrow(this.word1, other1, diff1);
+		final long diff2 = this.word2 - other2 - borrow1;
+		final long borrow2 = borrow(this.word2, other2, diff2);
+		final long diff3 = this.word3 - other3 - borrow2;
+		final long borrow3 = borrow(this.word3, other3, diff3);
+		this.word0 = diff0;
+		this.word1 = diff1;
+		this.word2 = diff2;
+		this.word3 = diff3;
+		return borrow3 != 0L;
+	}
+
+	private int compareWords(long other3, long other2, long other1, long other0) {
+		int cmp = Long.compareUnsigned(this.word3, other3);
+		if (cmp == 0) {
+			cmp = Long.compareUnsigned(this.word2, other2);
+			if (cmp == 0) {
+				cmp = Long.compareUnsigned(this.word1, other1);
+				if (cmp == 0) {
+					cmp = Long.compareUnsigned(this.word0, other0);
+				}
+			}
+		}
+		return cmp;
+	}
+
+	// Carry out of a + b + carry in, given the sum
+	private static long carry(long a, long b, long sum) {
+		return ((a & b) | ((a | b) & ~sum)) >>> (Long.SIZE - 1);
+	}
+
+	// Borrow out of a - b - borrow in, given the difference
+	private static long borrow(long a, long b, long diff) {
+		return ((~a & b) | ((~a | b) & diff)) >>> (Long.SIZE - 1);
+	}
+
+	@Override
+	public String toString() {
+		return toUInt256().toString();
+	}
+}
@@ -18,14 +18,19 @@
 package com.radixdlt.utils;
 
 import com.radixdlt.crypto.Hash;
-import java.nio.ByteBuffer;
 import java.util.Objects;
 
 public class POW {
+	// magic || seed || nonce
+	static final int INPUT_BYTES = Integer.BYTES + Hash.BYTES + Long.BYTES;
+	static final int NONCE_OFFSET = Integer.BYTES + Hash.BYTES;
+
+	// Input followed by the hash output, confined to the thread
+	private static final ThreadLocal<byte[]> scratch = ThreadLocal.withInitial(() -> new byte[INPUT_BYTES + Hash.BYTES]);
+
 	private final int magic;
 	private final Hash seed;
 	private final long nonce;
-	private final ByteBuffer buffer = ByteBuffer.allocate(32 + 4 + Long.BYTES);
 
 	public POW(int magic, Hash seed) {
 		this(magic, seed, Long.MIN_VALUE);
@@ -39,6 +44,50 @@ public class POW {
 		this.nonce = nonce;
 	}
 
+	/**
+	 * Checks whether the proof of work hash for the specified parameters is
+	 * strictly below the specified target.
+	 * <p>
+	 * Note that this method does not allocate, and is safe to call concurrently.
+	 *
+	 * @param magic The universe magic
+	 * @param seed The seed
+	 * @param nonce The nonce
+	 * @param target The target
+	 * @return {@code true} if the hash is below {@code target}, {@code false} otherwise
+	 */
+	public static boolean meetsTarget(int magic, Hash seed, long nonce, Hash target) {
+		final byte[] buffer = scratch.get();
+		hash(magic, seed, nonce, buffer);
+		return isBelow(buffer, INPUT_BYTES, target.toByteArray());
+	}
+
+	/**
+	 * Compares a 32-byte hash at the specified offset with a target as
+	 * unsigned big-endian numbers, a long at a time.
+	 */
+	static boolean isBelow(byte[] hash, int offset, byte[] target) {
+		for (int i = 0; i < Hash.BYTES; i += Long.BYTES) {
+			final long hashWord = Longs.fromByteArray(hash, offset + i);
+			final long targetWord = Longs.fromByteArray(target, i);
+			if (hashWord != targetWord) {
+				return Long.compareUnsigned(hashWord, targetWord) < 0;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Writes magic || seed || nonce to the start of the buffer, and the hash of
+	 * that input directly after it.
+	 */
+	private static void hash(int magic, Hash seed, long nonce, byte[] buffer) {
+		Ints.copyTo(magic, buffer, 0);
+		seed.copyTo(buffer, Integer.BYTES);
+		Longs.copyTo(nonce, buffer, NONCE_OFFSET);
+		Hash.hash256(buffer, 0, INPUT_BYTES, buffer, INPUT_BYTES);
+	}
+
 	public int getMagic() {
 		return magic;
 	}
@@ -51,13 +100,13 @@ public class POW {
 		return nonce;
 	}
 
-	public synchronized Hash getHash() {
-		buffer.clear();
-		buffer.putInt(magic);
-		buffer.put(seed.toByteArray());
-		buffer.putLong(nonce);
-		buffer.flip();
+	public boolean meetsTarget(Hash target) {
+		return meetsTarget(magic, seed, nonce, target);
+	}
 
-		return new Hash(Hash.hash256(buffer.array()));
+	public Hash getHash() {
+		final byte[] buffer = scratch.get();
+		hash(magic, seed, nonce, buffer);
+		return new Hash(buffer, INPUT_BYTES, Hash.BYTES);
 	}
 }
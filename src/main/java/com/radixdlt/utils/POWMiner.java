@@ -0,0 +1,194 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.utils;
+
+import com.radixdlt.crypto.Hash;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Searches for a {@link POW} nonce whose hash is below a target, splitting
+ * the nonce space across a number of worker threads.
+ * <p>
+ * Each worker owns its buffer and uses its own thread's digests, so workers
+ * do not contend with each other, and do not allocate while searching.
+ */
+public final class POWMiner {
+	// Number of hashes between checks for cancellation and updates to the hash count
+	private static final int CHECK_INTERVAL = 1024;
+
+	private final int workers;
+
+	/**
+	 * Creates a miner using one worker per available processor.
+	 */
+	public POWMiner() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a miner using the specified number of workers.
+	 *
+	 * @param workers The number of worker threads to mine with
+	 */
+	public POWMiner(int workers) {
+		if (workers < 1) {
+			throw new IllegalArgumentException("workers must be positive: " + workers);
+		}
+		this.workers = workers;
+	}
+
+	/**
+	 * Starts mining for a nonce meeting the specified target.
+	 * The returned task can be used to wait for the result, to cancel mining,
+	 * and to monitor progress.
+	 *
+	 * @param magic The universe magic
+	 * @param seed The seed to mine for
+	 * @param target The target the hash must be strictly below
+	 * @return The running mining task
+	 */
+	public MiningTask start(int magic, Hash seed, Hash target) {
+		MiningTask task = new MiningTask(magic, Objects.requireNonNull(seed), Objects.requireNonNull(target));
+		for (int i = 0; i < workers; ++i) {
+			Thread worker = new Thread(task.worker(i, workers), "pow-miner-" + i);
+			worker.setDaemon(true);
+			worker.start();
+		}
+		return task;
+	}
+
+	/**
+	 * Mines for a nonce meeting the specified target, waiting at most the
+	 * specified time. Mining is cancelled if the time is exceeded.
+	 *
+	 * @param magic The universe magic
+	 * @param seed The seed to mine for
+	 * @param target The target the hash must be strictly below
+	 * @param timeout The maximum time to wait
+	 * @param unit The unit of {@code timeout}
+	 * @return The proof of work found
+	 * @throws TimeoutException if no nonce was found in time
+	 * @throws InterruptedException if the current thread was interrupted while waiting
+	 */
+	public POW mine(int magic, Hash seed, Hash target, long timeout, TimeUnit unit) throws TimeoutException, InterruptedException {
+		MiningTask task = start(magic, seed, target);
+		try {
+			return task.getResult().get(timeout, unit);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Error mining proof of work", e.getCause());
+		} finally {
+			task.cancel();
+		}
+	}
+
+	/**
+	 * A running search for a nonce.
+	 */
+	public static final class MiningTask {
+		private final int magic;
+		private final Hash seed;
+		private final byte[] target;
+		private final CompletableFuture<POW> result = new CompletableFuture<>();
+		private final LongAdder hashCount = new LongAdder();
+		private final long startNanos = System.nanoTime();
+		private volatile long endNanos;
+
+		private MiningTask(int magic, Hash seed, Hash target) {
+			this.magic = magic;
+			this.seed = seed;
+			this.target = target.toByteArray();
+		}
+
+		private Runnable worker(int index, int stride) {
+			return () -> {
+				// magic || seed || nonce, as hashed by POW, followed by the hash
+				final byte[] buffer = new byte[POW.INPUT_BYTES + Hash.BYTES];
+				Ints.copyTo(magic, buffer, 0);
+				seed.copyTo(buffer, Integer.BYTES);
+
+				try {
+					long nonce = Long.MIN_VALUE + index;
+					while (!result.isDone()) {
+						for (int i = 0; i < CHECK_INTERVAL; ++i, nonce += stride) {
+							Longs.copyTo(nonce, buffer, POW.NONCE_OFFSET);
+							Hash.hash256(buffer, 0, POW.INPUT_BYTES, buffer, POW.INPUT_BYTES);
+							if (POW.isBelow(buffer, POW.INPUT_BYTES, target)) {
+								hashCount.add(i + 1L);
+								complete(new POW(magic, seed, nonce));
+								return;
+							}
+						}
+						hashCount.add(CHECK_INTERVAL);
+					}
+				} catch (RuntimeException e) {
+					result.completeExceptionally(e);
+				}
+			};
+		}
+
+		private void complete(POW pow) {
+			if (result.complete(pow)) {
+				this.endNanos = System.nanoTime();
+			}
+		}
+
+		/**
+		 * Returns a future which completes with the proof of work found, or
+		 * is cancelled if mining is cancelled.
+		 */
+		public CompletableFuture<POW> getResult() {
+			return result;
+		}
+
+		/**
+		 * Stops all workers. Has no effect if a result has already been found.
+		 *
+		 * @return {@code true} if this call cancelled mining
+		 */
+		public boolean cancel() {
+			if (result.completeExceptionally(new CancellationException("Mining cancelled"))) {
+				this.endNanos = System.nanoTime();
+				return true;
+			}
+			return false;
+		}
+
+		/**
+		 * Returns the approximate number of hashes computed so far.
+		 */
+		public long getHashCount() {
+			return hashCount.sum();
+		}
+
+		/**
+		 * Returns the approximate rate of hashing across all workers, measured
+		 * until mining completed, or until now if still running.
+		 */
+		public double getHashesPerSecond() {
+			long end = result.isDone() && endNanos != 0L ? endNanos : System.nanoTime();
+			long elapsedNanos = Math.max(1L, end - startNanos);
+			return getHashCount() * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+		}
+	}
+}
@@ -47,11 +47,7 @@ public final class UIntUtils {
 	 * @throws ArithmeticException if an overflow occurs
 	 */
 	public static UInt256 addWithOverflow(UInt256 addend, UInt256 augend) {
-		UInt256 maxAddend = UInt256.MAX_VALUE.subtract(augend);
-		if (maxAddend.compareTo(addend) < 0) {
-			throw new ArithmeticException(OVERFLOW);
-		}
-		return addend.add(augend);
+		return MutableUInt256.from(addend).addWithOverflow(augend).toUInt256();
 	}
 
 	/**
@@ -98,11 +94,7 @@ public final class UIntUtils {
 	 * @throws ArithmeticException if an underflow occurs
 	 */
 	public static UInt256 subtractWithUnderflow(UInt256 minuend, UInt256 subtrahend) {
-		UInt256 minMinuend = UInt256.MIN_VALUE.add(minuend);
-		if (minMinuend.compareTo(subtrahend) < 0) {
-			throw new ArithmeticException(UNDERFLOW);
-		}
-		return minuend.subtract(subtrahend);
+		return MutableUInt256.from(minuend).subtractWithUnderflow(subtrahend).toUInt256();
 	}
 
 	/**
@@ -0,0 +1,589 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+
+package com.radixdlt.workload;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.radixdlt.atommodel.message.MessageParticle;
+import com.radixdlt.atommodel.message.MessageParticleConstraintScrypt;
+import com.radixdlt.atommodel.tokens.MutableSupplyTokenDefinitionParticle;
+import com.radixdlt.atommodel.tokens.MutableSupplyTokenDefinitionParticle.TokenTransition;
+import com.radixdlt.atommodel.tokens.TokenPermission;
+import com.radixdlt.atommodel.tokens.TokensConstraintScrypt;
+import com.radixdlt.atommodel.tokens.TransferrableTokensParticle;
+import com.radixdlt.atommodel.tokens.UnallocatedTokensParticle;
+import com.radixdlt.atommodel.unique.UniqueParticle;
+import com.radixdlt.atommodel.unique.UniqueParticleConstraintScrypt;
+import com.radixdlt.atomos.CMAtomOS;
+import com.radixdlt.atomos.RRI;
+import com.radixdlt.atomos.RRIParticle;
+import com.radixdlt.atomos.RadixAddress;
+import com.radixdlt.common.Atom;
+import com.radixdlt.crypto.CryptoException;
+import com.radixdlt.crypto.ECKeyPair;
+import com.radixdlt.crypto.Hash;
+import com.radixdlt.middleware.ParticleGroup;
+import com.radixdlt.middleware.SpunParticle;
+import com.radixdlt.utils.Ints;
+import com.radixdlt.utils.Longs;
+import com.radixdlt.utils.UInt256;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Generates streams of validly signed atoms for load and soak testing a
+ * {@link com.radixdlt.engine.RadixEngine} loaded with the token, unique
+ * particle and message scrypts.
+ * <p>
+ * The generator keeps track of the token balances of a fixed set of
+ * accounts, so that each generated atom is valid if the genesis atoms and
+ * all previously generated atoms have been stored in order. The exception
+ * is {@link WorkloadAtom.Type#DOUBLE_SPEND} atoms, which spend tokens an
+ * earlier atom has already spent and are expected to be rejected with a
+ * state conflict.
+ * <p>
+ * Keys and genesis atoms are generated when the workload is built, and
+ * {@link #generate(int)} builds and signs a whole batch of atoms up front,
+ * so that the generator is not the bottleneck when the atoms are submitted.
+ * <p>
+ * Note that instances of this class are not thread safe.
+ */
+public final class AtomWorkload {
+	private static final String TOKEN_SYMBOL = "LOAD";
+	private static final Map<TokenTransition, TokenPermission> TOKEN_PERMISSIONS = ImmutableMap.of(
+		TokenTransition.MINT, TokenPermission.TOKEN_OWNER_ONLY,
+		TokenTransition.BURN, TokenPermission.NONE
+	);
+	private static final UInt256 INITIAL_BALANCE = UInt256.from(1_000_000_000_000L);
+	private static final int MAX_MINT_AMOUNT = 1_000_000;
+	private static final int MAX_TRANSFER_AMOUNT = 1_000;
+	private static final int MAX_PAYMENT_AMOUNT = 100;
+	// Outputs per genesis mint atom, so that genesis atoms stay a reasonable size
+	private static final int GENESIS_MINT_OUTPUTS = 64;
+	// Number of spent balances remembered as candidates for double spends
+	private static final int MAX_SPENT_HISTORY = 1024;
+
+	/**
+	 * Builder for {@link AtomWorkload} instances.
+	 */
+	public static final class Builder {
+		private long seed = 0L;
+		private int keyCount = 100;
+		private double hotAccountSkew = 0.0;
+		private int paymentOutputs = 8;
+		private int messageBytes = 64;
+		private int oversizedBytes = 1 << 20;
+		private byte magic = 0;
+		private Long timestamp = null;
+		private final EnumMap<WorkloadAtom.Type, Integer> mix = new EnumMap<>(WorkloadAtom.Type.class);
+
+		public Builder() {
+			mix.put(WorkloadAtom.Type.MINT, 5);
+			mix.put(WorkloadAtom.Type.TRANSFER, 55);
+			mix.put(WorkloadAtom.Type.PAYMENT, 15);
+			mix.put(WorkloadAtom.Type.DOUBLE_SPEND, 3);
+			mix.put(WorkloadAtom.Type.UNIQUE, 5);
+			mix.put(WorkloadAtom.Type.MESSAGE, 15);
+			mix.put(WorkloadAtom.Type.OVERSIZED, 2);
+		}
+
+		/**
+		 * Sets the seed from which keys and the choice of atoms are derived.
+		 * Defaults to {@code 0}.
+		 */
+		public Builder setSeed(long seed) {
+			this.seed = seed;
+			return this;
+		}
+
+		/**
+		 * Sets the number of accounts in the workload. Defaults to {@code 100}.
+		 */
+		public Builder setKeyCount(int keyCount) {
+			if (keyCount < 2) {
+				throw new IllegalArgumentException("Must have at least two keys: " + keyCount);
+			}
+			this.keyCount = keyCount;
+			return this;
+		}
+
+		/**
+		 * Sets the skew towards hot accounts, as the exponent of a Zipf
+		 * distribution over the accounts. Zero, the default, picks accounts
+		 * uniformly, while larger values concentrate activity on fewer accounts.
+		 */
+		public Builder setHotAccountSkew(double hotAccountSkew) {
+			if (hotAccountSkew < 0.0 || Double.isNaN(hotAccountSkew) || Double.isInfinite(hotAccountSkew)) {
+				throw new IllegalArgumentException("Invalid hot account skew: " + hotAccountSkew);
+			}
+			this.hotAccountSkew = hotAccountSkew;
+			return this;
+		}
+
+		/**
+		 * Sets the relative weight of atoms of the given type. A weight of zero
+		 * means no atoms of that type are generated.
+		 */
+		public Builder setMix(WorkloadAtom.Type type, int weight) {
+			if (weight < 0) {
+				throw new IllegalArgumentException("Weight must not be negative: " + weight);
+			}
+			this.mix.put(type, weight);
+			return this;
+		}
+
+		/**
+		 * Sets the number of recipients of each {@link WorkloadAtom.Type#PAYMENT} atom.
+		 * Defaults to {@code 8}.
+		 */
+		public Builder setPaymentOutputs(int paymentOutputs) {
+			if (paymentOutputs < 1) {
+				throw new IllegalArgumentException("Must have at least one payment output: " + paymentOutputs);
+			}
+			this.paymentOutputs = paymentOutputs;
+			return this;
+		}
+
+		/**
+		 * Sets the payload size of {@link WorkloadAtom.Type#MESSAGE} atoms.
+		 * Defaults to {@code 64} bytes.
+		 */
+		public Builder setMessageBytes(int messageBytes) {
+			if (messageBytes < 0) {
+				throw new IllegalArgumentException("Message size must not be negative: " + messageBytes);
+			}
+			this.messageBytes = messageBytes;
+			return this;
+		}
+
+		/**
+		 * Sets the payload size of {@link WorkloadAtom.Type#OVERSIZED} atoms.
+		 * Defaults to 1 MiB.
+		 */
+		public Builder setOversizedBytes(int oversizedBytes) {
+			if (oversizedBytes < 0) {
+				throw new IllegalArgumentException("Oversized message size must not be negative: " + oversizedBytes);
+			}
+			this.oversizedBytes = oversizedBytes;
+			return this;
+		}
+
+		/**
+		 * Sets the magic byte of the account addresses. Defaults to {@code 0}.
+		 */
+		public Builder setMagic(byte magic) {
+			this.magic = magic;
+			return this;
+		}
+
+		/**
+		 * Sets the timestamp of generated atoms. Defaults to the time at which
+		 * the workload is built.
+		 */
+		public Builder setTimestamp(long timestamp) {
+			this.timestamp = timestamp;
+			return this;
+		}
+
+		/**
+		 * Builds the workload, generating the keys and genesis atoms.
+		 *
+		 * @return The workload
+		 * @throws CryptoException if a key could not be created or a genesis atom could not be signed
+		 */
+		public AtomWorkload build() throws CryptoException {
+			if (mix.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+				throw new IllegalStateException("At least one atom type must have a positive weight");
+			}
+			return new AtomWorkload(this);
+		}
+	}
+
+	/**
+	 * An unsigned atom, waiting to be signed along with the rest of its batch.
+	 */
+	private static final class UnsignedAtom {
+		private final WorkloadAtom.Type type;
+		private final Atom atom;
+		private final ECKeyPair signer;
+
+		private UnsignedAtom(WorkloadAtom.Type type, Atom atom, ECKeyPair signer) {
+			this.type = type;
+			this.atom = atom;
+			this.signer = signer;
+		}
+	}
+
+	/**
+	 * A balance which has been spent, along with the account which spent it.
+	 */
+	private static final class SpentBalance {
+		private final int account;
+		private final TransferrableTokensParticle balance;
+
+		private SpentBalance(int account, TransferrableTokensParticle balance) {
+			this.account = account;
+			this.balance = balance;
+		}
+	}
+
+	private final Random random;
+	private final long timestamp;
+	private final double[] cumulativeAccountWeights;
+	private final WorkloadAtom.Type[] types;
+	private final int[] cumulativeTypeWeights;
+	private final int paymentOutputs;
+	private final int messageBytes;
+	private final int oversizedBytes;
+
+	private final ImmutableList<ECKeyPair> keys;
+	private final ImmutableList<RadixAddress> addresses;
+	private final ECKeyPair tokenOwner;
+	private final RRI tokenRef;
+	private final List<Deque<TransferrableTokensParticle>> balances;
+	private final List<SpentBalance> spentBalances = new ArrayList<>();
+	private final ImmutableList<Atom> genesis;
+
+	private UnallocatedTokensParticle unallocated;
+	private long sequence = 0L;
+
+	private AtomWorkload(Builder builder) throws CryptoException {
+		this.random = new Random(builder.seed);
+		this.timestamp = builder.timestamp == null ? System.currentTimeMillis() : builder.timestamp;
+		this.paymentOutputs = Math.min(builder.paymentOutputs, builder.keyCount - 1);
+		this.messageBytes = builder.messageBytes;
+		this.oversizedBytes = builder.oversizedBytes;
+
+		this.types = builder.mix.entrySet().stream()
+			.filter(e -> e.getValue() > 0)
+			.map(Map.Entry::getKey)
+			.toArray(WorkloadAtom.Type[]::new);
+		this.cumulativeTypeWeights = new int[this.types.length];
+		int totalTypeWeight = 0;
+		for (int i = 0; i < this.types.length; ++i) {
+			totalTypeWeight += builder.mix.get(this.types[i]);
+			this.cumulativeTypeWeights[i] = totalTypeWeight;
+		}
+
+		this.cumulativeAccountWeights = new double[builder.keyCount];
+		double totalAccountWeight = 0.0;
+		for (int i = 0; i < builder.keyCount; ++i) {
+			totalAccountWeight += 1.0 / Math.pow(i + 1.0, builder.hotAccountSkew);
+			this.cumulativeAccountWeights[i] = totalAccountWeight;
+		}
+
+		ImmutableList.Builder<ECKeyPair> keysBuilder = ImmutableList.builder();
+		ImmutableList.Builder<RadixAddress> addressesBuilder = ImmutableList.builder();
+		this.balances = new ArrayList<>(builder.keyCount);
+		for (int i = 0; i < builder.keyCount; ++i) {
+			ECKeyPair key = deriveKey(builder.seed, i);
+			keysBuilder.add(key);
+			addressesBuilder.add(new RadixAddress(builder.magic, key.getPublicKey()));
+			this.balances.add(new ArrayDeque<>());
+		}
+		this.keys = keysBuilder.build();
+		this.addresses = addressesBuilder.build();
+
+		this.tokenOwner = deriveKey(builder.seed, -1);
+		RadixAddress tokenOwnerAddress = new RadixAddress(builder.magic, this.tokenOwner.getPublicKey());
+		this.tokenRef = RRI.of(tokenOwnerAddress, TOKEN_SYMBOL);
+		this.unallocated = new UnallocatedTokensParticle(UInt256.MAX_VALUE, UInt256.ONE, this.tokenRef, TOKEN_PERMISSIONS);
+		this.genesis = buildGenesis(tokenOwnerAddress);
+	}
+
+	/**
+	 * Builds a new atom OS with the scrypts this workload generates atoms for.
+	 */
+	public static CMAtomOS buildAtomOS() {
+		CMAtomOS cmAtomOS = new CMAtomOS();
+		cmAtomOS.load(new TokensConstraintScrypt());
+		cmAtomOS.load(new UniqueParticleConstraintScrypt());
+		cmAtomOS.load(new MessageParticleConstraintScrypt());
+		return cmAtomOS;
+	}
+
+	/**
+	 * Returns the atoms which must be stored, in order, before any generated atoms.
+	 * These create the token and give each account an initial balance.
+	 */
+	public List<Atom> getGenesis() {
+		return genesis;
+	}
+
+	/**
+	 * Returns the keys of the accounts in this workload, hottest first.
+	 */
+	public List<ECKeyPair> getKeys() {
+		return keys;
+	}
+
+	/**
+	 * Generates and signs the next {@code count} atoms of this workload.
+	 * The atoms are valid if stored in order after the genesis atoms and
+	 * all previously generated atoms, other than conflicting atoms.
+	 *
+	 * @param count The number of atoms to generate
+	 * @return The generated atoms, in order
+	 */
+	public List<WorkloadAtom> generate(int count) {
+		List<UnsignedAtom> unsigned = new ArrayList<>(count);
+		for (int i = 0; i < count; ++i) {
+			unsigned.add(next(pickType()));
+		}
+		// Signing dominates the cost of generation, and each atom is independent
+		unsigned.parallelStream().forEach(u -> sign(u.atom, u.signer));
+
+		ImmutableList.Builder<WorkloadAtom> generated = ImmutableList.builder();
+		for (UnsignedAtom u : unsigned) {
+			generated.add(new WorkloadAtom(u.type, u.atom));
+		}
+		return generated.build();
+	}
+
+	private ImmutableList<Atom> buildGenesis(RadixAddress tokenOwnerAddress) {
+		List<UnsignedAtom> unsigned = new ArrayList<>();
+		MutableSupplyTokenDefinitionParticle tokenDefinition = new MutableSupplyTokenDefinitionParticle(
+			tokenOwnerAddress, TOKEN_SYMBOL, "Load", "Load test token", UInt256.ONE, null, TOKEN_PERMISSIONS
+		);
+		unsigned.add(new UnsignedAtom(WorkloadAtom.Type.MINT, atom(ParticleGroup.of(
+			SpunParticle.down(new RRIParticle(this.tokenRef)),
+			SpunParticle.up(tokenDefinition),
+			SpunParticle.up(this.unallocated)
+		)), this.tokenOwner));
+
+		for (int start = 0; start < this.keys.size(); start += GENESIS_MINT_OUTPUTS) {
+			List<Integer> accounts = new ArrayList<>();
+			for (int i = start; i < Math.min(this.keys.size(), start + GENESIS_MINT_OUTPUTS); ++i) {
+				accounts.add(i);
+			}
+			unsigned.add(mint(accounts, account -> INITIAL_BALANCE));
+		}
+
+		unsigned.parallelStream().forEach(u -> sign(u.atom, u.signer));
+		return unsigned.stream().map(u -> u.atom).collect(ImmutableList.toImmutableList());
+	}
+
+	private UnsignedAtom next(WorkloadAtom.Type type) {
+		switch (type) {
+		case MINT:
+			return mint(ImmutableList.of(pickAccount()), account -> randomAmount(MAX_MINT_AMOUNT));
+		case TRANSFER:
+			return transfer(WorkloadAtom.Type.TRANSFER, 1, MAX_TRANSFER_AMOUNT);
+		case PAYMENT:
+			return transfer(WorkloadAtom.Type.PAYMENT, this.paymentOutputs, MAX_PAYMENT_AMOUNT);
+		case DOUBLE_SPEND:
+			return doubleSpend();
+		case UNIQUE:
+			return unique();
+		case MESSAGE:
+			return message(WorkloadAtom.Type.MESSAGE, this.messageBytes);
+		case OVERSIZED:
+			return message(WorkloadAtom.Type.OVERSIZED, this.oversizedBytes);
+		default:
+			throw new IllegalStateException("Unknown atom type: " + type);
+		}
+	}
+
+	private UnsignedAtom mint(List<Integer> accounts, Function<Integer, UInt256> amounts) {
+		List<SpunParticle> particles = new ArrayList<>(accounts.size() + 2);
+		particles.add(SpunParticle.down(this.unallocated));
+		UInt256 remaining = this.unallocated.getAmount();
+		for (int account : accounts) {
+			UInt256 amount = amounts.apply(account);
+			TransferrableTokensParticle minted = tokens(account, amount);
+			particles.add(SpunParticle.up(minted));
+			this.balances.get(account).addLast(minted);
+			remaining = remaining.subtract(amount);
+		}
+		this.unallocated = new UnallocatedTokensParticle(remaining, UInt256.ONE, this.tokenRef, TOKEN_PERMISSIONS);
+		particles.add(SpunParticle.up(this.unallocated));
+		return new UnsignedAtom(WorkloadAtom.Type.MINT, atom(ParticleGroup.of(particles)), this.tokenOwner);
+	}
+
+	private UnsignedAtom transfer(WorkloadAtom.Type type, int outputs, int maxAmount) {
+		int sender = pickAccount();
+		Set<Integer> recipients = pickRecipients(outputs, sender);
+		List<UInt256> amounts = new ArrayList<>(recipients.size());
+		UInt256 total = UInt256.ZERO;
+		for (int i = 0; i < recipients.size(); ++i) {
+			UInt256 amount = randomAmount(maxAmount);
+			amounts.add(amount);
+			total = total.add(amount);
+		}
+
+		TransferrableTokensParticle input = removeBalance(sender, total);
+		if (input == null) {
+			// Top up an account which has run dry, rather than fail
+			return mint(ImmutableList.of(sender), account -> INITIAL_BALANCE);
+		}
+		rememberSpent(sender, input);
+
+		List<SpunParticle> particles = new ArrayList<>(recipients.size() + 2);
+		particles.add(SpunParticle.down(input));
+		int i = 0;
+		for (int recipient : recipients) {
+			TransferrableTokensParticle output = tokens(recipient, amounts.get(i++));
+			particles.add(SpunParticle.up(output));
+			this.balances.get(recipient).addLast(output);
+		}
+		UInt256 change = input.getAmount().subtract(total);
+		if (!change.isZero()) {
+			TransferrableTokensParticle changeOutput = tokens(sender, change);
+			particles.add(SpunParticle.up(changeOutput));
+			// Change is spent first, keeping the number of outstanding balances down
+			this.balances.get(sender).addFirst(changeOutput);
+		}
+		return new UnsignedAtom(type, atom(ParticleGroup.of(particles)), this.keys.get(sender));
+	}
+
+	private UnsignedAtom doubleSpend() {
+		if (this.spentBalances.isEmpty()) {
+			return transfer(WorkloadAtom.Type.TRANSFER, 1, MAX_TRANSFER_AMOUNT);
+		}
+		SpentBalance spent = this.spentBalances.get(this.random.nextInt(this.spentBalances.size()));
+		int recipient = pickRecipients(1, spent.account).iterator().next();
+		// The outputs are not recorded, as this atom is expected to be rejected
+		ParticleGroup particleGroup = ParticleGroup.of(
+			SpunParticle.down(spent.balance),
+			SpunParticle.up(tokens(recipient, spent.balance.getAmount()))
+		);
+		return new UnsignedAtom(WorkloadAtom.Type.DOUBLE_SPEND, atom(particleGroup), this.keys.get(spent.account));
+	}
+
+	private UnsignedAtom unique() {
+		int account = pickAccount();
+		RadixAddress address = this.addresses.get(account);
+		String name = "unique-" + nextSequence();
+		ParticleGroup particleGroup = ParticleGroup.of(
+			SpunParticle.down(new RRIParticle(RRI.of(address, name))),
+			SpunParticle.up(new UniqueParticle(name, address, 0L))
+		);
+		return new UnsignedAtom(WorkloadAtom.Type.UNIQUE, atom(particleGroup), this.keys.get(account));
+	}
+
+	private UnsignedAtom message(WorkloadAtom.Type type, int size) {
+		int sender = pickAccount();
+		int recipient = pickRecipients(1, sender).iterator().next();
+		byte[] payload = new byte[size];
+		this.random.nextBytes(payload);
+		MessageParticle message = new MessageParticle(this.addresses.get(sender), this.addresses.get(recipient), payload);
+		return new UnsignedAtom(type, atom(ParticleGroup.of(SpunParticle.up(message))), this.keys.get(sender));
+	}
+
+	private TransferrableTokensParticle removeBalance(int account, UInt256 amount) {
+		Deque<TransferrableTokensParticle> accountBalances = this.balances.get(account);
+		TransferrableTokensParticle found = null;
+		for (TransferrableTokensParticle balance : accountBalances) {
+			if (balance.getAmount().compareTo(amount) >= 0) {
+				found = balance;
+				break;
+			}
+		}
+		if (found != null) {
+			accountBalances.remove(found);
+		}
+		return found;
+	}
+
+	private void rememberSpent(int account, TransferrableTokensParticle balance) {
+		SpentBalance spent = new SpentBalance(account, balance);
+		if (this.spentBalances.size() < MAX_SPENT_HISTORY) {
+			this.spentBalances.add(spent);
+		} else {
+			this.spentBalances.set(this.random.nextInt(MAX_SPENT_HISTORY), spent);
+		}
+	}
+
+	private TransferrableTokensParticle tokens(int account, UInt256 amount) {
+		// The planck value is unique per particle, so that equal transfers are still distinct particles
+		return new TransferrableTokensParticle(
+			this.addresses.get(account), amount, UInt256.ONE, this.tokenRef, nextSequence(), TOKEN_PERMISSIONS
+		);
+	}
+
+	private Atom atom(ParticleGroup particleGroup) {
+		Atom atom = new Atom(this.timestamp);
+		atom.addParticleGroup(particleGroup);
+		return atom;
+	}
+
+	private WorkloadAtom.Type pickType() {
+		int choice = this.random.nextInt(this.cumulativeTypeWeights[this.cumulativeTypeWeights.length - 1]);
+		for (int i = 0; i < this.types.length; ++i) {
+			if (choice < this.cumulativeTypeWeights[i]) {
+				return this.types[i];
+			}
+		}
+		throw new IllegalStateException("No atom type for choice " + choice);
+	}
+
+	private int pickAccount() {
+		double choice = this.random.nextDouble() * this.cumulativeAccountWeights[this.cumulativeAccountWeights.length - 1];
+		int index = Arrays.binarySearch(this.cumulativeAccountWeights, choice);
+		// Not found gives -(insertion point) - 1, and the insertion point is the account
+		int account = index < 0 ? -index - 1 : index + 1;
+		return Math.min(account, this.cumulativeAccountWeights.length - 1);
+	}
+
+	private Set<Integer> pickRecipients(int count, int exclude) {
+		Set<Integer> recipients = new LinkedHashSet<>();
+		int attempts = 0;
+		while (recipients.size() < count) {
+			// With a heavy skew, fall back to uniform choice rather than retrying the same hot accounts
+			int account = attempts++ < count * 8 ? pickAccount() : this.random.nextInt(this.keys.size());
+			if (account != exclude) {
+				recipients.add(account);
+			}
+		}
+		return recipients;
+	}
+
+	private UInt256 randomAmount(int maxAmount) {
+		return UInt256.from(1 + this.random.nextInt(maxAmount));
+	}
+
+	private long nextSequence() {
+		return this.sequence++;
+	}
+
+	private static ECKeyPair deriveKey(long seed, int index) throws CryptoException {
+		byte[] material = new byte[Long.BYTES + Integer.BYTES];
+		Longs.copyTo(seed, material, 0);
+		Ints.copyTo(index, material, Long.BYTES);
+		return new ECKeyPair(Hash.hash256(material));
+	}
+
+	private static void sign(Atom atom, ECKeyPair signer) {
+		try {
+			atom.sign(signer);
+		} catch (CryptoException e) {
+			// Atoms are freshly built and keys are valid, so this is not expected
+			throw new IllegalStateException("Could not sign generated atom", e);
+		}
+	}
+}
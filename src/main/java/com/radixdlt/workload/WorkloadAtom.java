@@ -0,0 +1,98 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+
+package com.radixdlt.workload;
+
+import com.radixdlt.common.Atom;
+import java.util.Objects;
+
+/**
+ * A signed atom generated by an {@link AtomWorkload}, along with the kind of
+ * operation it represents.
+ */
+public final class WorkloadAtom {
+	/**
+	 * The kinds of atoms an {@link AtomWorkload} generates.
+	 */
+	public enum Type {
+		/**
+		 * Mints new tokens to an account.
+		 */
+		MINT(false),
+		/**
+		 * Transfers tokens to a single recipient, returning change to the sender.
+		 */
+		TRANSFER(false),
+		/**
+		 * Transfers tokens to several recipients, returning change to the sender.
+		 */
+		PAYMENT(false),
+		/**
+		 * Spends tokens which an earlier atom in the workload has already spent.
+		 */
+		DOUBLE_SPEND(true),
+		/**
+		 * Claims a unique name for an account.
+		 */
+		UNIQUE(false),
+		/**
+		 * Sends a short message between accounts.
+		 */
+		MESSAGE(false),
+		/**
+		 * Sends a message with a very large payload.
+		 */
+		OVERSIZED(false);
+
+		private final boolean conflicting;
+
+		Type(boolean conflicting) {
+			this.conflicting = conflicting;
+		}
+
+		/**
+		 * Returns {@code true} if atoms of this type conflict with an earlier
+		 * atom in the workload, and so are expected to be rejected once the
+		 * earlier atom has been stored.
+		 */
+		public boolean isConflicting() {
+			return conflicting;
+		}
+	}
+
+	private final Type type;
+	private final Atom atom;
+
+	WorkloadAtom(Type type, Atom atom) {
+		this.type = Objects.requireNonNull(type);
+		this.atom = Objects.requireNonNull(atom);
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public Atom getAtom() {
+		return atom;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s[%s:%s]", getClass().getSimpleName(), type, atom.getAID());
+	}
+}
@@ -17,11 +17,24 @@
 
 package com.radixdlt.atomos;
 
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterators;
 import com.google.common.reflect.TypeToken;
+import com.radixdlt.TestSetupUtils;
+import com.radixdlt.atommodel.tokens.TokensConstraintScrypt;
+import com.radixdlt.atommodel.tokens.TransferrableTokensParticle;
+import com.radixdlt.common.EUID;
 import com.radixdlt.constraintmachine.TransitionProcedure;
 import com.radixdlt.constraintmachine.TransitionToken;
 import com.radixdlt.constraintmachine.VoidUsedData;
+import com.radixdlt.crypto.ECKeyPair;
+import com.radixdlt.crypto.ECPublicKey;
+import com.radixdlt.utils.UInt256;
+import java.util.Set;
 import java.util.function.Function;
+import java.util.stream.Stream;
+import org.junit.BeforeClass;
 import org.junit.Test;
 
 import com.radixdlt.constraintmachine.Particle;
@@ -29,8 +42,14 @@ import com.radixdlt.constraintmachine.Particle;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class CMAtomOSTest {
+	@BeforeClass
+	public static void setupBouncyCastle() {
+		TestSetupUtils.installBouncyCastleProvider();
+	}
+
 	private static class TestParticle extends Particle {
 		@Override
 		public String toString() {
@@ -98,6 +117,43 @@ public class CMAtomOSTest {
 			.contains("Unknown particle type");
 	}
 
+	private static RadixAddress address(EUID uid) {
+		RadixAddress address = mock(RadixAddress.class);
+		when(address.getUID()).thenReturn(uid);
+		return address;
+	}
+
+	@Test
+	public void when_checking_destinations__addresses_must_map_to_exactly_the_destinations() {
+		EUID uid0 = new EUID(0);
+		EUID uid1 = new EUID(1);
+		EUID uid2 = new EUID(2);
+		Set<EUID> destinations = ImmutableSet.of(uid0, uid1);
+
+		assertThat(CMAtomOS.checkDestinations(destinations, Iterators.forArray(address(uid1), address(uid0), address(uid1))).isSuccess())
+			.isTrue();
+		assertThat(CMAtomOS.checkDestinations(destinations, Iterators.forArray(address(uid0))).getErrorMessage())
+			.contains("does not contain all destinations");
+		assertThat(CMAtomOS.checkDestinations(destinations, Iterators.forArray(address(uid0), address(uid1), address(uid2))).getErrorMessage())
+			.contains("does not contain all Address destinations");
+	}
+
+	@Test
+	public void when_building_particle_signers__a_token_particle_yields_its_owner_key() throws Exception {
+		CMAtomOS os = new CMAtomOS();
+		os.load(new TokensConstraintScrypt());
+		ECKeyPair owner = new ECKeyPair();
+		RadixAddress ownerAddress = new RadixAddress((byte) 0, owner.getPublicKey());
+		TransferrableTokensParticle tokens = new TransferrableTokensParticle(
+			ownerAddress, UInt256.TEN, UInt256.ONE, RRI.of(ownerAddress, "TEST"), 0L, ImmutableMap.of()
+		);
+
+		Function<Particle, Stream<ECPublicKey>> signers = os.buildParticleSigners();
+
+		assertThat(signers.apply(tokens).toArray()).containsExactly(owner.getPublicKey());
+		assertThat(signers.apply(new TestParticle()).toArray()).isEmpty();
+	}
+
 	@Test
 	public void when_a_particle_with_a_bad_address_is_validated__it_should_cause_errors() {
 		CMAtomOS os = new CMAtomOS(addr -> Result.error("Bad address"));
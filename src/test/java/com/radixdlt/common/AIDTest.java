@@ -76,6 +76,18 @@ public class AIDTest {
 		assertEquals(2L, aid.getShard());
 	}
 
+	@Test
+	public void testFromShardArrayUsesUnsignedOrder() {
+		byte[] hashBytes = new byte[Hash.BYTES];
+		hashBytes[0] = 3;
+		Hash hash = new Hash(hashBytes);
+
+		AID aid = AID.from(hash, new long[] {1L, -1L});
+		// -1 is the largest unsigned shard, so is second in order and selected
+		assertEquals(-1L, aid.getShard());
+		assertEquals(aid, AID.from(hash, ImmutableSet.of(-1L, 1L)));
+	}
+
 	@Test
 	public void equalsContract() {
 		EqualsVerifier.forClass(AID.class).verify();
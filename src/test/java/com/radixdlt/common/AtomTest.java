@@ -0,0 +1,52 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.common;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.radixdlt.TestSetupUtils;
+import com.radixdlt.atommodel.message.MessageParticle;
+import com.radixdlt.atomos.RadixAddress;
+import com.radixdlt.constraintmachine.Spin;
+import com.radixdlt.crypto.ECKeyPair;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class AtomTest {
+	@BeforeClass
+	public static void setupBouncyCastle() {
+		TestSetupUtils.installBouncyCastleProvider();
+	}
+
+
+	@Test
+	public void when_modifying_returned_particle_shards__cached_shards_are_unaffected() throws Exception {
+		ECKeyPair key = new ECKeyPair();
+		RadixAddress address = new RadixAddress((byte) 1, key.getPublicKey());
+		MessageParticle particle = new MessageParticle(address, address, new byte[] {1, 2, 3});
+		Atom atom = new Atom(1234L);
+		atom.addParticleGroupWith(particle, Spin.UP);
+		long shard = address.getUID().getShard();
+
+		particle.getShards()[0] = shard + 1;
+
+		assertThat(particle.getShards()).containsExactly(shard);
+		assertThat(atom.getShards()).containsExactly(shard);
+		assertThat(atom.getAID().getShard()).isEqualTo(shard);
+	}
+}
@@ -0,0 +1,162 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.common;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Bytes;
+import com.radixdlt.TestSetupUtils;
+import com.radixdlt.atommodel.message.MessageParticle;
+import com.radixdlt.atomos.RadixAddress;
+import com.radixdlt.constraintmachine.Spin;
+import com.radixdlt.crypto.ECKeyPair;
+import com.radixdlt.serialization.DsonOutput.Output;
+import com.radixdlt.serialization.Serialization;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class LazyAtomTest {
+	@BeforeClass
+	public static void setupBouncyCastle() {
+		TestSetupUtils.installBouncyCastleProvider();
+	}
+
+	@Test
+	public void when_viewing_a_persisted_atom__hash_aid_and_metadata_match_the_atom() throws Exception {
+		ECKeyPair from = new ECKeyPair();
+		ECKeyPair to = new ECKeyPair();
+		RadixAddress fromAddress = new RadixAddress((byte) 1, from.getPublicKey());
+		RadixAddress toAddress = new RadixAddress((byte) 1, to.getPublicKey());
+		Atom atom = new Atom(1234L, ImmutableMap.of("key", "value"));
+		atom.addParticleGroupWith(new MessageParticle(fromAddress, toAddress, new byte[] {1, 2, 3}), Spin.UP);
+		atom.addParticleGroupWith(new MessageParticle(toAddress, fromAddress, new byte[] {4, 5, 6}), Spin.UP);
+		atom.sign(from);
+
+		LazyAtom lazyAtom = new LazyAtom(Serialization.getDefault().toDson(atom, Output.PERSIST));
+
+		assertThat(lazyAtom.getHash()).isEqualTo(atom.getHash());
+		assertThat(lazyAtom.getShards()).isEqualTo(atom.getShards());
+		assertThat(lazyAtom.getAID()).isEqualTo(atom.getAID());
+		assertThat(lazyAtom.getMetaData()).isEqualTo(atom.getMetaData());
+		assertThat(lazyAtom.getParticleGroups()).hasSize(2);
+		assertThat(lazyAtom.toAtom()).isEqualTo(atom);
+	}
+
+	@Test
+	public void when_decoding_canonical_dson__the_atom_is_given_the_hash_of_the_view() throws Exception {
+		ECKeyPair key = new ECKeyPair();
+		RadixAddress address = new RadixAddress((byte) 1, key.getPublicKey());
+		Atom atom = new Atom(1234L);
+		atom.addParticleGroupWith(new MessageParticle(address, address, new byte[] {1, 2, 3}), Spin.UP);
+		byte[] dson = Serialization.getDefault().toDson(atom, Output.PERSIST);
+		assertThat(Serialization.getDefault().isCanonicalDson(dson)).isTrue();
+
+		LazyAtom lazyAtom = new LazyAtom(dson);
+
+		assertThat(lazyAtom.toAtom().getHash()).isSameAs(lazyAtom.getHash());
+		assertThat(lazyAtom.getHash()).isEqualTo(atom.getHash());
+	}
+
+	@Test
+	public void when_viewing_canonical_dson_with_duplicate_destinations__decoded_atom_hash_matches_direct_decode() throws Exception {
+		ECKeyPair key = new ECKeyPair();
+		RadixAddress address = new RadixAddress((byte) 1, key.getPublicKey());
+		Atom atom = new Atom(1234L);
+		atom.addParticleGroupWith(new MessageParticle(address, address, new byte[] {1, 2, 3}), Spin.UP);
+		byte[] dson = withDuplicatedFirstDestination(Serialization.getDefault().toDson(atom, Output.PERSIST));
+		assertThat(Serialization.getDefault().isCanonicalDson(dson)).isFalse();
+
+		LazyAtom lazyAtom = new LazyAtom(dson);
+		Atom decoded = Serialization.getDefault().fromDson(dson, Atom.class);
+
+		assertThat(lazyAtom.getHash()).isEqualTo(decoded.getHash());
+		assertThat(lazyAtom.getAID()).isEqualTo(decoded.getAID());
+		assertThat(lazyAtom.toAtom().getHash()).isEqualTo(decoded.getHash());
+	}
+
+	@Test
+	public void when_viewing_dson_with_unsorted_keys__hash_and_aid_match_direct_decode() throws Exception {
+		ECKeyPair key = new ECKeyPair();
+		RadixAddress address = new RadixAddress((byte) 1, key.getPublicKey());
+		Atom atom = new Atom(1234L, ImmutableMap.of("key", "value"));
+		atom.addParticleGroupWith(new MessageParticle(address, address, new byte[] {1, 2, 3}), Spin.UP);
+		byte[] dson = withReversedKeys(Serialization.getDefault().toDson(atom, Output.PERSIST));
+		assertThat(Serialization.getDefault().isCanonicalDson(dson)).isFalse();
+
+		LazyAtom lazyAtom = new LazyAtom(dson);
+		Atom decoded = Serialization.getDefault().fromDson(dson, Atom.class);
+
+		assertThat(decoded.getHash()).isEqualTo(atom.getHash());
+		assertThat(lazyAtom.getHash()).isEqualTo(decoded.getHash());
+		assertThat(lazyAtom.getAID()).isEqualTo(decoded.getAID());
+	}
+
+	@Test
+	public void when_viewing_an_empty_atom__hash_matches_and_there_are_no_shards() throws Exception {
+		Atom atom = new Atom();
+
+		LazyAtom lazyAtom = new LazyAtom(Serialization.getDefault().toDson(atom, Output.ALL));
+
+		assertThat(lazyAtom.getHash()).isEqualTo(atom.getHash());
+		assertThat(lazyAtom.getShards()).isEmpty();
+		assertThat(lazyAtom.getMetaData()).isEmpty();
+	}
+
+	// Re-encodes the top level map of the specified DSON with its keys in reverse order.
+	private static byte[] withReversedKeys(byte[] dson) throws IOException {
+		ObjectMapper mapper = new ObjectMapper(new CBORFactory());
+		ObjectNode root = (ObjectNode) mapper.readTree(dson);
+		List<String> keys = Lists.newArrayList(root.fieldNames());
+		Collections.reverse(keys);
+		ObjectNode reversed = mapper.createObjectNode();
+		for (String key : keys) {
+			reversed.set(key, root.get(key));
+		}
+		return mapper.writeValueAsBytes(reversed);
+	}
+
+	// Rewrites the first single element "destinations" array to contain its element twice.
+	// The result decodes to a particle with one destination, so is not canonical.
+	private static byte[] withDuplicatedFirstDestination(byte[] dson) {
+		byte[] key = "destinations".getBytes(StandardCharsets.US_ASCII);
+		int keyStart = Bytes.indexOf(dson, key);
+		assertThat(keyStart).isPositive();
+		int arrayStart = keyStart + key.length;
+		assertThat(dson[arrayStart]).isEqualTo((byte) 0x81);
+		// Each destination is a short byte string
+		int elementStart = arrayStart + 1;
+		int elementLength = 1 + (dson[elementStart] & 0x1F);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.write(dson, 0, arrayStart);
+		out.write(0x82);
+		out.write(dson, elementStart, elementLength);
+		out.write(dson, elementStart, dson.length - elementStart);
+		return out.toByteArray();
+	}
+}
@@ -19,20 +19,37 @@ package com.radixdlt.constraintmachine;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.radixdlt.TestSetupUtils;
 import com.radixdlt.atomos.Result;
+import com.radixdlt.crypto.CryptoException;
+import com.radixdlt.crypto.ECKeyPair;
 import com.radixdlt.crypto.Hash;
+import com.radixdlt.metrics.CollectingEngineMetrics;
 import org.junit.Assert;
+import org.junit.BeforeClass;
 import org.junit.Test;
 
 import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class ConstraintMachineTest {
+	@BeforeClass
+	public static void setupBouncyCastle() {
+		TestSetupUtils.installBouncyCastleProvider();
+	}
+
 	@Test
 	public void test_invalid_instruction_sequence() {
+		Particle particle = mock(Particle.class);
+		when(particle.getHash()).thenReturn(Hash.random());
 		ConstraintMachine cm = new ConstraintMachine(
-			particle -> Result.success(),
+			p -> Result.success(),
 			tt -> null
 		);
 		ConstraintMachine.CMValidationState validationState = new ConstraintMachine.CMValidationState(
@@ -40,7 +57,93 @@ public class ConstraintMachineTest {
 			ImmutableMap.of()
 		);
 		Assert.assertEquals(Optional.of(CMErrorCode.INVALID_INSTRUCTION_SEQUENCE), cm.validateMicroInstructions(validationState, ImmutableList.of(
-			CMMicroInstruction.push(mock(Particle.class))
+			CMMicroInstruction.push(particle)
 		)).map(CMError::getErrorCode));
 	}
+
+	@Test
+	public void when_preverifying_signatures__results_are_seeded_for_each_key() throws CryptoException {
+		ECKeyPair signer0 = new ECKeyPair();
+		ECKeyPair signer1 = new ECKeyPair();
+		ECKeyPair badSigner = new ECKeyPair();
+		Hash witness = Hash.random();
+		ConstraintMachine.CMValidationState validationState = new ConstraintMachine.CMValidationState(
+			witness,
+			ImmutableMap.of(
+				signer0.getUID(), signer0.sign(witness),
+				signer1.getUID(), signer1.sign(witness),
+				badSigner.getUID(), badSigner.sign(Hash.random())
+			)
+		);
+		AtomicInteger scheduled = new AtomicInteger();
+		Executor executor = command -> {
+			scheduled.incrementAndGet();
+			command.run();
+		};
+
+		validationState.preverifySignedBy(
+			ImmutableSet.of(signer0.getPublicKey(), signer1.getPublicKey(), badSigner.getPublicKey()),
+			executor
+		);
+
+		Assert.assertEquals(3, scheduled.get());
+		Assert.assertTrue(validationState.isSignedBy(signer0.getPublicKey()));
+		Assert.assertTrue(validationState.isSignedBy(signer1.getPublicKey()));
+		Assert.assertFalse(validationState.isSignedBy(badSigner.getPublicKey()));
+	}
+
+	@Test
+	public void when_validating_with_an_executor__only_keys_with_signatures_are_preverified() throws CryptoException {
+		ECKeyPair signer0 = new ECKeyPair();
+		ECKeyPair signer1 = new ECKeyPair();
+		ECKeyPair unsigned = new ECKeyPair();
+		Hash witness = Hash.random();
+		AtomicInteger scheduled = new AtomicInteger();
+		ConstraintMachine cm = new ConstraintMachine(
+			particle -> Result.success(),
+			tt -> null,
+			particle -> Stream.of(signer0.getPublicKey(), signer1.getPublicKey(), unsigned.getPublicKey()),
+			command -> {
+				scheduled.incrementAndGet();
+				command.run();
+			}
+		);
+		Particle particle = mock(Particle.class);
+		when(particle.getHash()).thenReturn(Hash.random());
+
+		cm.validate(new CMInstruction(
+			ImmutableList.of(
+				CMMicroInstruction.checkSpin(particle, Spin.NEUTRAL),
+				CMMicroInstruction.push(particle),
+				CMMicroInstruction.particleGroup()
+			),
+			witness,
+			ImmutableMap.of(signer0.getUID(), signer0.sign(witness), signer1.getUID(), signer1.sign(witness))
+		));
+
+		Assert.assertEquals(2, scheduled.get());
+	}
+
+	@Test
+	public void when_validating_an_invalid_instruction__error_is_counted_in_metrics() {
+		Particle particle = mock(Particle.class);
+		when(particle.getHash()).thenReturn(Hash.random());
+		CollectingEngineMetrics metrics = new CollectingEngineMetrics();
+		ConstraintMachine cm = new ConstraintMachine(
+			p -> Result.success(),
+			tt -> null,
+			p -> Stream.empty(),
+			null,
+			metrics
+		);
+
+		cm.validate(new CMInstruction(
+			ImmutableList.of(CMMicroInstruction.push(particle)),
+			Hash.random(),
+			ImmutableMap.of()
+		));
+
+		Assert.assertEquals(1L, metrics.getCount(CMErrorCode.INVALID_INSTRUCTION_SEQUENCE));
+		Assert.assertEquals(0L, metrics.getCount(CMErrorCode.INVALID_PARTICLE));
+	}
 }
\ No newline at end of file
@@ -0,0 +1,87 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.constraintmachine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.radixdlt.crypto.Hash;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class ParticleHashMapTest {
+	private static Particle particleWithHash(Hash hash) {
+		Particle particle = mock(Particle.class);
+		when(particle.getHash()).thenReturn(hash);
+		return particle;
+	}
+
+	@Test
+	public void when_particles_have_equal_hashes__they_are_the_same_key() {
+		Hash hash = Hash.random();
+		ParticleHashMap<Spin> map = new ParticleHashMap<>();
+
+		assertThat(map.put(particleWithHash(hash), Spin.UP)).isNull();
+		assertThat(map.put(particleWithHash(new Hash(hash.toByteArray().clone())), Spin.DOWN)).isEqualTo(Spin.UP);
+
+		assertThat(map.size()).isEqualTo(1);
+		assertThat(map.get(particleWithHash(hash))).isEqualTo(Spin.DOWN);
+		assertThat(map.containsKey(particleWithHash(Hash.random()))).isFalse();
+	}
+
+	@Test
+	public void when_hashes_share_leading_bytes__they_are_distinct_keys() {
+		byte[] bytes = new byte[Hash.BYTES];
+		ParticleHashMap<Integer> map = new ParticleHashMap<>();
+		List<Particle> particles = new ArrayList<>();
+		// Same first word, so all start probing from the same slot
+		for (int i = 0; i < Hash.BYTES - Long.BYTES; ++i) {
+			byte[] hashBytes = bytes.clone();
+			hashBytes[Long.BYTES + i] = 1;
+			particles.add(particleWithHash(new Hash(hashBytes)));
+		}
+
+		for (int i = 0; i < particles.size(); ++i) {
+			map.put(particles.get(i), i);
+		}
+
+		assertThat(map.size()).isEqualTo(particles.size());
+		for (int i = 0; i < particles.size(); ++i) {
+			assertThat(map.get(particles.get(i))).isEqualTo(i);
+		}
+		assertThat(map.get(particleWithHash(new Hash(bytes)))).isNull();
+	}
+
+	@Test
+	public void when_map_grows__all_entries_are_retained() {
+		ParticleHashMap<Integer> map = new ParticleHashMap<>(2);
+		List<Particle> particles = new ArrayList<>();
+		for (int i = 0; i < 1000; ++i) {
+			Particle particle = particleWithHash(Hash.random());
+			particles.add(particle);
+			map.put(particle, i);
+		}
+
+		assertThat(map.size()).isEqualTo(1000);
+		for (int i = 0; i < particles.size(); ++i) {
+			assertThat(map.get(particles.get(i))).isEqualTo(i);
+		}
+	}
+}
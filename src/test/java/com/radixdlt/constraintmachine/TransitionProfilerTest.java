@@ -0,0 +1,118 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+
+package com.radixdlt.constraintmachine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.reflect.TypeToken;
+import com.radixdlt.TestSetupUtils;
+import com.radixdlt.atommodel.tokens.TransferrableTokensParticle;
+import com.radixdlt.atomos.CMAtomOS;
+import com.radixdlt.atomos.Result;
+import com.radixdlt.common.Atom;
+import com.radixdlt.constraintmachine.WitnessValidator.WitnessValidatorResult;
+import com.radixdlt.middleware.RadixEngineUtils;
+import com.radixdlt.workload.AtomWorkload;
+import com.radixdlt.workload.WorkloadAtom;
+import java.util.function.Function;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class TransitionProfilerTest {
+	private static final TransitionToken<?, ?, ?, ?> TOKEN = new TransitionToken<>(
+		VoidParticle.class, TypeToken.of(VoidUsedData.class), VoidParticle.class, TypeToken.of(VoidUsedData.class)
+	);
+
+	@BeforeClass
+	public static void beforeClass() {
+		TestSetupUtils.installBouncyCastleProvider();
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void when_calling_a_profiled_procedure__calls_and_errors_are_counted() {
+		TransitionProcedure<Particle, UsedData, Particle, UsedData> procedure = mock(TransitionProcedure.class);
+		when(procedure.precondition(any(), any(), any(), any())).thenReturn(Result.success(), Result.error("bad"));
+		WitnessValidator<Particle> witnessValidator = mock(WitnessValidator.class);
+		when(witnessValidator.validate(any(), any())).thenReturn(WitnessValidatorResult.error("unsigned"));
+		when(procedure.inputWitnessValidator()).thenReturn(witnessValidator);
+		TransitionProfiler profiler = new TransitionProfiler();
+		Function<TransitionToken, TransitionProcedure<Particle, UsedData, Particle, UsedData>> profiled
+			= profiler.wrap(token -> token.equals(TOKEN) ? procedure : null);
+
+		profiled.apply(TOKEN).precondition(null, null, null, null);
+		profiled.apply(TOKEN).precondition(null, null, null, null);
+		profiled.apply(TOKEN).inputWitnessValidator().validate(null, null);
+
+		TransitionProfiler.Profile profile = profiler.getProfile(TOKEN);
+		assertThat(profile.getInvocations()).isEqualTo(2L);
+		assertThat(profile.getPreconditionErrors()).isEqualTo(1L);
+		assertThat(profile.getWitnessErrors()).isEqualTo(1L);
+		verify(procedure, times(2)).precondition(any(), any(), any(), any());
+		assertThat(profiler.dump()).contains("VoidParticle");
+
+		profiler.reset();
+		assertThat(profiler.getProfile(TOKEN).getInvocations()).isZero();
+	}
+
+	@Test
+	public void when_procedure_is_missing__profiled_procedure_is_missing() {
+		TransitionProfiler profiler = new TransitionProfiler();
+
+		assertThat(profiler.wrap(token -> null).apply(TOKEN)).isNull();
+		assertThat(profiler.getProfiles()).isEmpty();
+	}
+
+	@Test
+	public void when_validating_token_transfers__transfer_transition_is_profiled() throws Exception {
+		AtomWorkload workload = new AtomWorkload.Builder()
+			.setKeyCount(4)
+			.setMix(WorkloadAtom.Type.MINT, 0)
+			.setMix(WorkloadAtom.Type.PAYMENT, 0)
+			.setMix(WorkloadAtom.Type.DOUBLE_SPEND, 0)
+			.setMix(WorkloadAtom.Type.UNIQUE, 0)
+			.setMix(WorkloadAtom.Type.MESSAGE, 0)
+			.setMix(WorkloadAtom.Type.OVERSIZED, 0)
+			.build();
+		CMAtomOS cmAtomOS = AtomWorkload.buildAtomOS();
+		TransitionProfiler profiler = new TransitionProfiler();
+		ConstraintMachine cm = new ConstraintMachine.Builder()
+			.setParticleStaticCheck(cmAtomOS.buildParticleStaticCheck())
+			.setParticleTransitionProcedures(profiler.wrap(cmAtomOS.buildTransitionProcedures()))
+			.build();
+
+		for (WorkloadAtom atom : workload.generate(10)) {
+			Atom transfer = atom.getAtom();
+			assertThat(cm.validate(RadixEngineUtils.toCMAtom(transfer).getCMInstruction())).isEmpty();
+		}
+
+		long transferInvocations = profiler.getProfiles().entrySet().stream()
+			.filter(e -> e.getKey().getInputClass() == TransferrableTokensParticle.class
+				&& e.getKey().getOutputClass() == TransferrableTokensParticle.class)
+			.mapToLong(e -> e.getValue().getInvocations())
+			.sum();
+		assertThat(transferInvocations).isGreaterThanOrEqualTo(10L);
+		assertThat(profiler.getProfiles().values()).allMatch(profile -> profile.getErrors() == 0L);
+	}
+}
@@ -19,6 +19,7 @@ package com.radixdlt.crypto;
 
 import java.nio.charset.StandardCharsets;
 import nl.jqno.equalsverifier.EqualsVerifier;
+import org.bouncycastle.math.ec.ECPoint;
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Rule;
@@ -92,13 +93,15 @@ public class ECKeyPairTest {
 	public void checkKeyPairEquals() {
 		EqualsVerifier.forClass(ECKeyPair.class)
 			.withIgnoredFields("publicKey") // Computed
+			.withPrefabValues(ECPoint.class, ECKeyUtils.spec.getG(), ECKeyUtils.spec.getG().twice().normalize())
 			.verify();
 	}
 
 	@Test
 	public void checkPublicKeyEquals() {
 		EqualsVerifier.forClass(ECPublicKey.class)
-			.withIgnoredFields("uid") // Computed and cached
+			.withIgnoredFields("uid", "publicPoint") // Computed and cached
+			.withPrefabValues(ECPoint.class, ECKeyUtils.spec.getG(), ECKeyUtils.spec.getG().twice().normalize())
 			.verify();
 	}
 }
\ No newline at end of file
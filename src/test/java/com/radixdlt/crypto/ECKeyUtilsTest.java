@@ -24,6 +24,7 @@ import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class ECKeyUtilsTest {
@@ -42,6 +43,15 @@ public class ECKeyUtilsTest {
 		assertTrue(ECKeyUtils.greaterOrEqualOrder(badKey));
 	}
 
+	@Test
+	public void testPublicPointIsSharedBetweenEqualKeys() throws CryptoException {
+		ECPublicKey key = new ECKeyPair().getPublicKey();
+		ECPublicKey copy = new ECPublicKey(key.getBytes());
+
+		assertSame(key.getPublicPoint(), copy.getPublicPoint());
+		assertTrue(key.getPublicPoint().isNormalized());
+	}
+
 	@Test(expected = IllegalArgumentException.class)
 	public void testGreaterOrEqualModulusFail() {
 		ECKeyUtils.greaterOrEqualOrder(new byte[1]);
@@ -18,10 +18,12 @@
 package com.radixdlt.crypto;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 
 import com.radixdlt.TestSetupUtils;
 import com.radixdlt.utils.Bytes;
 import com.radixdlt.utils.Longs;
+import java.nio.ByteBuffer;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
@@ -90,6 +92,46 @@ public class HashTest {
 		);
 	}
 
+	@Test
+	public void testIncrementalHash256MatchesConcatenation() {
+		byte[] data = Bytes.fromHexString("000102030405060708090a0b0c0d0e0f");
+		byte[] expected = Hash.hash256(data);
+
+		assertArrayEquals(expected, Hash.hash256(new byte[] {0, 1, 2}, new byte[] {3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15}));
+
+		ByteBuffer direct = ByteBuffer.allocateDirect(10);
+		direct.put(data, 6, 10).flip();
+		ByteBuffer first = ByteBuffer.wrap(data, 0, 6);
+		assertArrayEquals(expected, Hash.hash256(first, direct));
+		assertEquals(6, first.position());
+		assertEquals(10, direct.position());
+	}
+
+	@Test
+	public void testHashValuesMatchAcrossProviders() {
+		SHAHashHandler sun = new SHAHashHandler("SUN");
+		SHAHashHandler bouncyCastle = new SHAHashHandler("BC");
+		byte[] data = Longs.toByteArray(1_000L);
+
+		assertArrayEquals(hash256(data), sun.hash256(data));
+		assertArrayEquals(hash256(data), bouncyCastle.hash256(data));
+		assertArrayEquals(hash512(data), sun.hash512(data, 0, data.length));
+		assertArrayEquals(hash512(data), bouncyCastle.hash512(data, 0, data.length));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownProviderFails() {
+		new SHAHashHandler("no-such-provider");
+	}
+
+	@Test
+	public void testUnknownConfiguredProviderFallsBackToDefault() {
+		HashHandler handler = Hash.createHashHandler("no-such-provider");
+		byte[] data = Longs.toByteArray(1_000L);
+
+		assertArrayEquals(hash256(data), handler.hash256(data));
+	}
+
 	private byte[] hash256(byte[] data) {
 		return Hash.hash256(data);
 	}
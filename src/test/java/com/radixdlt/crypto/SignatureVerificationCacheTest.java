@@ -0,0 +1,162 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.crypto;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableList;
+import com.radixdlt.TestSetupUtils;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.bouncycastle.math.ec.ECPoint;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class SignatureVerificationCacheTest {
+	@BeforeClass
+	public static void beforeClass() {
+		TestSetupUtils.installBouncyCastleProvider();
+	}
+
+	@Test
+	public void when_verifying_the_same_signature_twice__key_handler_is_only_called_once() throws CryptoException {
+		ECKeyPair key = new ECKeyPair();
+		Hash hash = Hash.random();
+		ECSignature signature = key.sign(hash);
+		KeyHandler keyHandler = mock(KeyHandler.class);
+		when(keyHandler.verify(any(), any(), any(ECPoint.class))).thenReturn(true);
+		SignatureVerificationCache cache = new SignatureVerificationCache(16);
+
+		assertThat(cache.verify(keyHandler, hash.toByteArray(), signature, key.getPublicKey())).isTrue();
+		assertThat(cache.verify(keyHandler, hash.toByteArray(), signature, key.getPublicKey())).isTrue();
+
+		verify(keyHandler, times(1)).verify(any(), any(), any(ECPoint.class));
+		assertThat(cache.getHitCount()).isEqualTo(1L);
+		assertThat(cache.getMissCount()).isEqualTo(1L);
+		assertThat(cache.getHitRate()).isEqualTo(0.5);
+	}
+
+	@Test
+	public void when_verifying_against_a_different_hash__result_is_not_shared() throws CryptoException {
+		ECKeyPair key = new ECKeyPair();
+		Hash hash = Hash.random();
+		ECSignature signature = key.sign(hash);
+		SignatureVerificationCache cache = new SignatureVerificationCache(16);
+		KeyHandler keyHandler = ECKeyUtils.keyHandler;
+
+		assertThat(cache.verify(keyHandler, hash.toByteArray(), signature, key.getPublicKey())).isTrue();
+		assertThat(cache.verify(keyHandler, Hash.random().toByteArray(), signature, key.getPublicKey())).isFalse();
+
+		assertThat(cache.getHitCount()).isZero();
+		assertThat(cache.size()).isEqualTo(2L);
+	}
+
+	@Test
+	public void when_cache_is_full__size_stays_bounded() throws CryptoException {
+		ECKeyPair key = new ECKeyPair();
+		SignatureVerificationCache cache = new SignatureVerificationCache(4);
+		KeyHandler keyHandler = mock(KeyHandler.class);
+		when(keyHandler.verify(any(), any(), any(ECPoint.class))).thenReturn(true);
+
+		for (int i = 0; i < 20; ++i) {
+			Hash hash = Hash.random();
+			cache.verify(keyHandler, hash.toByteArray(), key.sign(hash), key.getPublicKey());
+		}
+
+		assertThat(cache.size()).isLessThanOrEqualTo(4L);
+	}
+
+	@Test
+	public void when_verifying_a_large_batch__each_result_matches_single_verification() throws CryptoException {
+		ECKeyPair key = new ECKeyPair();
+		List<VerifyRequest> requests = new ArrayList<>();
+		BitSet expected = new BitSet();
+		for (int i = 0; i < 100; ++i) {
+			Hash hash = Hash.random();
+			if (i % 3 == 0) {
+				requests.add(new VerifyRequest(hash, key.sign(Hash.random()), key.getPublicKey()));
+			} else if (i % 7 == 0) {
+				requests.add(new VerifyRequest(hash, null, key.getPublicKey()));
+			} else {
+				requests.add(new VerifyRequest(hash, key.sign(hash), key.getPublicKey()));
+				expected.set(i);
+			}
+		}
+		SignatureVerificationCache cache = new SignatureVerificationCache(1024);
+		AtomicInteger chunks = new AtomicInteger();
+		Executor executor = command -> {
+			chunks.incrementAndGet();
+			command.run();
+		};
+
+		assertThat(cache.verifyBatch(ECKeyUtils.keyHandler, requests, executor)).isEqualTo(expected);
+		assertThat(chunks.get()).isGreaterThan(1);
+		// Second time round everything is cached
+		assertThat(cache.verifyBatch(ECKeyUtils.keyHandler, requests, executor)).isEqualTo(expected);
+		assertThat(cache.getHitCount()).isEqualTo(expected.cardinality() + 34L);
+	}
+
+	@Test
+	public void when_verifying_a_batch__only_uncached_requests_are_passed_to_key_handler() throws CryptoException {
+		ECKeyPair key = new ECKeyPair();
+		Hash cachedHash = Hash.random();
+		Hash uncachedHash = Hash.random();
+		VerifyRequest cached = new VerifyRequest(cachedHash, key.sign(cachedHash), key.getPublicKey());
+		VerifyRequest uncached = new VerifyRequest(uncachedHash, key.sign(uncachedHash), key.getPublicKey());
+		SignatureVerificationCache cache = new SignatureVerificationCache(16);
+		cache.verify(ECKeyUtils.keyHandler, cachedHash.toByteArray(), cached.getSignature(), key.getPublicKey());
+		KeyHandler keyHandler = mock(KeyHandler.class);
+		BitSet allVerified = new BitSet();
+		allVerified.set(0);
+		when(keyHandler.verifyBatch(any(), any(), any())).thenReturn(allVerified);
+
+		BitSet verified = cache.verifyBatch(keyHandler, ImmutableList.of(cached, uncached), Runnable::run);
+
+		assertThat(verified.get(0)).isTrue();
+		assertThat(verified.get(1)).isTrue();
+		verify(keyHandler, times(1)).verifyBatch(argThat(requests -> requests.size() == 1 && requests.get(0) == uncached), any(), any());
+	}
+
+	@Test
+	public void when_a_batch_request_is_invalid__its_result_is_not_cached() throws CryptoException {
+		ECKeyPair key = new ECKeyPair();
+		Hash hash = Hash.random();
+		List<VerifyRequest> requests = ImmutableList.of(new VerifyRequest(hash, key.sign(hash), key.getPublicKey()));
+		SignatureVerificationCache cache = new SignatureVerificationCache(16);
+		KeyHandler keyHandler = mock(KeyHandler.class);
+		when(keyHandler.verifyBatch(any(), any(), any())).thenAnswer(invocation -> {
+			invocation.<BitSet>getArgument(2).set(0);
+			return new BitSet();
+		});
+
+		assertThat(cache.verifyBatch(keyHandler, requests, Runnable::run).get(0)).isFalse();
+		assertThat(cache.verifyBatch(keyHandler, requests, Runnable::run).get(0)).isFalse();
+
+		assertThat(cache.size()).isZero();
+		verify(keyHandler, times(2)).verifyBatch(any(), any(), any());
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+
+package com.radixdlt.engine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import com.radixdlt.common.AID;
+import com.radixdlt.common.Atom;
+import com.radixdlt.constraintmachine.Particle;
+import com.radixdlt.engine.AsyncAtomEventListener.OverflowPolicy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class AsyncAtomEventListenerTest {
+	@Test
+	public void when_listener_is_blocked_with_drop_policy__events_are_dropped_without_blocking_caller() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		List<Atom> stored = new CopyOnWriteArrayList<>();
+		AsyncAtomEventListener listener = AsyncAtomEventListener.builder(new AtomEventListener() {
+			@Override
+			public void onStateStore(Atom atom) {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				stored.add(atom);
+			}
+		})
+			.setCapacity(2)
+			.setOverflowPolicy(OverflowPolicy.DROP)
+			.build();
+
+		for (int i = 0; i < 10; ++i) {
+			listener.onStateStore(new Atom(i));
+		}
+
+		// One event being delivered, two queued
+		assertThat(listener.getDroppedCount()).isEqualTo(7L);
+		assertThat(listener.getQueueDepth()).isEqualTo(2);
+		release.countDown();
+		assertThat(listener.shutdown(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(stored).hasSize(3);
+		assertThat(listener.getLag().getCount()).isEqualTo(3L);
+	}
+
+	@Test
+	public void when_listener_is_slow_with_block_policy__every_event_is_delivered_in_order() throws Exception {
+		List<Atom> received = new CopyOnWriteArrayList<>();
+		AsyncAtomEventListener listener = AsyncAtomEventListener.builder(new AtomEventListener() {
+			@Override
+			public void onStateStore(Atom atom) {
+				received.add(atom);
+			}
+		})
+			.setCapacity(1)
+			.build();
+
+		List<Atom> sent = new ArrayList<>();
+		for (long i = 0; i < 100; ++i) {
+			Atom atom = new Atom(i);
+			sent.add(atom);
+			listener.onStateStore(atom);
+		}
+
+		assertThat(listener.shutdown(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(listener.getDroppedCount()).isZero();
+		assertThat(received).containsExactlyElementsOf(sent);
+	}
+
+	@Test
+	public void when_listener_throws__later_events_are_still_delivered() throws Exception {
+		CountDownLatch delivered = new CountDownLatch(1);
+		AsyncAtomEventListener listener = AsyncAtomEventListener.builder(new AtomEventListener() {
+			@Override
+			public void onStateMissingDependency(AID atomId, Particle particle) {
+				throw new IllegalStateException("Listener failure");
+			}
+
+			@Override
+			public void onStateStore(Atom atom) {
+				delivered.countDown();
+			}
+		}).build();
+
+		listener.onStateMissingDependency(AID.ZERO, mock(Particle.class));
+		listener.onStateStore(new Atom());
+
+		assertThat(delivered.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(listener.getFailedCount()).isEqualTo(1L);
+		listener.shutdown(5, TimeUnit.SECONDS);
+	}
+}
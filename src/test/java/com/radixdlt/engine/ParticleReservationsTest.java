@@ -0,0 +1,116 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+
+package com.radixdlt.engine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.radixdlt.TestSetupUtils;
+import com.radixdlt.atommodel.message.MessageParticle;
+import com.radixdlt.atomos.RadixAddress;
+import com.radixdlt.common.Atom;
+import com.radixdlt.constraintmachine.DataPointer;
+import com.radixdlt.crypto.ECKeyPair;
+import com.radixdlt.engine.ParticleReservations.Reservation;
+import com.radixdlt.middleware.ParticleGroup;
+import com.radixdlt.middleware.SpunParticle;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ParticleReservationsTest {
+	private MessageParticle first;
+	private MessageParticle second;
+	private MessageParticle third;
+
+	@BeforeClass
+	public static void setupBouncyCastle() {
+		TestSetupUtils.installBouncyCastleProvider();
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		RadixAddress address = new RadixAddress((byte) 0, new ECKeyPair().getPublicKey());
+		this.first = new MessageParticle(address, address, new byte[] {1});
+		this.second = new MessageParticle(address, address, new byte[] {2});
+		this.third = new MessageParticle(address, address, new byte[] {3});
+	}
+
+	private static Atom spending(MessageParticle... particles) {
+		Atom atom = new Atom(0L);
+		for (MessageParticle particle : particles) {
+			atom.addParticleGroup(ParticleGroup.of(SpunParticle.down(particle)));
+		}
+		return atom;
+	}
+
+	@Test
+	public void when_reserving_disjoint_atoms__all_particles_are_reserved() {
+		ParticleReservations reservations = new ParticleReservations();
+
+		assertThat(reservations.reserve(new Reservation(spending(this.first, this.second)))).isNull();
+		assertThat(reservations.reserve(new Reservation(spending(this.third)))).isNull();
+
+		assertThat(reservations.getReservedCount()).isEqualTo(3);
+		assertThat(reservations.getRejectedCount()).isZero();
+	}
+
+	@Test
+	public void when_a_later_particle_is_already_reserved__earlier_particles_are_rolled_back() {
+		ParticleReservations reservations = new ParticleReservations();
+		reservations.reserve(new Reservation(spending(this.second)));
+
+		DataPointer conflict = reservations.reserve(new Reservation(spending(this.first, this.second, this.third)));
+
+		assertThat(conflict).isEqualTo(DataPointer.ofParticle(1, 0));
+		assertThat(reservations.getReservedCount()).isEqualTo(1);
+		assertThat(reservations.getRejectedCount()).isEqualTo(1L);
+		// Nothing was left behind, so the first particle is still free
+		assertThat(reservations.reserve(new Reservation(spending(this.first)))).isNull();
+	}
+
+	@Test
+	public void when_checking__conflicts_are_found_without_reserving() {
+		ParticleReservations reservations = new ParticleReservations();
+		reservations.reserve(new Reservation(spending(this.first)));
+
+		assertThat(reservations.check(new Reservation(spending(this.second)))).isNull();
+		assertThat(reservations.check(new Reservation(spending(this.second, this.first)))).isEqualTo(DataPointer.ofParticle(1, 0));
+
+		assertThat(reservations.getReservedCount()).isEqualTo(1);
+		assertThat(reservations.getRejectedCount()).isEqualTo(1L);
+	}
+
+	@Test
+	public void when_releasing__only_particles_reserved_by_the_same_reservation_are_released() {
+		ParticleReservations reservations = new ParticleReservations();
+		Atom atom = spending(this.first, this.second);
+		Reservation reservation = new Reservation(atom);
+		// An equal atom, such as a resubmission, does not share the reservation
+		Reservation copy = new Reservation(atom);
+		reservations.reserve(reservation);
+
+		assertThat(reservations.reserve(copy)).isEqualTo(DataPointer.ofParticle(0, 0));
+		reservations.release(copy);
+		assertThat(reservations.getReservedCount()).isEqualTo(2);
+
+		reservations.release(reservation);
+		assertThat(reservations.getReservedCount()).isZero();
+		assertThat(reservations.reserve(copy)).isNull();
+	}
+}
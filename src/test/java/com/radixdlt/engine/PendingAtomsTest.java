@@ -0,0 +1,85 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+
+package com.radixdlt.engine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.radixdlt.crypto.Hash;
+import org.junit.Test;
+
+public class PendingAtomsTest {
+	@Test
+	public void when_a_particle_becomes_available__items_waiting_for_it_are_removed_in_order() {
+		PendingAtoms<String> pending = new PendingAtoms<>(10, 100L);
+		Hash particle = Hash.random();
+		pending.add(particle, "first", 0L);
+		pending.add(Hash.random(), "other", 0L);
+		pending.add(particle, "second", 1L);
+
+		assertThat(pending.remove(particle)).containsExactly("first", "second");
+		assertThat(pending.remove(particle)).isEmpty();
+		assertThat(pending.size()).isEqualTo(1);
+	}
+
+	@Test
+	public void when_items_outlive_their_time_to_live__they_are_expired_oldest_first() {
+		PendingAtoms<String> pending = new PendingAtoms<>(10, 100L);
+		Hash particle = Hash.random();
+		Hash removedParticle = Hash.random();
+		pending.add(particle, "first", 0L);
+		pending.add(removedParticle, "removed", 10L);
+		pending.add(particle, "second", 50L);
+		pending.add(Hash.random(), "third", 200L);
+		pending.remove(removedParticle);
+
+		assertThat(pending.expire(99L)).isEmpty();
+		assertThat(pending.expire(150L)).containsExactly("first", "second");
+		assertThat(pending.size()).isEqualTo(1);
+		assertThat(pending.remove(particle)).isEmpty();
+	}
+
+	@Test
+	public void when_capacity_is_exceeded__oldest_items_are_evicted() {
+		PendingAtoms<String> pending = new PendingAtoms<>(2, 100L);
+		Hash particle = Hash.random();
+
+		assertThat(pending.add(particle, "first", 0L)).isEmpty();
+		assertThat(pending.add(Hash.random(), "second", 1L)).isEmpty();
+		assertThat(pending.add(particle, "third", 2L)).containsExactly("first");
+
+		assertThat(pending.size()).isEqualTo(2);
+		assertThat(pending.remove(particle)).containsExactly("third");
+	}
+
+	@Test
+	public void when_an_item_is_added_again__it_keeps_its_original_expiry() {
+		PendingAtoms<String> pending = new PendingAtoms<>(10, 100L);
+		Hash particle = Hash.random();
+		Hash otherParticle = Hash.random();
+		pending.add(particle, "requeued", 0L);
+		pending.add(Hash.random(), "later", 50L);
+		assertThat(pending.remove(particle)).containsExactly("requeued");
+
+		// Added again after it started waiting for a different particle
+		pending.add(otherParticle, "requeued", 0L);
+
+		assertThat(pending.expire(120L)).containsExactly("requeued");
+		assertThat(pending.expire(150L)).containsExactly("later");
+	}
+}
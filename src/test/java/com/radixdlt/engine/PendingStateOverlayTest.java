@@ -0,0 +1,122 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+
+package com.radixdlt.engine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.radixdlt.constraintmachine.CMInstruction;
+import com.radixdlt.constraintmachine.CMMicroInstruction;
+import com.radixdlt.constraintmachine.Particle;
+import com.radixdlt.constraintmachine.Spin;
+import com.radixdlt.crypto.Hash;
+import com.radixdlt.store.CMStore;
+import org.junit.Test;
+
+public class PendingStateOverlayTest {
+	private static Particle particle() {
+		Particle particle = mock(Particle.class);
+		when(particle.getHash()).thenReturn(Hash.random());
+		return particle;
+	}
+
+	private static CMInstruction spin(Particle particle, Spin checkSpin) {
+		return new CMInstruction(
+			ImmutableList.of(CMMicroInstruction.checkSpin(particle, checkSpin), CMMicroInstruction.push(particle)),
+			Hash.random(),
+			ImmutableMap.of()
+		);
+	}
+
+	@Test
+	public void when_atoms_are_applied__spins_reflect_the_latest_atom() {
+		CMStore committed = mock(CMStore.class);
+		when(committed.getSpin(any())).thenReturn(Spin.NEUTRAL);
+		PendingStateOverlay overlay = new PendingStateOverlay(committed);
+		Particle particle = particle();
+		Object up = new Object();
+		Object down = new Object();
+
+		overlay.apply(up, spin(particle, Spin.NEUTRAL));
+		assertThat(overlay.getSpin(particle)).isEqualTo(Spin.UP);
+		overlay.apply(down, spin(particle, Spin.UP));
+		assertThat(overlay.getSpin(particle)).isEqualTo(Spin.DOWN);
+
+		// Confirming the first atom leaves the second atom's spin in place
+		overlay.confirm(up);
+		assertThat(overlay.getSpin(particle)).isEqualTo(Spin.DOWN);
+		overlay.confirm(down);
+		assertThat(overlay.getSpin(particle)).isEqualTo(Spin.NEUTRAL);
+		assertThat(overlay.size()).isZero();
+		assertThat(overlay.getVersion()).isZero();
+	}
+
+	@Test
+	public void when_an_applied_atom_is_invalidated__its_spins_are_removed_and_version_changes() {
+		CMStore committed = mock(CMStore.class);
+		when(committed.getSpin(any())).thenReturn(Spin.NEUTRAL);
+		PendingStateOverlay overlay = new PendingStateOverlay(committed);
+		Particle particle = particle();
+		Object owner = new Object();
+		overlay.apply(owner, spin(particle, Spin.NEUTRAL));
+		long version = overlay.getVersion();
+
+		overlay.invalidate(owner);
+
+		assertThat(overlay.getSpin(particle)).isEqualTo(Spin.NEUTRAL);
+		assertThat(overlay.getVersion()).isNotEqualTo(version);
+	}
+
+	@Test
+	public void when_checking_a_prefetched_view__committed_state_is_not_read_again() {
+		CMStore committed = mock(CMStore.class);
+		when(committed.supports(any())).thenReturn(true);
+		when(committed.getSpin(any())).thenReturn(Spin.UP);
+		PendingStateOverlay overlay = new PendingStateOverlay(committed);
+		Particle particle = particle();
+
+		CMStore prefetched = overlay.prefetch(spin(particle, Spin.UP));
+
+		assertThat(prefetched.getSpin(particle)).isEqualTo(Spin.UP);
+		verify(committed, times(1)).getSpin(particle);
+	}
+
+	@Test
+	public void when_an_atom_is_confirmed_after_prefetching__committed_state_is_read_again() {
+		CMStore committed = mock(CMStore.class);
+		when(committed.supports(any())).thenReturn(true);
+		when(committed.getSpin(any())).thenReturn(Spin.UP, Spin.DOWN);
+		PendingStateOverlay overlay = new PendingStateOverlay(committed);
+		Particle particle = particle();
+		Object down = new Object();
+		overlay.apply(down, spin(particle, Spin.UP));
+
+		// Read before the atom spinning the particle down is committed, but checked after it is confirmed
+		CMStore prefetched = overlay.prefetch(spin(particle, Spin.UP));
+		overlay.confirm(down);
+
+		assertThat(prefetched.getSpin(particle)).isEqualTo(Spin.DOWN);
+	}
+}
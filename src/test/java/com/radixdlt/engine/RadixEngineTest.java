@@ -18,29 +18,63 @@
 package com.radixdlt.engine;
 
 import com.google.common.collect.ImmutableList;
+import com.radixdlt.TestSetupUtils;
+import com.radixdlt.atomos.CMAtomOS;
+import com.radixdlt.common.AID;
 import com.radixdlt.common.Atom;
+import com.radixdlt.constraintmachine.CMError;
+import com.radixdlt.constraintmachine.CMErrorCode;
 import com.radixdlt.constraintmachine.ConstraintMachine;
 import com.radixdlt.constraintmachine.DataPointer;
 import com.radixdlt.constraintmachine.Particle;
 import com.radixdlt.constraintmachine.Spin;
+import com.radixdlt.crypto.Hash;
+import com.radixdlt.metrics.AtomTrace;
+import com.radixdlt.metrics.AtomTrace.Checkpoint;
+import com.radixdlt.metrics.AtomTraceSink;
+import com.radixdlt.metrics.AtomTracer;
+import com.radixdlt.metrics.CollectingEngineMetrics;
+import com.radixdlt.metrics.EngineMetrics.Outcome;
+import com.radixdlt.metrics.EngineMetrics.Stage;
 import com.radixdlt.middleware.ParticleGroup;
 import com.radixdlt.middleware.SpunParticle;
 import com.radixdlt.serialization.SerializerId2;
 import com.radixdlt.store.CMStores;
 import com.radixdlt.store.EngineStore;
+import com.radixdlt.store.InMemoryEngineStore;
+import com.radixdlt.workload.AtomWorkload;
+import com.radixdlt.workload.WorkloadAtom;
+import org.junit.BeforeClass;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class RadixEngineTest {
+	@BeforeClass
+	public static void beforeClass() {
+		TestSetupUtils.installBouncyCastleProvider();
+	}
 
 	@SerializerId2("test.indexed_particle_2")
 	private class IndexedParticle extends Particle {
@@ -64,9 +98,311 @@ public class RadixEngineTest {
 
 		engine.start();
 		Atom atom = spy(new Atom());
-		when(atom.getParticleGroups()).thenReturn(ImmutableList.of(ParticleGroup.of(SpunParticle.of(mock(IndexedParticle.class), Spin.UP))));
+		IndexedParticle particle = mock(IndexedParticle.class);
+		when(particle.getHash()).thenReturn(Hash.random());
+		when(atom.getParticleGroups()).thenReturn(ImmutableList.of(ParticleGroup.of(SpunParticle.of(particle, Spin.UP))));
+		AtomEventListener listener = mock(AtomEventListener.class);
+		engine.store(atom, listener);
+		verify(listener, timeout(200).times(1)).onVirtualStateConflict(any(), eq(DataPointer.ofParticle(0, 0)));
+	}
+
+	@Test
+	public void when_validating_an_atom_with_metrics__latencies_and_outcomes_are_recorded() {
+		ConstraintMachine constraintMachine = mock(ConstraintMachine.class);
+		when(constraintMachine.validate(any())).thenReturn(Optional.empty());
+		EngineStore engineStore = mock(EngineStore.class);
+		when(engineStore.supports(any())).thenReturn(true);
+		CollectingEngineMetrics metrics = new CollectingEngineMetrics();
+		RadixEngine engine = new RadixEngine(
+			constraintMachine,
+			state -> CMStores.virtualizeDefault(state, p -> true, Spin.DOWN),
+			engineStore,
+			metrics
+		);
+
+		engine.start();
+		Atom atom = spy(new Atom());
+		IndexedParticle particle = mock(IndexedParticle.class);
+		when(particle.getHash()).thenReturn(Hash.random());
+		when(atom.getParticleGroups()).thenReturn(ImmutableList.of(ParticleGroup.of(SpunParticle.of(particle, Spin.UP))));
 		AtomEventListener listener = mock(AtomEventListener.class);
 		engine.store(atom, listener);
 		verify(listener, timeout(200).times(1)).onVirtualStateConflict(any(), eq(DataPointer.ofParticle(0, 0)));
+
+		assertThat(metrics.getCount(Outcome.CM_SUCCESS)).isEqualTo(1L);
+		assertThat(metrics.getCount(Outcome.VIRTUAL_CONFLICT)).isEqualTo(1L);
+		assertThat(metrics.getCount(Outcome.STORED)).isZero();
+		assertThat(metrics.getLatency(Stage.VALIDATION).getCount()).isEqualTo(1L);
+		assertThat(metrics.getLatency(Stage.QUEUE_WAIT).getCount()).isEqualTo(1L);
+		assertThat(metrics.getLatency(Stage.STATE_CHECK).getCount()).isEqualTo(1L);
+		assertThat(metrics.getQueueDepth()).isZero();
+	}
+
+	@Test
+	public void when_tracing_an_atom__a_span_with_every_reached_checkpoint_is_emitted() {
+		ConstraintMachine constraintMachine = mock(ConstraintMachine.class);
+		when(constraintMachine.validate(any())).thenReturn(Optional.empty());
+		EngineStore engineStore = mock(EngineStore.class);
+		when(engineStore.supports(any())).thenReturn(true);
+		RadixEngine engine = new RadixEngine(
+			constraintMachine,
+			state -> CMStores.virtualizeDefault(state, p -> true, Spin.DOWN),
+			engineStore
+		);
+		AtomTraceSink sink = mock(AtomTraceSink.class);
+		AtomTracer tracer = AtomTracer.builder()
+			.setSink(sink)
+			.setFlushInterval(1, TimeUnit.MILLISECONDS)
+			.build();
+		engine.setAtomTracer(tracer);
+
+		tracer.startFlushing();
+		engine.start();
+		Atom atom = spy(new Atom());
+		IndexedParticle particle = mock(IndexedParticle.class);
+		when(particle.getHash()).thenReturn(Hash.random());
+		when(atom.getParticleGroups()).thenReturn(ImmutableList.of(ParticleGroup.of(SpunParticle.of(particle, Spin.UP))));
+		engine.store(atom, mock(AtomEventListener.class));
+
+		ArgumentCaptor<AtomTrace> captor = ArgumentCaptor.forClass(AtomTrace.class);
+		verify(sink, timeout(1000).times(1)).accept(captor.capture());
+		tracer.stopFlushing();
+		AtomTrace trace = captor.getValue();
+		assertThat(trace.getOutcome()).isEqualTo(Outcome.VIRTUAL_CONFLICT);
+		assertThat(trace.isReached(Checkpoint.STORED)).isFalse();
+		for (Checkpoint checkpoint : ImmutableList.of(Checkpoint.VALIDATED, Checkpoint.QUEUED, Checkpoint.DEQUEUED, Checkpoint.NOTIFIED)) {
+			assertThat(trace.isReached(checkpoint)).as(checkpoint.name()).isTrue();
+		}
+		assertThat(trace.getNanos(Checkpoint.QUEUED, Checkpoint.DEQUEUED)).isNotNegative();
+		assertThat(trace.getTotalNanos()).isGreaterThanOrEqualTo(trace.getNanos(Checkpoint.RECEIVED, Checkpoint.STATE_CHECKED));
+	}
+
+	@Test
+	public void when_an_atom_is_invalid__it_does_not_hold_reservations() {
+		ConstraintMachine constraintMachine = mock(ConstraintMachine.class);
+		CMError invalid = new CMError(DataPointer.ofAtom(), CMErrorCode.INVALID_PARTICLE, null);
+		when(constraintMachine.validate(any())).thenReturn(Optional.of(invalid), Optional.empty());
+		EngineStore engineStore = mock(EngineStore.class);
+		RadixEngine engine = new RadixEngine(constraintMachine, UnaryOperator.identity(), engineStore);
+		ParticleReservations reservations = new ParticleReservations();
+		engine.setParticleReservations(reservations);
+		Particle particle = mock(IndexedParticle.class);
+		when(particle.getHash()).thenReturn(Hash.random());
+		AtomEventListener invalidListener = mock(AtomEventListener.class);
+		AtomEventListener validListener = mock(AtomEventListener.class);
+
+		engine.store(spending(particle), invalidListener);
+		engine.store(spending(particle), validListener);
+
+		verify(invalidListener, times(1)).onCMError(any(), eq(invalid));
+		verify(validListener, times(1)).onCMSuccess(any());
+		assertThat(reservations.getReservedCount()).isEqualTo(1);
+		assertThat(reservations.getRejectedCount()).isZero();
+	}
+
+	@Test
+	public void when_queueing_an_atom_throws__reservations_are_released() {
+		ConstraintMachine constraintMachine = mock(ConstraintMachine.class);
+		when(constraintMachine.validate(any())).thenReturn(Optional.empty());
+		EngineStore engineStore = mock(EngineStore.class);
+		when(engineStore.supports(any())).thenReturn(true);
+		when(engineStore.getSpin(any())).thenThrow(new IllegalStateException("store failed"));
+		RadixEngine engine = new RadixEngine(constraintMachine, UnaryOperator.identity(), engineStore);
+		ParticleReservations reservations = new ParticleReservations();
+		engine.setParticleReservations(reservations);
+		engine.enableSpeculativeStateChecks();
+		Particle particle = mock(IndexedParticle.class);
+		when(particle.getHash()).thenReturn(Hash.random());
+
+		assertThatThrownBy(() -> engine.store(spending(particle), mock(AtomEventListener.class)))
+			.isInstanceOf(IllegalStateException.class);
+
+		assertThat(reservations.getReservedCount()).isZero();
+		assertThat(engine.getCommitQueueSize()).isZero();
+	}
+
+	@Test
+	public void when_enabling_pending_atoms_after_start__an_exception_is_thrown() {
+		RadixEngine engine = new RadixEngine(mock(ConstraintMachine.class), UnaryOperator.identity(), mock(EngineStore.class));
+		engine.start();
+		try {
+			assertThatThrownBy(() -> engine.enablePendingAtoms(10, 1, TimeUnit.SECONDS))
+				.isInstanceOf(IllegalStateException.class);
+		} finally {
+			engine.stop();
+		}
+	}
+
+	@Test
+	public void when_enabling_pending_atoms_twice__an_exception_is_thrown() {
+		RadixEngine engine = new RadixEngine(mock(ConstraintMachine.class), UnaryOperator.identity(), mock(EngineStore.class));
+		engine.enablePendingAtoms(10, 1, TimeUnit.SECONDS);
+
+		assertThatThrownBy(() -> engine.enablePendingAtoms(10, 1, TimeUnit.SECONDS))
+			.isInstanceOf(IllegalStateException.class);
+	}
+
+	@Test
+	public void when_storing_with_particle_reservations__double_spends_are_rejected_before_validation() throws Exception {
+		AtomWorkload workload = workload()
+			.setMix(WorkloadAtom.Type.DOUBLE_SPEND, 20)
+			.build();
+		CollectingEngineMetrics metrics = new CollectingEngineMetrics();
+		RadixEngine engine = workloadEngine(metrics);
+		ParticleReservations reservations = new ParticleReservations();
+		engine.setParticleReservations(reservations);
+		List<WorkloadAtom> generated = workload.generate(200);
+		Set<AID> rejected = ConcurrentHashMap.newKeySet();
+		Set<AID> stored = ConcurrentHashMap.newKeySet();
+		AtomEventListener listener = new AtomEventListener() {
+			@Override
+			public void onCMError(Atom atom, CMError error) {
+				assertThat(error.getErrorCode()).isEqualTo(CMErrorCode.IN_FLIGHT_CONFLICT);
+				rejected.add(atom.getAID());
+			}
+
+			@Override
+			public void onStateStore(Atom atom) {
+				stored.add(atom.getAID());
+			}
+		};
+
+		// Nothing is committed until the engine is started, so every atom is in flight
+		workload.getGenesis().forEach(atom -> engine.store(atom, listener));
+		generated.forEach(atom -> engine.store(atom.getAtom(), listener));
+		Set<AID> expectedRejections = generated.stream()
+			.filter(atom -> atom.getType().isConflicting())
+			.map(atom -> atom.getAtom().getAID())
+			.collect(Collectors.toSet());
+		assertThat(rejected).isEqualTo(expectedRejections);
+		assertThat(reservations.getRejectedCount()).isEqualTo(expectedRejections.size());
+		// Rejected atoms are never validated
+		assertThat(metrics.getLatency(Stage.VALIDATION).getCount()).isEqualTo(engine.getCommitQueueSize());
+
+		int expectedStored = workload.getGenesis().size() + generated.size() - expectedRejections.size();
+		engine.start();
+		try {
+			for (int i = 0; i < 300 && stored.size() < expectedStored; ++i) {
+				Thread.sleep(100L);
+			}
+		} finally {
+			engine.stop();
+		}
+		assertThat(stored).hasSize(expectedStored);
+		assertThat(reservations.getReservedCount()).isZero();
+	}
+
+	@Test
+	public void when_storing_atoms_in_reverse_order_with_pending_atoms__all_are_eventually_stored() throws Exception {
+		AtomWorkload workload = workload()
+			.setMix(WorkloadAtom.Type.DOUBLE_SPEND, 0)
+			.build();
+		RadixEngine engine = workloadEngine(new CollectingEngineMetrics());
+		engine.enablePendingAtoms(1000, 30, TimeUnit.SECONDS);
+		List<Atom> atoms = new ArrayList<>(workload.getGenesis());
+		workload.generate(100).forEach(atom -> atoms.add(atom.getAtom()));
+		Collections.reverse(atoms);
+		CountDownLatch done = new CountDownLatch(atoms.size());
+		Set<AID> missing = ConcurrentHashMap.newKeySet();
+		AtomEventListener listener = new AtomEventListener() {
+			@Override
+			public void onStateStore(Atom atom) {
+				done.countDown();
+			}
+
+			@Override
+			public void onStateMissingDependency(AID atomId, Particle particle) {
+				missing.add(atomId);
+			}
+		};
+
+		engine.start();
+		try {
+			atoms.forEach(atom -> engine.store(atom, listener));
+			assertThat(done.await(30, TimeUnit.SECONDS)).isTrue();
+		} finally {
+			engine.stop();
+		}
+
+		assertThat(missing).isEmpty();
+		assertThat(engine.getPendingAtomCount()).isZero();
+	}
+
+	@Test
+	public void when_storing_with_speculative_state_checks__double_spends_are_predicted_and_the_rest_confirmed() throws Exception {
+		AtomWorkload workload = workload()
+			.setMix(WorkloadAtom.Type.DOUBLE_SPEND, 20)
+			.build();
+		CollectingEngineMetrics metrics = new CollectingEngineMetrics();
+		RadixEngine engine = workloadEngine(metrics);
+		engine.enableSpeculativeStateChecks();
+		List<WorkloadAtom> generated = workload.generate(200);
+		Set<AID> predicted = ConcurrentHashMap.newKeySet();
+		Set<AID> conflicted = ConcurrentHashMap.newKeySet();
+		CountDownLatch done = new CountDownLatch(workload.getGenesis().size() + generated.size());
+		AtomEventListener listener = new AtomEventListener() {
+			@Override
+			public void onSpeculativeStateConflict(Atom atom, DataPointer issueParticle) {
+				predicted.add(atom.getAID());
+			}
+
+			@Override
+			public void onStateStore(Atom atom) {
+				done.countDown();
+			}
+
+			@Override
+			public void onStateConflict(Atom atom, DataPointer issueParticle, Atom conflictingAtom) {
+				conflicted.add(atom.getAID());
+				done.countDown();
+			}
+		};
+
+		// Predictions are made while every atom is still queued
+		workload.getGenesis().forEach(atom -> engine.store(atom, listener));
+		generated.forEach(atom -> engine.store(atom.getAtom(), listener));
+		engine.start();
+		try {
+			assertThat(done.await(30, TimeUnit.SECONDS)).isTrue();
+		} finally {
+			engine.stop();
+		}
+
+		Set<AID> expectedConflicts = generated.stream()
+			.filter(atom -> atom.getType().isConflicting())
+			.map(atom -> atom.getAtom().getAID())
+			.collect(Collectors.toSet());
+		assertThat(predicted).isEqualTo(expectedConflicts);
+		assertThat(conflicted).isEqualTo(expectedConflicts);
+		assertThat(metrics.getCount(Outcome.SPECULATION_CONFIRMED)).isEqualTo(metrics.getCount(Outcome.STORED));
+		assertThat(metrics.getCount(Outcome.SPECULATION_STALE)).isZero();
+	}
+
+	private static Atom spending(Particle particle) {
+		Atom atom = spy(new Atom());
+		when(atom.getParticleGroups()).thenReturn(ImmutableList.of(ParticleGroup.of(SpunParticle.of(particle, Spin.DOWN))));
+		return atom;
+	}
+
+	private static AtomWorkload.Builder workload() {
+		return new AtomWorkload.Builder()
+			.setKeyCount(10)
+			.setHotAccountSkew(1.0)
+			.setPaymentOutputs(4)
+			.setOversizedBytes(4096)
+			.setTimestamp(1L);
+	}
+
+	/**
+	 * Builds an engine which validates and stores atoms generated by {@link AtomWorkload}.
+	 */
+	private static RadixEngine workloadEngine(CollectingEngineMetrics metrics) {
+		CMAtomOS cmAtomOS = AtomWorkload.buildAtomOS();
+		ConstraintMachine cm = new ConstraintMachine.Builder()
+			.setParticleStaticCheck(cmAtomOS.buildParticleStaticCheck())
+			.setParticleTransitionProcedures(cmAtomOS.buildTransitionProcedures())
+			.setMetrics(metrics)
+			.build();
+		return new RadixEngine(cm, cmAtomOS.buildVirtualLayer(), new InMemoryEngineStore(), metrics);
 	}
-}
\ No newline at end of file
+}
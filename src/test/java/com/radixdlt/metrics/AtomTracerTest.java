@@ -0,0 +1,93 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+
+package com.radixdlt.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.radixdlt.common.Atom;
+import com.radixdlt.metrics.AtomTrace.Checkpoint;
+import com.radixdlt.metrics.EngineMetrics.Outcome;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class AtomTracerTest {
+	@Test
+	public void when_buffer_is_full__further_traces_are_dropped_and_counted() {
+		List<AtomTrace> traces = new ArrayList<>();
+		AtomTracer tracer = AtomTracer.builder()
+			.setSink(traces::add)
+			.setCapacity(2)
+			.build();
+
+		for (int i = 0; i < 5; ++i) {
+			tracer.finish(tracer.begin(new Atom()), Outcome.STORED);
+		}
+
+		assertThat(tracer.flush()).isEqualTo(2);
+		assertThat(traces).hasSize(2);
+		assertThat(tracer.getSampledCount()).isEqualTo(5L);
+		assertThat(tracer.getDroppedCount()).isEqualTo(3L);
+		// Flushing makes room again
+		tracer.finish(tracer.begin(new Atom()), Outcome.STORED);
+		assertThat(tracer.flush()).isEqualTo(1);
+	}
+
+	@Test
+	public void when_sampling__only_some_atoms_are_traced() {
+		AtomTracer tracer = AtomTracer.builder()
+			.setSink(trace -> { })
+			.setSampleInterval(100)
+			.build();
+
+		int traced = 0;
+		for (int i = 0; i < 10_000; ++i) {
+			if (tracer.begin(new Atom()) != null) {
+				traced += 1;
+			}
+		}
+
+		assertThat(traced).isBetween(1, 1_000);
+		assertThat(tracer.getSampledCount()).isEqualTo(traced);
+	}
+
+	@Test
+	public void when_sink_throws__remaining_traces_are_still_delivered() {
+		List<AtomTrace> traces = new ArrayList<>();
+		AtomTracer tracer = AtomTracer.builder()
+			.setSink(trace -> {
+				if (trace.getOutcome() == Outcome.CONFLICT) {
+					throw new IllegalStateException("Sink failure");
+				}
+				traces.add(trace);
+			})
+			.build();
+
+		tracer.finish(tracer.begin(new Atom()), Outcome.CONFLICT);
+		AtomTrace stored = tracer.begin(new Atom());
+		stored.stamp(Checkpoint.STORED);
+		tracer.finish(stored, Outcome.STORED);
+
+		assertThat(tracer.flush()).isEqualTo(2);
+		assertThat(traces).containsExactly(stored);
+		assertThat(stored.getAID()).isNull();
+		assertThat(stored.getNanos(Checkpoint.RECEIVED, Checkpoint.STORED)).isNotNegative();
+		assertThat(stored.getNanos(Checkpoint.RECEIVED, Checkpoint.QUEUED)).isEqualTo(-1L);
+	}
+}
@@ -0,0 +1,71 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+
+package com.radixdlt.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.radixdlt.constraintmachine.CMErrorCode;
+import com.radixdlt.metrics.EngineMetrics.Outcome;
+import com.radixdlt.metrics.EngineMetrics.Stage;
+import java.util.Map;
+import org.junit.Test;
+
+public class CollectingEngineMetricsTest {
+	@Test
+	public void when_nothing_is_recorded__percentiles_are_zero() {
+		LatencyHistogram histogram = new LatencyHistogram();
+
+		assertThat(histogram.getPercentileNanos(0.5)).isZero();
+		assertThat(histogram.getMeanNanos()).isZero();
+	}
+
+	@Test
+	public void when_recording_latencies__percentiles_are_within_a_factor_of_two() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (long nanos = 1; nanos <= 1000; ++nanos) {
+			histogram.record(nanos);
+		}
+
+		assertThat(histogram.getCount()).isEqualTo(1000L);
+		assertThat(histogram.getMaxNanos()).isEqualTo(1000L);
+		assertThat(histogram.getPercentileNanos(0.5)).isBetween(500L, 1000L);
+		assertThat(histogram.getPercentileNanos(0.99)).isBetween(990L, 1000L);
+		assertThat(histogram.getPercentileNanos(0.0)).isEqualTo(1L);
+	}
+
+	@Test
+	public void when_taking_a_snapshot__every_metric_is_named() {
+		CollectingEngineMetrics metrics = new CollectingEngineMetrics("test.");
+		metrics.recordLatency(Stage.STORE, 100L);
+		metrics.incrementError(CMErrorCode.WITNESS_ERROR);
+		metrics.incrementOutcome(Outcome.CONFLICT);
+		metrics.incrementOutcome(Outcome.CONFLICT);
+		metrics.registerCommitQueue(() -> 3, () -> 42L);
+
+		Map<String, Number> snapshot = metrics.snapshot();
+
+		assertThat(snapshot.get("test.latency.store.count")).isEqualTo(1L);
+		assertThat(snapshot.get("test.latency.store.max_ns")).isEqualTo(100L);
+		assertThat(snapshot.get("test.errors.witness_error")).isEqualTo(1L);
+		assertThat(snapshot.get("test.errors.hook_error")).isEqualTo(0L);
+		assertThat(snapshot.get("test.outcomes.conflict")).isEqualTo(2L);
+		assertThat(snapshot.get("test.queue.depth")).isEqualTo(3);
+		assertThat(snapshot.get("test.queue.age_ns")).isEqualTo(42L);
+	}
+}
@@ -19,20 +19,35 @@ package com.radixdlt.middleware;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.radixdlt.TestSetupUtils;
+import com.radixdlt.atommodel.message.MessageParticle;
+import com.radixdlt.atomos.RadixAddress;
 import com.radixdlt.common.Atom;
 import com.radixdlt.common.EUID;
+import com.radixdlt.constraintmachine.Spin;
+import com.radixdlt.crypto.CryptoException;
+import com.radixdlt.crypto.ECKeyPair;
 import com.radixdlt.crypto.ECSignature;
 import com.radixdlt.universe.Universe;
+import org.junit.BeforeClass;
 import org.junit.Test;
 
 import java.math.BigInteger;
 import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class AtomCheckHookTest {
+	@BeforeClass
+	public static void setupBouncyCastle() {
+		TestSetupUtils.installBouncyCastleProvider();
+	}
+
 	@Test
 	public void when_validating_atom_with_particles__result_has_no_error() {
 		Universe universe = mock(Universe.class);
@@ -122,4 +137,30 @@ public class AtomCheckHookTest {
 		assertThat(atomCheckHook.hook(atom).getErrorMessage())
 			.contains("invalid timestamp");
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void when_validating_several_atoms__genesis_is_only_computed_once_per_universe() throws CryptoException {
+		Universe universe0 = mock(Universe.class);
+		when(universe0.getGenesis()).thenReturn(Collections.emptyList());
+		Universe universe1 = mock(Universe.class);
+		when(universe1.getGenesis()).thenReturn(Collections.emptyList());
+		AtomicReference<Universe> currentUniverse = new AtomicReference<>(universe0);
+		AtomCheckHook atomCheckHook = new AtomCheckHook(
+			currentUniverse::get,
+			() -> 0,
+			false,
+			30
+		);
+		RadixAddress address = new RadixAddress((byte) 0, new ECKeyPair().getPublicKey());
+		Atom atom = new Atom(0L);
+		atom.addParticleGroupWith(new MessageParticle(address, address, new byte[] {1}), Spin.UP);
+
+		assertThat(atomCheckHook.hook(atom).getErrorMessage()).contains("atom fee missing");
+		assertThat(atomCheckHook.hook(atom).getErrorMessage()).contains("atom fee missing");
+		verify(universe0, times(1)).getGenesis();
+
+		currentUniverse.set(universe1);
+		assertThat(atomCheckHook.hook(atom).getErrorMessage()).contains("atom fee missing");
+		verify(universe1, times(1)).getGenesis();
+	}
+}
@@ -19,17 +19,26 @@ package com.radixdlt.middleware;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 import com.google.common.collect.ImmutableList;
 import com.radixdlt.middleware.RadixEngineUtils.CMAtomConversionException;
 import com.radixdlt.constraintmachine.DataPointer;
 import com.radixdlt.constraintmachine.Particle;
+import com.radixdlt.crypto.Hash;
 import org.junit.Test;
 
 public class RadixEngineUtilsTest {
+	private static Particle mockParticle() {
+		// Particles are identified by their hash
+		Particle particle = mock(Particle.class);
+		when(particle.getHash()).thenReturn(Hash.random());
+		return particle;
+	}
+
 	@Test
 	public void when_validating_an_up_cm_particle__no_issue_is_returned() throws CMAtomConversionException {
-		Particle particle0 = mock(Particle.class);
+		Particle particle0 = mockParticle();
 		RadixEngineUtils.toCMMicroInstructions(
 			ImmutableList.of(ParticleGroup.of(
 				SpunParticle.up(particle0)
@@ -39,7 +48,7 @@ public class RadixEngineUtilsTest {
 
 	@Test
 	public void when_validating_an_up_to_down_cm_particle__no_issue_is_returned() throws CMAtomConversionException {
-		Particle particle0 = mock(Particle.class);
+		Particle particle0 = mockParticle();
 		RadixEngineUtils.toCMMicroInstructions(
 			ImmutableList.of(
 				ParticleGroup.of(
@@ -54,7 +63,7 @@ public class RadixEngineUtilsTest {
 
 	@Test
 	public void when_validating_an_up_to_up_cm_particle__internal_conflict_is_returned() {
-		Particle particle0 = mock(Particle.class);
+		Particle particle0 = mockParticle();
 
 		assertThatThrownBy(() ->
 			RadixEngineUtils.toCMMicroInstructions(
@@ -74,7 +83,7 @@ public class RadixEngineUtilsTest {
 
 	@Test
 	public void when_validating_a_down_to_down_cm_particle__conflict_is_returned() {
-		Particle particle0 = mock(Particle.class);
+		Particle particle0 = mockParticle();
 		assertThatThrownBy(() ->
 			RadixEngineUtils.toCMMicroInstructions(
 				ImmutableList.of(
@@ -91,7 +100,7 @@ public class RadixEngineUtilsTest {
 
 	@Test
 	public void when_validating_a_down_to_up_cm_particle__single_conflict_is_returned() {
-		Particle particle0 = mock(Particle.class);
+		Particle particle0 = mockParticle();
 		assertThatThrownBy(() ->
 			RadixEngineUtils.toCMMicroInstructions(
 				ImmutableList.of(
@@ -108,7 +117,7 @@ public class RadixEngineUtilsTest {
 
 	@Test
 	public void when_checking_two_duplicate_particles__two_errors_are_returned() {
-		Particle particle0 = mock(Particle.class);
+		Particle particle0 = mockParticle();
 		assertThatThrownBy(() ->
 			RadixEngineUtils.toCMMicroInstructions(
 				ImmutableList.of(
@@ -0,0 +1,242 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.serialization;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.radixdlt.TestSetupUtils;
+import com.radixdlt.atommodel.message.MessageParticle;
+import com.radixdlt.atomos.RadixAddress;
+import com.radixdlt.common.Atom;
+import com.radixdlt.constraintmachine.Spin;
+import com.radixdlt.crypto.ECKeyPair;
+import com.radixdlt.crypto.Hash;
+import com.radixdlt.serialization.DsonOutput.Output;
+import com.radixdlt.utils.Bytes;
+import com.radixdlt.utils.Ints;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class SerializationTest {
+	private final Serialization serialization = Serialization.getDefault();
+
+	@BeforeClass
+	public static void setupBouncyCastle() {
+		TestSetupUtils.installBouncyCastleProvider();
+	}
+
+	private static MessageParticle messageParticle() throws Exception {
+		RadixAddress from = new RadixAddress((byte) 1, new ECKeyPair().getPublicKey());
+		RadixAddress to = new RadixAddress((byte) 1, new ECKeyPair().getPublicKey());
+		return new MessageParticle(from, to, new byte[] {1, 2, 3});
+	}
+
+	private static List<MessageParticle> messageParticles(int count) throws Exception {
+		RadixAddress from = new RadixAddress((byte) 1, new ECKeyPair().getPublicKey());
+		RadixAddress to = new RadixAddress((byte) 1, new ECKeyPair().getPublicKey());
+		List<MessageParticle> particles = new ArrayList<>(count);
+		for (int i = 0; i < count; ++i) {
+			particles.add(new MessageParticle(from, to, Ints.toByteArray(i)));
+		}
+		return particles;
+	}
+
+	private static Atom signedAtom() throws Exception {
+		ECKeyPair key = new ECKeyPair();
+		RadixAddress address = new RadixAddress((byte) 1, key.getPublicKey());
+		Atom atom = new Atom(1234L, ImmutableMap.of("key", "value"));
+		atom.addParticleGroupWith(new MessageParticle(address, address, new byte[] {1, 2, 3}), Spin.UP);
+		atom.sign(key);
+		return atom;
+	}
+
+	@Test
+	public void when_writing_to_a_stream__bytes_and_length_match_array_output() throws Exception {
+		MessageParticle particle = messageParticle();
+		byte[] expected = serialization.toDson(particle, Output.WIRE);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.write(0xFF);
+
+		int length = serialization.toDson(particle, Output.WIRE, out);
+
+		assertThat(length).isEqualTo(expected.length);
+		byte[] written = out.toByteArray();
+		assertThat(Arrays.copyOfRange(written, 1, written.length)).isEqualTo(expected);
+	}
+
+	@Test
+	public void when_writing_to_a_buffer__position_is_advanced_by_encoded_length() throws Exception {
+		MessageParticle particle = messageParticle();
+		byte[] expected = serialization.toDson(particle, Output.HASH);
+		ByteBuffer buffer = ByteBuffer.allocate(expected.length + 10);
+		buffer.position(3);
+
+		int length = serialization.toDson(particle, Output.HASH, buffer);
+
+		assertThat(length).isEqualTo(expected.length);
+		assertThat(buffer.position()).isEqualTo(3 + expected.length);
+		assertThat(Arrays.copyOfRange(buffer.array(), 3, 3 + length)).isEqualTo(expected);
+	}
+
+	@Test
+	public void when_writing_to_a_buffer_that_is_too_small__exception_is_thrown_and_position_unchanged() throws Exception {
+		MessageParticle particle = messageParticle();
+		byte[] expected = serialization.toDson(particle, Output.HASH);
+		ByteBuffer buffer = ByteBuffer.allocate(expected.length - 1);
+
+		assertThatThrownBy(() -> serialization.toDson(particle, Output.HASH, buffer))
+			.isInstanceOf(SerializationException.class);
+		assertThat(buffer.position()).isZero();
+	}
+
+	@Test
+	public void when_mapping_dson__function_sees_the_same_bytes_as_array_output() throws Exception {
+		MessageParticle particle = messageParticle();
+		byte[] expected = serialization.toDson(particle, Output.HASH);
+
+		Hash hash = serialization.mapDson(particle, Output.HASH,
+			(bytes, offset, length) -> new Hash(Hash.hash256(bytes, offset, length)));
+
+		assertThat(hash).isEqualTo(new Hash(Hash.hash256(expected)));
+		int encodedLength = serialization.mapDson(particle, Output.HASH, (bytes, offset, length) -> length);
+		assertThat(encodedLength).isEqualTo(expected.length);
+	}
+
+	@Test
+	public void when_serializing_for_different_outputs__each_call_is_filtered_for_its_own_output() throws Exception {
+		MessageParticle particle = messageParticle();
+
+		for (int i = 0; i < 2; ++i) {
+			assertThat(serialization.toJsonObject(particle, Output.API).has("hid")).isTrue();
+			assertThat(serialization.toJsonObject(particle, Output.HASH).has("hid")).isFalse();
+			assertThat(serialization.toJson(particle, Output.NONE)).isEqualTo("{}");
+			assertThat(serialization.toJson(particle, Output.ALL)).contains("\"hid\"");
+		}
+	}
+
+	@Test
+	public void when_serializing_a_batch__records_can_be_iterated_in_order() throws Exception {
+		List<MessageParticle> particles = messageParticles(10);
+
+		byte[] batch = serialization.toDsonBatch(particles, Output.WIRE);
+
+		assertThat(ImmutableList.copyOf(serialization.fromDsonBatch(batch, MessageParticle.class))).isEqualTo(particles);
+	}
+
+	@Test
+	public void when_serializing_a_large_batch_concurrently__output_matches_sequential_output() throws Exception {
+		List<MessageParticle> particles = messageParticles(1000);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			byte[] batch = serialization.toDsonBatch(particles, Output.HASH, pool);
+
+			assertThat(batch).isEqualTo(serialization.toDsonBatch(particles, Output.HASH));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void when_deserializing_a_truncated_batch__exception_is_thrown() throws Exception {
+		byte[] batch = serialization.toDsonBatch(messageParticles(2), Output.WIRE);
+
+		assertThatThrownBy(() -> serialization.fromDsonBatch(Arrays.copyOf(batch, batch.length - 1), MessageParticle.class))
+			.isInstanceOf(SerializationException.class);
+	}
+
+	@Test
+	public void when_checking_generated_dson__it_is_canonical() throws Exception {
+		Atom atom = signedAtom();
+
+		for (Output output : Output.values()) {
+			assertThat(serialization.isCanonicalDson(serialization.toDson(atom, output))).as(output.name()).isTrue();
+		}
+	}
+
+	@Test
+	public void when_checking_non_canonical_dson__it_is_rejected() {
+		// {"a": 1}
+		assertThat(serialization.isCanonicalDson(Bytes.fromHexString("bf6161" + "01" + "ff"))).isTrue();
+		// Definite length map
+		assertThat(serialization.isCanonicalDson(Bytes.fromHexString("a16161" + "01"))).isFalse();
+		// Non-minimal integer
+		assertThat(serialization.isCanonicalDson(Bytes.fromHexString("bf6161" + "1801" + "ff"))).isFalse();
+		// Unsorted keys
+		assertThat(serialization.isCanonicalDson(Bytes.fromHexString("bf616201" + "616101" + "ff"))).isFalse();
+		// Null value
+		assertThat(serialization.isCanonicalDson(Bytes.fromHexString("bf6161" + "f6" + "ff"))).isFalse();
+		// Duplicate array elements
+		assertThat(serialization.isCanonicalDson(Bytes.fromHexString("820102"))).isTrue();
+		assertThat(serialization.isCanonicalDson(Bytes.fromHexString("820101"))).isFalse();
+		// Trailing bytes
+		assertThat(serialization.isCanonicalDson(Bytes.fromHexString("bf6161" + "01" + "ff" + "00"))).isFalse();
+		// Truncated
+		assertThat(serialization.isCanonicalDson(Bytes.fromHexString("bf6161"))).isFalse();
+	}
+
+	@Test
+	public void when_checking_deeply_nested_dson__it_is_rejected() {
+		String atLimit = Strings.repeat("81", CanonicalDsonScanner.MAX_DEPTH) + "01";
+		String overLimit = Strings.repeat("81", CanonicalDsonScanner.MAX_DEPTH + 1) + "01";
+
+		assertThat(serialization.isCanonicalDson(Bytes.fromHexString(atLimit))).isTrue();
+		assertThat(serialization.isCanonicalDson(Bytes.fromHexString(overLimit))).isFalse();
+	}
+
+	@Test
+	public void when_filtering_canonical_and_non_canonical_dson__both_match_direct_output() throws Exception {
+		Atom atom = signedAtom();
+		byte[] expected = serialization.toDson(atom, Output.HASH);
+		byte[] persisted = serialization.toDson(atom, Output.PERSIST);
+		// Re-frame the top level object as a definite length map, which decodes
+		// to the same atom, but is not canonical.
+		int entries = new ObjectMapper(new CBORFactory()).readTree(persisted).size();
+		byte[] nonCanonical = new byte[persisted.length - 1];
+		nonCanonical[0] = (byte) (0xA0 + entries);
+		System.arraycopy(persisted, 1, nonCanonical, 1, persisted.length - 2);
+
+		assertThat(serialization.isCanonicalDson(nonCanonical)).isFalse();
+		assertThat(serialization.filterDson(persisted, Output.HASH)).isEqualTo(expected);
+		assertThat(serialization.filterDson(nonCanonical, Output.HASH)).isEqualTo(expected);
+	}
+
+	@Test
+	public void when_serialization_is_reentrant__nested_output_does_not_corrupt_outer_output() throws Exception {
+		// The API output includes the "hid" property, which hashes the
+		// particle while the particle itself is being serialized.
+		MessageParticle particle = messageParticle();
+
+		byte[] bytes = serialization.toDson(particle, Output.API);
+		MessageParticle deserialized = serialization.fromDson(bytes, MessageParticle.class);
+
+		assertThat(deserialized).isEqualTo(particle);
+		assertThat(serialization.toDson(deserialized, Output.API)).isEqualTo(bytes);
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+
+package com.radixdlt.store;
+
+import com.radixdlt.common.AID;
+import com.radixdlt.common.Atom;
+import com.radixdlt.common.EUID;
+import com.radixdlt.constraintmachine.Particle;
+import com.radixdlt.constraintmachine.Spin;
+import com.radixdlt.middleware.SpunParticle;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * A non-persistent engine store which supports all shards, for tests and benchmarks.
+ * <p>
+ * The store records which stored atom brought each particle up, and which
+ * brought it down.  Deleting an atom also deletes any stored atoms which
+ * spent particles it brought up, and returns its particles to their previous spin.
+ * <p>
+ * Note that spins may be read from any thread, and updates are serialized.
+ */
+public final class InMemoryEngineStore implements EngineStore {
+	private final Map<AID, Atom> atoms = new ConcurrentHashMap<>();
+	private final Map<Particle, Atom> outputs = new ConcurrentHashMap<>();
+	private final Map<Particle, Atom> inputs = new ConcurrentHashMap<>();
+
+	@Override
+	public boolean supports(Set<EUID> destinations) {
+		return true;
+	}
+
+	@Override
+	public Spin getSpin(Particle particle) {
+		if (inputs.containsKey(particle)) {
+			return Spin.DOWN;
+		}
+		return outputs.containsKey(particle) ? Spin.UP : Spin.NEUTRAL;
+	}
+
+	@Override
+	public void getAtomContaining(Particle particle, boolean isInput, Consumer<Atom> callback) {
+		// Falls back to the other side for particles with a virtual spin
+		final Atom preferred = (isInput ? inputs : outputs).get(particle);
+		final Atom atom = preferred != null ? preferred : (isInput ? outputs : inputs).get(particle);
+		if (atom != null) {
+			callback.accept(atom);
+		}
+	}
+
+	@Override
+	public synchronized void storeAtom(Atom atom) {
+		atoms.put(atom.getAID(), atom);
+		atom.spunParticles().forEach(spunParticle -> {
+			if (spunParticle.getSpin() == Spin.UP) {
+				outputs.put(spunParticle.getParticle(), atom);
+			} else if (spunParticle.getSpin() == Spin.DOWN) {
+				inputs.put(spunParticle.getParticle(), atom);
+			}
+		});
+	}
+
+	@Override
+	public synchronized void deleteAtom(AID atomId) {
+		final Atom atom = atoms.remove(atomId);
+		if (atom == null) {
+			return;
+		}
+
+		final List<SpunParticle> spunParticles = atom.spunParticles().collect(Collectors.toList());
+		for (SpunParticle spunParticle : spunParticles) {
+			final Particle particle = spunParticle.getParticle();
+			if (spunParticle.getSpin() == Spin.UP && outputs.get(particle) == atom) {
+				final Atom dependent = inputs.get(particle);
+				if (dependent != null && dependent != atom) {
+					deleteAtom(dependent.getAID());
+				}
+			}
+		}
+		for (SpunParticle spunParticle : spunParticles) {
+			outputs.remove(spunParticle.getParticle(), atom);
+			inputs.remove(spunParticle.getParticle(), atom);
+		}
+	}
+
+	/**
+	 * Returns the number of atoms in this store.
+	 */
+	public int size() {
+		return atoms.size();
+	}
+}
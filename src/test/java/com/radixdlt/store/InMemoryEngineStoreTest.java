@@ -0,0 +1,103 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+
+package com.radixdlt.store;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.radixdlt.TestSetupUtils;
+import com.radixdlt.atommodel.message.MessageParticle;
+import com.radixdlt.atomos.RadixAddress;
+import com.radixdlt.common.Atom;
+import com.radixdlt.constraintmachine.Spin;
+import com.radixdlt.crypto.ECKeyPair;
+import com.radixdlt.middleware.ParticleGroup;
+import com.radixdlt.middleware.SpunParticle;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class InMemoryEngineStoreTest {
+	private MessageParticle first;
+	private MessageParticle second;
+	private Atom creating;
+	private Atom spending;
+
+	@BeforeClass
+	public static void setupBouncyCastle() {
+		TestSetupUtils.installBouncyCastleProvider();
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		RadixAddress address = new RadixAddress((byte) 0, new ECKeyPair().getPublicKey());
+		this.first = new MessageParticle(address, address, new byte[] {1});
+		this.second = new MessageParticle(address, address, new byte[] {2});
+		this.creating = new Atom(1L);
+		this.creating.addParticleGroupWith(this.first, Spin.UP);
+		this.spending = new Atom(2L);
+		this.spending.addParticleGroup(ParticleGroup.of(SpunParticle.down(this.first), SpunParticle.up(this.second)));
+	}
+
+	private static Atom atomContaining(InMemoryEngineStore store, MessageParticle particle, boolean isInput) {
+		AtomicReference<Atom> result = new AtomicReference<>();
+		store.getAtomContaining(particle, isInput, result::set);
+		return result.get();
+	}
+
+	@Test
+	public void when_storing_atoms__spins_and_containing_atoms_are_tracked() {
+		InMemoryEngineStore store = new InMemoryEngineStore();
+
+		store.storeAtom(this.creating);
+		store.storeAtom(this.spending);
+
+		assertThat(store.getSpin(this.first)).isEqualTo(Spin.DOWN);
+		assertThat(store.getSpin(this.second)).isEqualTo(Spin.UP);
+		assertThat(atomContaining(store, this.first, true)).isEqualTo(this.spending);
+		assertThat(atomContaining(store, this.first, false)).isEqualTo(this.creating);
+		assertThat(store.size()).isEqualTo(2);
+	}
+
+	@Test
+	public void when_deleting_a_spending_atom__spent_particles_are_up_again() {
+		InMemoryEngineStore store = new InMemoryEngineStore();
+		store.storeAtom(this.creating);
+		store.storeAtom(this.spending);
+
+		store.deleteAtom(this.spending.getAID());
+
+		assertThat(store.getSpin(this.first)).isEqualTo(Spin.UP);
+		assertThat(store.getSpin(this.second)).isEqualTo(Spin.NEUTRAL);
+		assertThat(store.size()).isEqualTo(1);
+	}
+
+	@Test
+	public void when_deleting_a_creating_atom__atoms_which_depend_on_it_are_deleted() {
+		InMemoryEngineStore store = new InMemoryEngineStore();
+		store.storeAtom(this.creating);
+		store.storeAtom(this.spending);
+
+		store.deleteAtom(this.creating.getAID());
+
+		assertThat(store.getSpin(this.first)).isEqualTo(Spin.NEUTRAL);
+		assertThat(store.getSpin(this.second)).isEqualTo(Spin.NEUTRAL);
+		assertThat(store.size()).isZero();
+	}
+}
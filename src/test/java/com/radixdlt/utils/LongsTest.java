@@ -30,4 +30,13 @@ public class LongsTest {
 		Assert.assertEquals(longs[0], 1L);
 		Assert.assertEquals(longs[1], 2L);
 	}
+
+	@Test
+	public void testToSortedUnsignedSet() {
+		long[] values = {5L, -1L, 0L, 5L, Long.MIN_VALUE, 7L, 99L};
+		long[] sorted = Longs.toSortedUnsignedSet(values, 6);
+		Assert.assertArrayEquals(new long[] {0L, 5L, 7L, Long.MIN_VALUE, -1L}, sorted);
+		Assert.assertEquals(99L, values[6]);
+		Assert.assertEquals(0, Longs.toSortedUnsignedSet(values, 0).length);
+	}
 }
\ No newline at end of file
@@ -0,0 +1,89 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigInteger;
+import java.util.Random;
+import org.junit.Test;
+
+public class MutableUInt256Test {
+	private static final BigInteger MODULUS = BigInteger.ONE.shiftLeft(UInt256.SIZE);
+
+	private static UInt256 random(Random random) {
+		// Bias towards values with all-ones or all-zeros words to exercise carries
+		byte[] bytes = new byte[UInt256.BYTES];
+		random.nextBytes(bytes);
+		for (int word = 0; word < UInt256.BYTES / Long.BYTES; ++word) {
+			int choice = random.nextInt(4);
+			if (choice < 2) {
+				for (int i = 0; i < Long.BYTES; ++i) {
+					bytes[word * Long.BYTES + i] = choice == 0 ? 0 : (byte) 0xFF;
+				}
+			}
+		}
+		return UInt256.from(bytes);
+	}
+
+	@Test
+	public void when_adding_and_subtracting__results_match_big_integer_arithmetic() {
+		Random random = new Random(1234L);
+		for (int i = 0; i < 10_000; ++i) {
+			UInt256 a = random(random);
+			UInt256 b = random(random);
+			BigInteger bigA = UInt256s.toBigInteger(a);
+			BigInteger bigB = UInt256s.toBigInteger(b);
+
+			assertThat(MutableUInt256.from(a).add(b).toUInt256()).isEqualTo(a.add(b));
+			assertThat(MutableUInt256.from(a).subtract(b).toUInt256()).isEqualTo(a.subtract(b));
+			assertThat(UInt256s.toBigInteger(MutableUInt256.from(a).add(b).toUInt256())).isEqualTo(bigA.add(bigB).mod(MODULUS));
+			int expectedCompare = Integer.signum(bigA.compareTo(bigB));
+			int actualCompare = Integer.signum(MutableUInt256.from(a).compareTo(b));
+			assertThat(actualCompare).isEqualTo(expectedCompare);
+
+			boolean overflows = bigA.add(bigB).compareTo(MODULUS) >= 0;
+			MutableUInt256 sum = MutableUInt256.from(a);
+			if (overflows) {
+				assertThatThrownBy(() -> sum.addWithOverflow(b)).isInstanceOf(ArithmeticException.class);
+				assertThat(sum.toUInt256()).isEqualTo(a);
+			} else {
+				assertThat(sum.addWithOverflow(b).toUInt256()).isEqualTo(a.add(b));
+			}
+
+			MutableUInt256 difference = MutableUInt256.from(a);
+			if (expectedCompare < 0) {
+				assertThatThrownBy(() -> difference.subtractWithUnderflow(b)).isInstanceOf(ArithmeticException.class);
+				assertThat(difference.toUInt256()).isEqualTo(a);
+			} else {
+				assertThat(difference.subtractWithUnderflow(b).toUInt256()).isEqualTo(a.subtract(b));
+			}
+		}
+	}
+
+	@Test
+	public void when_accumulating_at_the_limits__overflow_and_underflow_are_detected() {
+		MutableUInt256 value = MutableUInt256.from(UInt256.MAX_VALUE);
+
+		assertThatThrownBy(() -> value.addWithOverflow(UInt256.ONE)).hasMessage("overflow");
+		assertThat(value.subtractWithUnderflow(UInt256.MAX_VALUE).isZero()).isTrue();
+		assertThatThrownBy(() -> value.subtractWithUnderflow(UInt256.ONE)).hasMessage("underflow");
+		assertThat(value.add(UInt256.ONE).compareTo(new MutableUInt256().add(UInt256.ONE))).isZero();
+	}
+}
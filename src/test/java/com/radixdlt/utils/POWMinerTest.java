@@ -0,0 +1,68 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.radixdlt.TestSetupUtils;
+import com.radixdlt.crypto.Hash;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class POWMinerTest {
+	private static final Hash EASY_TARGET = new Hash("00FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFF");
+
+	@BeforeClass
+	public static void setupBouncyCastle() {
+		TestSetupUtils.installBouncyCastleProvider();
+	}
+
+	@Test
+	public void when_mining__result_meets_target() throws Exception {
+		Hash seed = Hash.random();
+
+		POW pow = new POWMiner(2).mine(1234, seed, EASY_TARGET, 30, TimeUnit.SECONDS);
+
+		assertThat(pow.getMagic()).isEqualTo(1234);
+		assertThat(pow.getSeed()).isEqualTo(seed);
+		assertThat(pow.getHash()).isLessThan(EASY_TARGET);
+	}
+
+	@Test
+	public void when_target_cannot_be_met__mining_times_out() {
+		assertThatThrownBy(() -> new POWMiner(2).mine(1234, Hash.random(), Hash.ZERO_HASH, 50, TimeUnit.MILLISECONDS))
+			.isInstanceOf(TimeoutException.class);
+	}
+
+	@Test
+	public void when_cancelled__result_is_cancelled_and_progress_is_reported() throws Exception {
+		POWMiner.MiningTask task = new POWMiner(2).start(1234, Hash.random(), Hash.ZERO_HASH);
+		while (task.getHashCount() == 0L) {
+			Thread.sleep(1L);
+		}
+
+		assertThat(task.cancel()).isTrue();
+		assertThat(task.cancel()).isFalse();
+		assertThatThrownBy(() -> task.getResult().join()).isInstanceOf(CancellationException.class);
+		assertThat(task.getHashesPerSecond()).isPositive();
+	}
+}
@@ -0,0 +1,66 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.radixdlt.TestSetupUtils;
+import com.radixdlt.crypto.Hash;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class POWTest {
+	@BeforeClass
+	public static void setupBouncyCastle() {
+		TestSetupUtils.installBouncyCastleProvider();
+	}
+
+	@Test
+	public void when_hashing__result_is_hash_of_magic_seed_and_nonce() {
+		Hash seed = Hash.random();
+		ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + Hash.BYTES + Long.BYTES);
+		buffer.putInt(1234).put(seed.toByteArray()).putLong(5678L);
+
+		assertThat(new POW(1234, seed, 5678L).getHash()).isEqualTo(new Hash(Hash.hash256(buffer.array())));
+	}
+
+	@Test
+	public void when_checking_target__result_matches_hash_comparison() {
+		Random random = new Random(1234L);
+		Hash seed = Hash.random();
+		for (int i = 0; i < 1000; ++i) {
+			POW pow = new POW(1, seed, random.nextLong());
+			byte[] targetBytes = pow.getHash().toByteArray().clone();
+			// Perturb a single byte of the hash to produce targets either side of it
+			int index = random.nextInt(Hash.BYTES);
+			targetBytes[index] = (byte) random.nextInt(256);
+			Hash target = new Hash(targetBytes);
+
+			assertThat(pow.meetsTarget(target)).isEqualTo(pow.getHash().compareTo(target) < 0);
+		}
+	}
+
+	@Test
+	public void when_hash_equals_target__target_is_not_met() {
+		POW pow = new POW(1, Hash.random(), 42L);
+
+		assertThat(POW.meetsTarget(1, pow.getSeed(), 42L, pow.getHash())).isFalse();
+	}
+}
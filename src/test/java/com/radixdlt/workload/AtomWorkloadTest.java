@@ -0,0 +1,142 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+
+package com.radixdlt.workload;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.radixdlt.TestSetupUtils;
+import com.radixdlt.atomos.CMAtomOS;
+import com.radixdlt.common.AID;
+import com.radixdlt.common.Atom;
+import com.radixdlt.constraintmachine.ConstraintMachine;
+import com.radixdlt.constraintmachine.DataPointer;
+import com.radixdlt.crypto.ECKeyPair;
+import com.radixdlt.engine.AtomEventListener;
+import com.radixdlt.engine.RadixEngine;
+import com.radixdlt.middleware.RadixEngineUtils;
+import com.radixdlt.store.InMemoryEngineStore;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class AtomWorkloadTest {
+	@BeforeClass
+	public static void beforeClass() {
+		TestSetupUtils.installBouncyCastleProvider();
+	}
+
+	private static AtomWorkload.Builder smallWorkload() {
+		return new AtomWorkload.Builder()
+			.setKeyCount(10)
+			.setHotAccountSkew(1.0)
+			.setPaymentOutputs(4)
+			.setOversizedBytes(4096)
+			.setTimestamp(1L);
+	}
+
+	@Test
+	public void when_validating_generated_atoms__all_are_valid_for_the_constraint_machine() throws Exception {
+		AtomWorkload workload = smallWorkload().build();
+		CMAtomOS cmAtomOS = AtomWorkload.buildAtomOS();
+		ConstraintMachine cm = new ConstraintMachine.Builder()
+			.setParticleStaticCheck(cmAtomOS.buildParticleStaticCheck())
+			.setParticleTransitionProcedures(cmAtomOS.buildTransitionProcedures())
+			.build();
+		List<Atom> atoms = new ArrayList<>(workload.getGenesis());
+		atoms.addAll(workload.generate(200).stream().map(WorkloadAtom::getAtom).collect(Collectors.toList()));
+
+		for (Atom atom : atoms) {
+			assertThat(cm.validate(RadixEngineUtils.toCMAtom(atom).getCMInstruction())).as(atom.toString()).isEmpty();
+		}
+	}
+
+	@Test
+	public void when_storing_generated_atoms_in_order__only_double_spends_conflict() throws Exception {
+		AtomWorkload workload = smallWorkload()
+			.setMix(WorkloadAtom.Type.DOUBLE_SPEND, 20)
+			.build();
+		CMAtomOS cmAtomOS = AtomWorkload.buildAtomOS();
+		ConstraintMachine cm = new ConstraintMachine.Builder()
+			.setParticleStaticCheck(cmAtomOS.buildParticleStaticCheck())
+			.setParticleTransitionProcedures(cmAtomOS.buildTransitionProcedures())
+			.build();
+		RadixEngine engine = new RadixEngine(cm, cmAtomOS.buildVirtualLayer(), new InMemoryEngineStore());
+		engine.start();
+		List<WorkloadAtom> generated = workload.generate(200);
+		Set<AID> stored = ConcurrentHashMap.newKeySet();
+		Set<AID> conflicted = ConcurrentHashMap.newKeySet();
+		CountDownLatch done = new CountDownLatch(workload.getGenesis().size() + generated.size());
+		AtomEventListener listener = new AtomEventListener() {
+			@Override
+			public void onStateStore(Atom atom) {
+				stored.add(atom.getAID());
+				done.countDown();
+			}
+
+			@Override
+			public void onStateConflict(Atom atom, DataPointer issueParticle, Atom conflictingAtom) {
+				conflicted.add(atom.getAID());
+				done.countDown();
+			}
+		};
+
+		try {
+			workload.getGenesis().forEach(atom -> engine.store(atom, listener));
+			generated.forEach(atom -> engine.store(atom.getAtom(), listener));
+			assertThat(done.await(30, TimeUnit.SECONDS)).isTrue();
+		} finally {
+			engine.stop();
+		}
+
+		Set<AID> expectedConflicts = generated.stream()
+			.filter(atom -> atom.getType().isConflicting())
+			.map(atom -> atom.getAtom().getAID())
+			.collect(Collectors.toSet());
+		assertThat(expectedConflicts).isNotEmpty();
+		assertThat(conflicted).isEqualTo(expectedConflicts);
+		assertThat(stored).hasSize(workload.getGenesis().size() + generated.size() - expectedConflicts.size());
+	}
+
+	@Test
+	public void when_mix_has_a_single_type__only_that_type_is_generated() throws Exception {
+		AtomWorkload.Builder builder = smallWorkload();
+		for (WorkloadAtom.Type type : WorkloadAtom.Type.values()) {
+			builder.setMix(type, type == WorkloadAtom.Type.UNIQUE ? 1 : 0);
+		}
+
+		List<WorkloadAtom> generated = builder.build().generate(20);
+
+		assertThat(generated).allMatch(atom -> atom.getType() == WorkloadAtom.Type.UNIQUE);
+	}
+
+	@Test
+	public void when_building_with_the_same_seed__keys_are_the_same() throws Exception {
+		List<ECKeyPair> keys0 = smallWorkload().setSeed(42L).build().getKeys();
+		List<ECKeyPair> keys1 = smallWorkload().setSeed(42L).build().getKeys();
+
+		assertThat(keys0.stream().map(ECKeyPair::getPublicKey).collect(Collectors.toList()))
+			.isEqualTo(keys1.stream().map(ECKeyPair::getPublicKey).collect(Collectors.toList()));
+	}
+}